@@ -0,0 +1,170 @@
+package io.vertx.rxcore.jmh;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.rxcore.java.eventbus.RxEventBus;
+import io.vertx.rxcore.java.eventbus.RxMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.EventBus;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+import rx.functions.Action1;
+
+/** RxEventBus send/reply round trips on a local Vert.x instance */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+
+  /** Echo address */
+  public static final String ADDRESS="bench.echo";
+
+  /** Requests in flight per invocation of the batch benchmarks */
+  public static final int BATCH=100;
+
+  // Instance variables
+
+  /** Core bus */
+  private EventBus eventBus;
+
+  /** Rx bus */
+  private RxEventBus rxBus;
+
+  /** Echo handler */
+  private Handler<Message<JsonObject>> echo;
+
+  /** Request */
+  private JsonObject request;
+
+  /** Context used to send */
+  private Context context;
+
+  // Lifecycle
+
+  /** Register the echo handler */
+  @Setup(Level.Trial)
+  public void setup(VertxState vs) {
+    this.context=vs.context;
+    this.eventBus=vs.vertx.eventBus();
+    this.rxBus=new RxEventBus(this.eventBus);
+    this.echo=new Handler<Message<JsonObject>>() {
+      public void handle(Message<JsonObject> msg) {
+        msg.reply(msg.body());
+      }
+    };
+    this.eventBus.registerLocalHandler(ADDRESS,this.echo);
+    this.request=new JsonObject().putString("op","echo").putNumber("id",1);
+  }
+
+  /** Unregister the echo handler */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.eventBus.unregisterHandler(ADDRESS,this.echo);
+  }
+
+  // Benchmarks
+
+  /** Core EventBus send and reply (baseline) */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void coreSend() throws InterruptedException {
+    final CountDownLatch latch=new CountDownLatch(BATCH);
+    final Handler<Message<JsonObject>> reply=new Handler<Message<JsonObject>>() {
+      public void handle(Message<JsonObject> msg) {
+        latch.countDown();
+      }
+    };
+    onContext(new Runnable() {
+      public void run() {
+        for (int i=0;i<BATCH;i++)
+          eventBus.send(ADDRESS,request,reply);
+      }
+    });
+    latch.await();
+  }
+
+  /** RxEventBus.send */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void rxSend() throws InterruptedException {
+    final CountDownLatch latch=new CountDownLatch(BATCH);
+    final Action1<RxMessage<JsonObject>> reply=new Action1<RxMessage<JsonObject>>() {
+      public void call(RxMessage<JsonObject> msg) {
+        latch.countDown();
+      }
+    };
+    onContext(new Runnable() {
+      public void run() {
+        for (int i=0;i<BATCH;i++)
+          rxBus.<JsonObject,JsonObject>send(ADDRESS,request).subscribe(reply);
+      }
+    });
+    latch.await();
+  }
+
+  /** RxEventBus.observeSend (send with the default timeout) */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void rxObserveSend() throws InterruptedException {
+    final CountDownLatch latch=new CountDownLatch(BATCH);
+    final Action1<RxMessage<JsonObject>> reply=new Action1<RxMessage<JsonObject>>() {
+      public void call(RxMessage<JsonObject> msg) {
+        latch.countDown();
+      }
+    };
+    onContext(new Runnable() {
+      public void run() {
+        for (int i=0;i<BATCH;i++)
+          rxBus.<JsonObject,JsonObject>observeSend(ADDRESS,request).subscribe(reply);
+      }
+    });
+    latch.await();
+  }
+
+  /** Single RxEventBus.send round trip (latency) */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void rxSendRoundTrip() throws InterruptedException {
+    final CountDownLatch latch=new CountDownLatch(1);
+    onContext(new Runnable() {
+      public void run() {
+        rxBus.<JsonObject,JsonObject>send(ADDRESS,request).subscribe(new Action1<RxMessage<JsonObject>>() {
+          public void call(RxMessage<JsonObject> msg) {
+            latch.countDown();
+          }
+        });
+      }
+    });
+    latch.await();
+  }
+
+  // Implementation
+
+  /** Run on the benchmark context (the adapters expect to be used from a single context) */
+  protected void onContext(final Runnable r) {
+    this.context.runOnContext(new Handler<Void>() {
+      public void handle(Void v) {
+        r.run();
+      }
+    });
+  }
+}
@@ -0,0 +1,89 @@
+package io.vertx.rxcore.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.rxcore.java.impl.MemoizeHandler;
+import io.vertx.rxcore.java.impl.SingleSubscriptionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import rx.Observable;
+import rx.Subscriber;
+
+/** Cost of the handler adapters that turn Vert.x callbacks into Observables */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class HandlerBenchmark {
+
+  // Definitions
+
+  /** Subscriber that consumes every event */
+  static class SinkSubscriber<T> extends Subscriber<T> {
+
+    /** Blackhole */
+    private final Blackhole bh;
+
+    /** Create new SinkSubscriber */
+    SinkSubscriber(Blackhole bh) {
+      this.bh=bh;
+    }
+
+    public void onNext(T t) {
+      this.bh.consume(t);
+    }
+
+    public void onError(Throwable e) {
+      this.bh.consume(e);
+    }
+
+    public void onCompleted() {
+      this.bh.consume(this);
+    }
+  }
+
+  /** Events dispatched per subscription */
+  @State(Scope.Thread)
+  public static class Dispatch {
+    @Param({ "1", "100" })
+    public int events;
+  }
+
+  // Benchmarks
+
+  /** Subscribe to a SingleSubscriptionHandler and dispatch events through handle() */
+  @Benchmark
+  public void singleSubscriptionDispatch(Dispatch d, Blackhole bh) {
+    SingleSubscriptionHandler<Integer,Integer> h=new SingleSubscriptionHandler<>();
+    Observable.create(h).subscribe(new SinkSubscriber<Integer>(bh));
+    Integer value=42;
+    for (int i=0;i<d.events;i++)
+      h.handle(value);
+  }
+
+  /** Complete a MemoizeHandler that already has a subscriber */
+  @Benchmark
+  public void memoizeCompleteSubscribed(Blackhole bh) {
+    MemoizeHandler<Integer,Integer> h=new MemoizeHandler<>();
+    Observable.create(h.subscribe).subscribe(new SinkSubscriber<Integer>(bh));
+    h.complete(42);
+  }
+
+  /** Subscribe to a MemoizeHandler that has already completed */
+  @Benchmark
+  public void memoizeCompleteThenSubscribe(Blackhole bh) {
+    MemoizeHandler<Integer,Integer> h=new MemoizeHandler<>();
+    h.complete(42);
+    Observable.create(h.subscribe).subscribe(new SinkSubscriber<Integer>(bh));
+  }
+}
@@ -0,0 +1,157 @@
+package io.vertx.rxcore.jmh;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.rxcore.java.impl.ContextScheduler;
+import io.vertx.rxcore.java.impl.TimerWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+
+/** ContextScheduler schedule/delay throughput compared with Schedulers.computation() */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchedulerBenchmark {
+
+  /** Actions scheduled per invocation */
+  public static final int BATCH=1000;
+
+  // Instance variables
+
+  /** ContextScheduler worker */
+  private Scheduler.Worker contextWorker;
+
+  /** Batched ContextScheduler worker */
+  private Scheduler.Worker batchedWorker;
+
+  /** ContextScheduler worker using a TimerWheel */
+  private Scheduler.Worker wheelWorker;
+
+  /** Computation worker */
+  private Scheduler.Worker computationWorker;
+
+  // Lifecycle
+
+  /** Create workers */
+  @Setup(Level.Trial)
+  public void setup(VertxState vs) {
+    this.contextWorker=new ContextScheduler(vs.vertx,vs.context).createWorker();
+    this.batchedWorker=new ContextScheduler(vs.vertx,vs.context,ContextScheduler.DEFAULT_TICK_BUDGET).createWorker();
+    this.wheelWorker=new ContextScheduler(vs.vertx,vs.context,ContextScheduler.DEFAULT_TICK_BUDGET,new TimerWheel(vs.vertx,vs.context)).createWorker();
+    this.computationWorker=Schedulers.computation().createWorker();
+  }
+
+  /** Release workers */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.contextWorker.unsubscribe();
+    this.batchedWorker.unsubscribe();
+    this.wheelWorker.unsubscribe();
+    this.computationWorker.unsubscribe();
+  }
+
+  // Benchmarks
+
+  /** Schedule a batch on the Vert.x context */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void contextSchedule() throws InterruptedException {
+    schedule(this.contextWorker,0);
+  }
+
+  /** Schedule a batch on the Vert.x context with a batched worker */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void batchedContextSchedule() throws InterruptedException {
+    schedule(this.batchedWorker,0);
+  }
+
+  /** Schedule a batch on the computation scheduler */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void computationSchedule() throws InterruptedException {
+    schedule(this.computationWorker,0);
+  }
+
+  /** Schedule a delayed batch on the Vert.x context */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void contextScheduleDelayed() throws InterruptedException {
+    schedule(this.contextWorker,1);
+  }
+
+  /** Schedule a delayed batch on the computation scheduler */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void computationScheduleDelayed() throws InterruptedException {
+    schedule(this.computationWorker,1);
+  }
+
+  /** Schedule and cancel a batch of timeouts on the Vert.x context (eg timeout() per element) */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void contextScheduleCancel() {
+    scheduleCancel(this.contextWorker);
+  }
+
+  /** Schedule and cancel a batch of timeouts on the Vert.x context using a TimerWheel */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void wheelContextScheduleCancel() {
+    scheduleCancel(this.wheelWorker);
+  }
+
+  /** Schedule and cancel a batch of timeouts on the computation scheduler */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void computationScheduleCancel() {
+    scheduleCancel(this.computationWorker);
+  }
+
+  // Implementation
+
+  /** Schedule BATCH actions a second in the future and cancel them */
+  protected static void scheduleCancel(Scheduler.Worker worker) {
+    Action0 action=new Action0() {
+      public void call() {
+      }
+    };
+    for (int i=0;i<BATCH;i++)
+      worker.schedule(action,1,TimeUnit.SECONDS).unsubscribe();
+  }
+
+  /** Schedule BATCH actions and wait for all of them to run */
+  protected static void schedule(Scheduler.Worker worker, long delayMillis) throws InterruptedException {
+    final CountDownLatch latch=new CountDownLatch(BATCH);
+    Action0 action=new Action0() {
+      public void call() {
+        latch.countDown();
+      }
+    };
+    for (int i=0;i<BATCH;i++) {
+      if (delayMillis>0)
+        worker.schedule(action,delayMillis,TimeUnit.MILLISECONDS);
+      else
+        worker.schedule(action);
+    }
+    latch.await();
+  }
+}
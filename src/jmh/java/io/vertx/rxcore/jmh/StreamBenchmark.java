@@ -0,0 +1,220 @@
+package io.vertx.rxcore.jmh;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.vertx.rxcore.RxSupport;
+import io.vertx.rxcore.java.impl.Regulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.streams.WriteStream;
+import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Action1;
+
+/** Throughput of streaming Observable<Buffer> into a WriteStream that fills up and drains asynchronously */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamBenchmark {
+
+  /** Buffers streamed per invocation */
+  public static final int BUFFERS=10000;
+
+  // Definitions
+
+  /** WriteStream that is full after <code>burst</code> writes and drains on the next context tick
+   *
+   * <p>Like RatedWriteStream in the integration tests but rated per tick rather than per second</p>
+   *
+   **/
+  static class TickRatedWriteStream implements WriteStream<TickRatedWriteStream> {
+
+    /** Context */
+    private final Context context;
+
+    /** Writes allowed per tick */
+    private final int burst;
+
+    /** Writes this tick */
+    private int count;
+
+    /** Drain scheduled */
+    private boolean draining;
+
+    /** Bytes written */
+    long written;
+
+    /** Handlers */
+    private Handler<Void> drainHandler;
+
+    /** Drain on the next tick */
+    private final Handler<Void> drain=new Handler<Void>() {
+      public void handle(Void v) {
+        draining=false;
+        count=0;
+        if (drainHandler!=null)
+          drainHandler.handle(null);
+      }
+    };
+
+    /** Create new TickRatedWriteStream */
+    TickRatedWriteStream(Context context, int burst) {
+      this.context=context;
+      this.burst=burst;
+    }
+
+    public TickRatedWriteStream write(Buffer data) {
+      this.written+=data.length();
+      if ((++this.count>=this.burst) && !this.draining) {
+        this.draining=true;
+        this.context.runOnContext(this.drain);
+      }
+      return this;
+    }
+
+    public TickRatedWriteStream setWriteQueueMaxSize(int maxSize) {
+      return this;
+    }
+
+    public boolean writeQueueFull() {
+      return this.count>=this.burst;
+    }
+
+    public TickRatedWriteStream drainHandler(Handler<Void> handler) {
+      this.drainHandler=handler;
+      return this;
+    }
+
+    public TickRatedWriteStream exceptionHandler(Handler<Throwable> handler) {
+      return this;
+    }
+  }
+
+  // Instance variables
+
+  /** Writes allowed per tick */
+  @Param({ "16", "1024" })
+  public int burst;
+
+  /** Size of each buffer */
+  @Param({ "1024" })
+  public int bufferSize;
+
+  /** Source data */
+  private Buffer[] data;
+
+  /** Context */
+  private Context context;
+
+  // Lifecycle
+
+  /** Create the source data */
+  @Setup(Level.Trial)
+  public void setup(VertxState vs) {
+    this.context=vs.context;
+    this.data=new Buffer[BUFFERS];
+    byte[] bytes=new byte[this.bufferSize];
+    for (int i=0;i<BUFFERS;i++)
+      this.data[i]=new Buffer(bytes);
+  }
+
+  // Benchmarks
+
+  /** RxSupport.stream (ignores writeQueueFull) */
+  @Benchmark
+  @OperationsPerInvocation(BUFFERS)
+  @SuppressWarnings("deprecation")
+  public long rxSupportStream() throws InterruptedException {
+    return run(new Func() {
+      public Observable<Long> call(Observable<Buffer> src, TickRatedWriteStream out) {
+        return RxSupport.stream(src,out);
+      }
+    });
+  }
+
+  /** Regulator.stream */
+  @Benchmark
+  @OperationsPerInvocation(BUFFERS)
+  @SuppressWarnings("deprecation")
+  public long regulatorStream() throws InterruptedException {
+    return run(new Func() {
+      public Observable<Long> call(Observable<Buffer> src, TickRatedWriteStream out) {
+        Regulator<Buffer> regulator=new Regulator<>();
+        return regulator.stream(src.lift(regulator),(WriteStream)out);
+      }
+    });
+  }
+
+  /** RxSupport.pump */
+  @Benchmark
+  @OperationsPerInvocation(BUFFERS)
+  public long rxSupportPump() throws InterruptedException {
+    return run(new Func() {
+      public Observable<Long> call(Observable<Buffer> src, TickRatedWriteStream out) {
+        return RxSupport.pump(src,out);
+      }
+    });
+  }
+
+  // Implementation
+
+  /** Stream function under test */
+  interface Func {
+    Observable<Long> call(Observable<Buffer> src, TickRatedWriteStream out);
+  }
+
+  /** Stream the source data on the context and wait for completion (rethrowing any error) */
+  protected long run(final Func f) throws InterruptedException {
+    final CountDownLatch latch=new CountDownLatch(1);
+    final AtomicReference<Throwable> error=new AtomicReference<>();
+    final TickRatedWriteStream out=new TickRatedWriteStream(this.context,this.burst);
+    final Observable<Buffer> src=Observable.from(this.data);
+
+    this.context.runOnContext(new Handler<Void>() {
+      public void handle(Void v) {
+        f.call(src,out).subscribe(
+          new Action1<Long>() {
+            public void call(Long total) {
+            }
+          },
+          new Action1<Throwable>() {
+            public void call(Throwable t) {
+              error.set(t);
+              latch.countDown();
+            }
+          },
+          new Action0() {
+            public void call() {
+              latch.countDown();
+            }
+          });
+      }
+    });
+
+    latch.await();
+    Throwable t=error.get();
+    if (t!=null)
+      throw Exceptions.propagate(t);
+    return out.written;
+  }
+}
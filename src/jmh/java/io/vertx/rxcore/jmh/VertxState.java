@@ -0,0 +1,39 @@
+package io.vertx.rxcore.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.impl.VertxInternal;
+
+/** Local Vert.x instance with an event-loop Context shared by a benchmark */
+@State(Scope.Benchmark)
+public class VertxState {
+
+  // Instance variables
+
+  /** Vertx */
+  public Vertx vertx;
+
+  /** Event-loop context */
+  public Context context;
+
+  // Lifecycle
+
+  /** Start Vert.x */
+  @Setup(Level.Trial)
+  public void start() {
+    this.vertx=VertxFactory.newVertx();
+    this.context=((VertxInternal)this.vertx).createEventLoopContext();
+  }
+
+  /** Stop Vert.x */
+  @TearDown(Level.Trial)
+  public void stop() {
+    this.vertx.stop();
+  }
+}
@@ -17,14 +17,85 @@ package io.vertx.rxcore.groovy.eventbus
  *
  * @author <a href="http://tfox.org">Tim Fox</a>
  */
+import groovy.transform.CompileStatic
 import org.vertx.groovy.core.eventbus.EventBus
+import rx.Observable
+import rx.functions.Func1
 
+/** Groovy RxEventBus
+ *
+ * <p>Statically compiled wrapper for the Java RxEventBus. Map and List bodies are passed as JsonObject and
+ * JsonArray (a Map is wrapped, not copied) and messages are wrapped as Groovy {@link RxMessage}s.</p>
+ *
+ **/
+@CompileStatic
 class RxEventBus {
 
+  /** Wrap Java stream */
+  private static final Func1<io.vertx.rxcore.java.eventbus.RxStream,RxStream> WRAP_STREAM=new Func1<io.vertx.rxcore.java.eventbus.RxStream,RxStream>() {
+    RxStream call(io.vertx.rxcore.java.eventbus.RxStream s) {
+      return new RxStream(s)
+    }
+  }
+
+  // Instance variables
+
+  /** Core bus */
   org.vertx.java.core.eventbus.EventBus jEventBus
 
+  /** Java RxEventBus */
+  final io.vertx.rxcore.java.eventbus.RxEventBus javaRxEventBus
+
+  // Public
+
+  /** Create new RxEventBus */
   RxEventBus(EventBus eventBus) {
-    jEventBus = eventBus.javaEventBus()
+    this(new io.vertx.rxcore.java.eventbus.RxEventBus(eventBus.javaEventBus()))
+  }
+
+  /** Create new RxEventBus from a Java RxEventBus */
+  RxEventBus(io.vertx.rxcore.java.eventbus.RxEventBus javaRxEventBus) {
+    this.javaRxEventBus=javaRxEventBus
+    this.jEventBus=javaRxEventBus.coreEventBus()
+  }
+
+  /** Publish */
+  void publish(String address, Object msg) {
+    this.javaRxEventBus.publish(address,RxMessage.toJava(msg))
+  }
+
+  /** Send a message */
+  Observable<RxMessage> send(String address, Object msg) {
+    return this.javaRxEventBus.send(address,RxMessage.toJava(msg)).map(RxMessage.WRAP)
+  }
+
+  /** Send a message with timeout */
+  Observable<RxMessage> sendWithTimeout(String address, Object msg, long timeout) {
+    return this.javaRxEventBus.sendWithTimeout(address,RxMessage.toJava(msg),timeout).map(RxMessage.WRAP)
+  }
+
+  /** Create an Observable that executes send() on subscribe */
+  Observable<RxMessage> observeSend(String address, Object msg) {
+    return this.javaRxEventBus.observeSend(address,RxMessage.toJava(msg)).map(RxMessage.WRAP)
+  }
+
+  /** Create an Observable that executes sendWithTimeout() on subscribe */
+  Observable<RxMessage> observeSendWithTimeout(String address, Object msg, long timeout) {
+    return this.javaRxEventBus.observeSendWithTimeout(address,RxMessage.toJava(msg),timeout).map(RxMessage.WRAP)
   }
-}
 
+  /** Register a handler */
+  Observable<RxMessage> registerHandler(String address) {
+    return this.javaRxEventBus.registerHandler(address).map(RxMessage.WRAP)
+  }
+
+  /** Register a local handler */
+  Observable<RxMessage> registerLocalHandler(String address) {
+    return this.javaRxEventBus.registerLocalHandler(address).map(RxMessage.WRAP)
+  }
+
+  /** Create an Observable that requests multiple messages in a sequence */
+  Observable<RxStream> observeStream(String address, Object msg) {
+    return this.javaRxEventBus.observeStream(address,RxMessage.toJava(msg)).map(WRAP_STREAM)
+  }
+}
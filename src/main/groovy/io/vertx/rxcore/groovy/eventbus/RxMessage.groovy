@@ -0,0 +1,151 @@
+package io.vertx.rxcore.groovy.eventbus
+
+import groovy.transform.CompileStatic
+import io.vertx.rxcore.java.impl.JsonEncoder
+import org.vertx.java.core.json.JsonArray
+import org.vertx.java.core.json.JsonObject
+import rx.Observable
+import rx.functions.Func1
+
+/** Groovy RxMessage
+ *
+ * <p>Map and List bodies are sent as JsonObject and JsonArray, with GString values converted to String; a
+ * Map is only copied if it holds values that need converting. A received JsonObject is returned as the Map
+ * it wraps rather than a copy.</p>
+ *
+ **/
+@CompileStatic
+class RxMessage {
+
+  /** Wrap Java message */
+  static final Func1<io.vertx.rxcore.java.eventbus.RxMessage<Object>,RxMessage> WRAP=new Func1<io.vertx.rxcore.java.eventbus.RxMessage<Object>,RxMessage>() {
+    RxMessage call(io.vertx.rxcore.java.eventbus.RxMessage<Object> msg) {
+      return new RxMessage(msg)
+    }
+  }
+
+  // Instance variables
+
+  /** Java message */
+  final io.vertx.rxcore.java.eventbus.RxMessage<Object> javaMessage
+
+  /** Converted body */
+  private Object body
+
+  /** Body has been converted */
+  private boolean converted
+
+  // Public
+
+  /** Create new RxMessage */
+  RxMessage(io.vertx.rxcore.java.eventbus.RxMessage<Object> javaMessage) {
+    this.javaMessage=javaMessage
+  }
+
+  /** Return string representation */
+  String toString() {
+    return "RxMessage["+body()+"]"
+  }
+
+  /** Return the body (converted on first access) */
+  Object body() {
+    if (!this.converted) {
+      this.body=fromJava(this.javaMessage.body())
+      this.converted=true
+    }
+    return this.body
+  }
+
+  /** Return the reply address (if any) */
+  String replyAddress() {
+    return this.javaMessage.replyAddress()
+  }
+
+  /** Send empty reply */
+  void reply() {
+    this.javaMessage.reply()
+  }
+
+  /** Send reply without expecting a response */
+  void reply(Object msg) {
+    this.javaMessage.reply(toJava(msg))
+  }
+
+  /** Observe a reply */
+  Observable<RxMessage> observeReply(Object msg) {
+    return this.javaMessage.observeReply(toJava(msg)).map(WRAP)
+  }
+
+  /** Observe a reply with timeout */
+  Observable<RxMessage> observeReplyWithTimeout(Object msg, long timeout) {
+    return this.javaMessage.observeReplyWithTimeout(toJava(msg),timeout).map(WRAP)
+  }
+
+  /** Send a signal that processing of this message failed */
+  void fail(int failureCode, String message) {
+    this.javaMessage.fail(failureCode,message)
+  }
+
+  // Implementation
+
+  /** Convert Map and List to JsonObject and JsonArray and GString to String (wrapping a JSON-compatible Map without copying) */
+  static Object toJava(Object msg) {
+    if (msg instanceof GString)
+      return msg.toString()
+    if (msg instanceof Map)
+      return JsonEncoder.wrap(jsonMap((Map<String,Object>)msg))
+    if (msg instanceof List)
+      return new JsonArray(jsonList((List<Object>)msg))
+    return msg
+  }
+
+  /** Convert JsonObject and JsonArray to Map and List (returning the Map a JsonObject wraps) */
+  static Object fromJava(Object body) {
+    if (body instanceof JsonObject)
+      return JsonEncoder.map((JsonObject)body)
+    if (body instanceof JsonArray)
+      return ((JsonArray)body).toList()
+    return body
+  }
+
+  /** Convert value to a type a JsonObject holds (returning it unchanged if it already is one) */
+  private static Object jsonValue(Object v) {
+    if (v instanceof GString)
+      return v.toString()
+    if (v instanceof JsonObject)
+      return JsonEncoder.map((JsonObject)v)
+    if (v instanceof JsonArray)
+      return ((JsonArray)v).toList()
+    if (v instanceof Map)
+      return jsonMap((Map<String,Object>)v)
+    if (v instanceof List)
+      return jsonList((List<Object>)v)
+    return v
+  }
+
+  /** Convert map values (returning map itself if none need converting) */
+  private static Map<String,Object> jsonMap(Map<String,Object> map) {
+    Map<String,Object> res=null
+    for (Map.Entry<String,Object> e : map.entrySet()) {
+      Object v=jsonValue(e.value)
+      if ((res==null) && !v.is(e.value))
+        res=new LinkedHashMap<String,Object>(map)
+      if (res!=null)
+        res.put(e.key,v)
+    }
+    return (res!=null)?res:map
+  }
+
+  /** Convert list values (returning list itself if none need converting) */
+  private static List<Object> jsonList(List<Object> list) {
+    List<Object> res=null
+    for (int i=0;i<list.size();i++) {
+      Object v=jsonValue(list.get(i))
+      if ((res==null) && !v.is(list.get(i)))
+        res=new ArrayList<Object>(list)
+      if (res!=null)
+        res.set(i,v)
+    }
+    return (res!=null)?res:list
+  }
+}
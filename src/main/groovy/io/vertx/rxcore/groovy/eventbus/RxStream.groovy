@@ -0,0 +1,31 @@
+package io.vertx.rxcore.groovy.eventbus
+
+import groovy.transform.CompileStatic
+
+/** Groovy RxStream (see {@link io.vertx.rxcore.java.eventbus.RxStream}) */
+@CompileStatic
+class RxStream {
+
+  /** Java stream */
+  final io.vertx.rxcore.java.eventbus.RxStream<Object,Object> javaStream
+
+  /** Create new RxStream */
+  RxStream(io.vertx.rxcore.java.eventbus.RxStream<Object,Object> javaStream) {
+    this.javaStream=javaStream
+  }
+
+  /** Send next part of stream */
+  void next(Object value) {
+    this.javaStream.next(RxMessage.toJava(value))
+  }
+
+  /** Finish */
+  void complete() {
+    this.javaStream.complete()
+  }
+
+  /** Return the current value */
+  Object value() {
+    return RxMessage.fromJava(this.javaStream.value())
+  }
+}
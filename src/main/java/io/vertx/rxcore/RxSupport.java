@@ -1,9 +1,16 @@
 package io.vertx.rxcore;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.concurrent.atomic.AtomicLong;
 
-import io.vertx.rxcore.java.impl.SingleSubscriptionHandler;
+import io.vertx.rxcore.java.impl.DelimitedFrameDecoder;
+import io.vertx.rxcore.java.impl.JsonEncoder;
+import io.vertx.rxcore.java.impl.JsonStreamDecoder;
+import io.vertx.rxcore.java.impl.JsonStreamWriter;
+import io.vertx.rxcore.java.impl.LengthFrameDecoder;
+import io.vertx.rxcore.java.impl.ReadStreamHandler;
+import io.vertx.rxcore.java.impl.StreamPump;
+import org.vertx.java.core.Context;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.eventbus.Message;
@@ -31,7 +38,9 @@ public class RxSupport {
    *
    * <p>This method does not handle writeQueueFull condition</p>  
    * 
+   * @deprecated use {@link #pump(Observable, WriteStream)}
    **/
+  @Deprecated
   public static Observable<Long> stream(Observable<Buffer> src, final WriteStream out) {
     final PublishSubject<Long> rx=PublishSubject.create();
     final AtomicLong total=new AtomicLong();
@@ -66,49 +75,94 @@ public class RxSupport {
     return rx;
   }
 
-  /** Convert ReadStream to Observable */
+  /** Pump Observable<Buffer> to WriteStream.
+   *
+   * <p>The source is subscribed on subscribe and only requested while the WriteStream has room. The total
+   * number of bytes written is emitted on completion (see {@link StreamPump})</p>
+   *
+   **/
+  public static Observable<Long> pump(Observable<Buffer> src, WriteStream<?> out) {
+    return Observable.create(new StreamPump(src,out));
+  }
+
+  /** Pump Observable<Buffer> to WriteStream with explicit limits
+   *
+   * @param highWatermark Maximum bytes held from a source that ignores backpressure before failing
+   * @param lowWatermark Bytes held below which more data is requested
+   * @param progressInterval Bytes between emitting the running total (0 to emit only on completion)
+   *
+   **/
+  public static Observable<Long> pump(Observable<Buffer> src, WriteStream<?> out, int highWatermark, int lowWatermark, long progressInterval) {
+    return Observable.create(new StreamPump(src,out,highWatermark,lowWatermark,progressInterval));
+  }
+
+  /** Convert ReadStream to Observable
+   *
+   * <p>The ReadStream is paused when the subscriber falls behind (see {@link ReadStreamHandler})</p>
+   *
+   **/
   public static Observable<Buffer> toObservable(final ReadStream rs) {
-    final SingleSubscriptionHandler<Buffer, Buffer> rh=new SingleSubscriptionHandler<Buffer, Buffer>() {
-      @Override public void execute() {
-        rs.dataHandler(this);
-        rs.exceptionHandler(new Handler<Throwable>() {
-          public void handle(Throwable t) {
-            fireError(t);
-          }
-        });
-        rs.endHandler(new Handler<Void>() {
-          public void handle(Void v) {
-            fireComplete();
-          }
-        });
-      }
-      @Override public void onUnsubscribed() {
-        try {
-          rs.dataHandler(null);
-          rs.exceptionHandler(null);
-          rs.endHandler(null);
-        }
-        catch(Exception e) {
-          // Clearing handlers after stream closed causes issues for some (eg AsyncFile) so silently drop errors
-        }
-      }
-    };
-    
-    return Observable.create(rh);
+    return Observable.create(new ReadStreamHandler(rs));
+  }
+
+  /** Convert ReadStream to Observable with explicit flow-control limits
+   *
+   * @param prefetch Number of un-requested buffers to queue before pausing the ReadStream
+   * @param lowWatermark Number of queued buffers at which the ReadStream is resumed
+   *
+   **/
+  public static Observable<Buffer> toObservable(final ReadStream<?> rs, int prefetch, int lowWatermark) {
+    return Observable.create(new ReadStreamHandler(rs,prefetch,lowWatermark));
   }
   
+  // Framing
+
+  /** Split Observable<Buffer> into records separated by delimiter (see {@link DelimitedFrameDecoder}) */
+  public static Observable.Operator<Buffer,Buffer> frameDelimited(Buffer delimiter, int maxFrameSize) {
+    return new DelimitedFrameDecoder(delimiter.getBytes(),maxFrameSize);
+  }
+
+  /** Split Observable<Buffer> into lines separated by \n */
+  public static Observable.Operator<Buffer,Buffer> frameLines(int maxFrameSize) {
+    return new DelimitedFrameDecoder(new byte[] { '\n' },maxFrameSize);
+  }
+
+  /** Split Observable<Buffer> into records of a fixed size */
+  public static Observable.Operator<Buffer,Buffer> frameFixed(int size) {
+    return LengthFrameDecoder.fixed(size);
+  }
+
+  /** Split Observable<Buffer> into length-prefixed records (see {@link LengthFrameDecoder})
+   *
+   * @param prefixSize Length prefix size of 1, 2 or 4 bytes (big-endian), or LengthFrameDecoder.VARINT
+   *
+   **/
+  public static Observable.Operator<Buffer,Buffer> frameLengthPrefixed(int prefixSize, int maxFrameSize) {
+    return LengthFrameDecoder.prefixed(prefixSize,maxFrameSize);
+  }
+
   // JSON 
 	
+  /** Simple JSON encode (UTF-8) */
+  public static Func1<JsonObject, Buffer> encodeJson() {
+    return encodeJson(JsonEncoder.UTF8);
+  }
+
   /** Simple JSON encode */
   public static Func1<JsonObject, Buffer> encodeJson(final String charset) {
+    try {
+      return encodeJson(JsonEncoder.charset(charset));
+    }
+    catch(IllegalArgumentException e) {
+      throw new RuntimeException("Unable to encode JSON (charset="+charset+")",e);
+    }
+  }
+
+  /** Simple JSON encode (see {@link JsonEncoder}) */
+  public static Func1<JsonObject, Buffer> encodeJson(final Charset charset) {
     return new Func1<JsonObject,Buffer>() {
       public Buffer call(JsonObject in) {
-        try {
-          return new Buffer(in.encode().getBytes(charset));
-        }
-        catch (UnsupportedEncodingException e) {
-          throw new RuntimeException("Unable to encode JSON (charset="+charset+")",e);
-        }
+        return JsonEncoder.encode(in,charset);
       }
     };
   }
@@ -127,6 +181,26 @@ public class RxSupport {
     };
   }
 
+  /** Streaming JSON decode of a top-level array or newline-delimited objects (UTF-8) */
+  public static Observable.Operator<JsonObject,Buffer> decodeJsonStream() {
+    return new JsonStreamDecoder();
+  }
+
+  /** Streaming JSON decode of a top-level array or newline-delimited objects (UTF-8), limiting the size of each object */
+  public static Observable.Operator<JsonObject,Buffer> decodeJsonStream(int maxObjectSize) {
+    return new JsonStreamDecoder(maxObjectSize);
+  }
+
+  /** Write Observable<JsonObject> to WriteStream as a JSON array or newline-delimited JSON
+   *
+   * <p>Records are coalesced into larger writes and only requested while the WriteStream has room. The
+   * total number of bytes written is emitted on completion (see {@link JsonStreamWriter})</p>
+   *
+   **/
+  public static Observable<Long> writeJsonStream(Context context, Observable<JsonObject> src, WriteStream<?> out, JsonStreamWriter.Format format) {
+    return Observable.create(new JsonStreamWriter(context,src,out,format));
+  }
+
   // EventBus
   
   /** Message */
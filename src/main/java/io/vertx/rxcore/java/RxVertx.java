@@ -1,9 +1,12 @@
 package io.vertx.rxcore.java;
 
+import io.vertx.rxcore.java.eventbus.RxBatchLoader;
 import io.vertx.rxcore.java.eventbus.RxEventBus;
+import io.vertx.rxcore.java.eventbus.RxTopic;
 import io.vertx.rxcore.java.http.RxHttpClient;
 import io.vertx.rxcore.java.http.RxHttpServer;
 import io.vertx.rxcore.java.impl.ContextScheduler;
+import io.vertx.rxcore.java.impl.TimerWheel;
 import io.vertx.rxcore.java.net.RxNetClient;
 import io.vertx.rxcore.java.net.RxNetServer;
 import io.vertx.rxcore.java.timer.RxTimer;
@@ -30,6 +33,12 @@ public class RxVertx {
 
   /** Scheduler */
   private ContextScheduler ctxScheduler;
+
+  /** Batched Scheduler */
+  private ContextScheduler batchedScheduler;
+
+  /** Timer wheel */
+  private TimerWheel timerWheel;
   
   /** Create RxVertx from Core using current Context */
   public RxVertx(Vertx vertx) {
@@ -59,6 +68,32 @@ public class RxVertx {
     return this.ctxScheduler;
   }
 
+  /** Return batched context scheduler (see {@link ContextScheduler}) */
+  public ContextScheduler batchedContextScheduler() {
+    if (this.batchedScheduler==null) {
+      this.batchedScheduler=new ContextScheduler(core, context, ContextScheduler.DEFAULT_TICK_BUDGET);
+    }
+    return this.batchedScheduler;
+  }
+
+  /** Return timer wheel for the context (see {@link TimerWheel}) */
+  public TimerWheel timerWheel() {
+    if (this.timerWheel==null) {
+      this.timerWheel=new TimerWheel(core, context);
+    }
+    return this.timerWheel;
+  }
+
+  /** Create context scheduler
+   *
+   * @param tickBudget Actions run per context tick by each worker, or ContextScheduler.UNBATCHED
+   * @param useTimerWheel Use {@link #timerWheel()} for delayed and periodic actions
+   *
+   **/
+  public ContextScheduler contextScheduler(int tickBudget, boolean useTimerWheel) {
+    return new ContextScheduler(core, context, tickBudget, useTimerWheel?timerWheel():null);
+  }
+
   // Services 
   
   /** Create NetServer */
@@ -81,6 +116,16 @@ public class RxVertx {
     return new RxHttpClient(core.createHttpClient());
   }
 
+  /** Create batch loader for address (see {@link RxBatchLoader}) */
+  public <K,V> RxBatchLoader<K,V> batchLoader(String address) {
+    return new RxBatchLoader<>(core, eventBus, address);
+  }
+
+  /** Return the in-process topic shared by name (see {@link RxTopic}) */
+  public <T> RxTopic<T> topic(String name) {
+    return RxTopic.topic(core, eventBus, name);
+  }
+
   // TODO: createFileSystem 
 
   /** Return EventBus */
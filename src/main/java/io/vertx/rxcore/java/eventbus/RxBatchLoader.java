@@ -0,0 +1,228 @@
+package io.vertx.rxcore.java.eventbus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.json.JsonArray;
+import rx.Observable;
+import rx.Subscriber;
+import rx.subjects.AsyncSubject;
+
+/** Coalesce per-key requests to an address into batched requests
+ *
+ * <p>Keys passed to {@link #load} are collected until the end of the current event-loop tick (or for
+ * <code>windowMillis</code> if positive) and sent as a single request once the window closes or
+ * <code>maxBatchSize</code> distinct keys have been collected. The same key requested more than once in a
+ * window is only sent once and every caller receives the same result.</p>
+ *
+ * <p>By default the request is a JsonArray of keys and the reply must be a JsonArray of values in the same
+ * order. A null value completes the caller's Observable without a value. Override {@link #createRequest}
+ * and {@link #parseReply} to use a different protocol.</p>
+ *
+ * <p>The loader is not thread-safe and should be used on a single context.</p>
+ *
+ **/
+public class RxBatchLoader<K,V> {
+
+  /** Default maximum keys per request */
+  public static final int DEFAULT_MAX_BATCH_SIZE=256;
+
+  // Instance variables
+
+  /** Vertx */
+  protected final Vertx vertx;
+
+  /** EventBus */
+  protected final RxEventBus eventBus;
+
+  /** Address */
+  protected final String address;
+
+  /** Maximum keys per request */
+  protected final int maxBatchSize;
+
+  /** Window (or 0 for end of tick) */
+  protected final long windowMillis;
+
+  /** Reply timeout */
+  protected final long timeout;
+
+  /** Keys in the current window */
+  private Map<K,AsyncSubject<V>> batch;
+
+  /** Window close pending */
+  private boolean flushScheduled;
+
+  /** Window timer (if windowMillis>0) */
+  private long timerId=-1;
+
+  /** Close the window */
+  private final Handler<Void> tickFlush=new Handler<Void>() {
+    public void handle(Void v) {
+      flushScheduled=false;
+      flush();
+    }
+  };
+
+  /** Close the window */
+  private final Handler<Long> timerFlush=new Handler<Long>() {
+    public void handle(Long id) {
+      timerId=-1;
+      flushScheduled=false;
+      flush();
+    }
+  };
+
+  // Public
+
+  /** Create new RxBatchLoader that batches per tick */
+  public RxBatchLoader(Vertx vertx, RxEventBus eventBus, String address) {
+    this(vertx,eventBus,address,DEFAULT_MAX_BATCH_SIZE,0,eventBus.defaultTimeout);
+  }
+
+  /** Create new RxBatchLoader
+   *
+   * @param maxBatchSize Maximum distinct keys per request
+   * @param windowMillis Time to collect keys, or 0 to collect until the end of the current tick
+   * @param timeout Reply timeout
+   *
+   **/
+  public RxBatchLoader(Vertx vertx, RxEventBus eventBus, String address, int maxBatchSize, long windowMillis, long timeout) {
+    if (maxBatchSize<1)
+      throw new IllegalArgumentException("maxBatchSize must be positive (maxBatchSize="+maxBatchSize+")");
+    if (windowMillis<0)
+      throw new IllegalArgumentException("windowMillis must not be negative (windowMillis="+windowMillis+")");
+
+    this.vertx=vertx;
+    this.eventBus=eventBus;
+    this.address=address;
+    this.maxBatchSize=maxBatchSize;
+    this.windowMillis=windowMillis;
+    this.timeout=timeout;
+  }
+
+  /** Request the value for key in the next batch */
+  public Observable<V> load(K key) {
+    if (this.batch==null)
+      this.batch=new LinkedHashMap<>();
+
+    AsyncSubject<V> res=this.batch.get(key);
+    if (res!=null)
+      return res.asObservable();
+
+    res=AsyncSubject.create();
+    this.batch.put(key,res);
+
+    if (this.batch.size()>=this.maxBatchSize)
+      flush();
+    else
+      scheduleFlush();
+
+    return res.asObservable();
+  }
+
+  /** Request the values for several keys (emitted in key order, skipping null values) */
+  public Observable<V> loadMany(List<K> keys) {
+    List<Observable<V>> res=new ArrayList<>(keys.size());
+    for (K key : keys)
+      res.add(load(key));
+    return Observable.concat(Observable.from(res));
+  }
+
+  /** Send the keys collected so far */
+  public void flush() {
+    if (this.timerId!=-1) {
+      this.vertx.cancelTimer(this.timerId);
+      this.timerId=-1;
+      this.flushScheduled=false;
+    }
+
+    Map<K,AsyncSubject<V>> b=this.batch;
+    if ((b==null) || b.isEmpty())
+      return;
+    this.batch=null;
+
+    final List<K> keys=new ArrayList<>(b.keySet());
+    final List<AsyncSubject<V>> results=new ArrayList<>(b.values());
+
+    Object request;
+    try {
+      request=createRequest(keys);
+    }
+    catch(Exception e) {
+      failAll(results,e);
+      return;
+    }
+
+    this.eventBus.<Object,Object>observeSendWithTimeout(this.address,request,this.timeout)
+      .subscribe(new Subscriber<RxMessage<Object>>() {
+        public void onNext(RxMessage<Object> reply) {
+          List<V> values;
+          try {
+            values=parseReply(keys,reply);
+            if (values.size()!=keys.size())
+              throw new IllegalStateException("Batch reply size does not match request (keys="+keys.size()+",values="+values.size()+")");
+          }
+          catch(Exception e) {
+            failAll(results,e);
+            return;
+          }
+          for (int i=0;i<results.size();i++) {
+            AsyncSubject<V> s=results.get(i);
+            V value=values.get(i);
+            if (value!=null)
+              s.onNext(value);
+            s.onCompleted();
+          }
+        }
+        public void onError(Throwable e) {
+          failAll(results,e);
+        }
+        public void onCompleted() {
+        }
+      });
+  }
+
+  // Implementation
+
+  /** Create the batched request (default: JsonArray of keys) */
+  protected Object createRequest(List<K> keys) {
+    return new JsonArray(new ArrayList<Object>(keys));
+  }
+
+  /** Parse the batched reply into values in key order (default: JsonArray of values) */
+  @SuppressWarnings("unchecked")
+  protected List<V> parseReply(List<K> keys, RxMessage<Object> reply) {
+    Object body=reply.body();
+    if (!(body instanceof JsonArray))
+      throw new IllegalStateException("Batch reply must be a JsonArray (reply="+body+")");
+
+    JsonArray arr=(JsonArray)body;
+    List<V> res=new ArrayList<>(arr.size());
+    for (int i=0;i<arr.size();i++)
+      res.add((V)arr.get(i));
+    return res;
+  }
+
+  /** Close the window at the end of the tick or after windowMillis */
+  private void scheduleFlush() {
+    if (this.flushScheduled)
+      return;
+
+    this.flushScheduled=true;
+    if (this.windowMillis>0)
+      this.timerId=this.vertx.setTimer(this.windowMillis,this.timerFlush);
+    else
+      this.vertx.runOnContext(this.tickFlush);
+  }
+
+  /** Fail every caller in a batch */
+  private void failAll(List<AsyncSubject<V>> results, Throwable e) {
+    for (AsyncSubject<V> s : results)
+      s.onError(e);
+  }
+}
@@ -0,0 +1,315 @@
+package io.vertx.rxcore.java.eventbus;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.vertx.rxcore.java.impl.LatencyTracker;
+import org.vertx.java.core.eventbus.ReplyException;
+import org.vertx.java.core.eventbus.ReplyFailure;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/** Send with per-address adaptive timeouts and circuit breaking
+ *
+ * <p>The latency of each reply is tracked per address and, once <code>minSamples</code> replies have
+ * been seen, requests use a timeout of the tracked percentile times a multiplier (bounded by
+ * <code>minTimeout</code> and the RxEventBus default timeout).</p>
+ *
+ * <p>Each address has a circuit that opens when the failure rate of the last <code>window</code> requests
+ * reaches <code>failureRate</code>. While open, requests fail immediately with a ReplyException
+ * (CIRCUIT_OPEN_FAILURE_CODE) without being sent. After <code>openMillis</code> a single probe request
+ * is let through: if it succeeds the circuit closes, otherwise it opens again.</p>
+ *
+ * <p>Configure before use; the settings are not thread-safe. Each circuit keeps the circuit settings in
+ * force when it was created for its address.</p>
+ *
+ **/
+public class RxCircuitBreaker {
+
+  /** Failure code for requests rejected by an open circuit (distinct from {@link RxEventBus#OVERFLOW_FAILURE_CODE}) */
+  public static final int CIRCUIT_OPEN_FAILURE_CODE=529;
+
+  // Definitions
+
+  /** Circuit state */
+  public enum State {
+    /** Sending */
+    CLOSED,
+    /** Failing fast */
+    OPEN,
+    /** Sending a probe */
+    HALF_OPEN
+  }
+
+  /** Per-address statistics */
+  protected class Circuit {
+
+    /** Reply latencies */
+    final LatencyTracker latency=new LatencyTracker(samples);
+
+    /** Outcomes per window */
+    private final int window=RxCircuitBreaker.this.window;
+
+    /** Outcomes required before opening */
+    private final int minRequests=RxCircuitBreaker.this.minRequests;
+
+    /** Failure rate that opens the circuit */
+    private final double failureRate=RxCircuitBreaker.this.failureRate;
+
+    /** Time to stay open before probing */
+    private final long openMillis=RxCircuitBreaker.this.openMillis;
+
+    /** Recent outcomes (true for failure) */
+    private final boolean[] outcomes=new boolean[this.window];
+
+    /** Outcomes recorded (up to window) */
+    private int count;
+
+    /** Next outcome slot */
+    private int next;
+
+    /** Failures in outcomes */
+    private int failures;
+
+    /** State */
+    private State state=State.CLOSED;
+
+    /** Time the circuit opened */
+    private long openedAt;
+
+    /** Probe outstanding */
+    private boolean probing;
+
+    /** Return true if a request may be sent (marking it as the probe if half-open) */
+    @SuppressWarnings("fallthrough")
+    synchronized boolean allow() {
+      switch(this.state) {
+        case CLOSED:
+          return true;
+        case OPEN:
+          if (System.nanoTime()-this.openedAt<TimeUnit.MILLISECONDS.toNanos(this.openMillis))
+            return false;
+          this.state=State.HALF_OPEN;
+          this.probing=false;
+          // Fall through to send the probe
+        default:
+          if (this.probing)
+            return false;
+          this.probing=true;
+          return true;
+      }
+    }
+
+    /** Record reply */
+    synchronized void success(long millis) {
+      this.latency.record(millis);
+      if (this.state==State.HALF_OPEN) {
+        reset();
+        return;
+      }
+      outcome(false);
+    }
+
+    /** Record failure */
+    synchronized void failure() {
+      if (this.state==State.HALF_OPEN) {
+        open();
+        return;
+      }
+      outcome(true);
+      if ((this.count>=this.minRequests) && (this.failures>=this.failureRate*this.count))
+        open();
+    }
+
+    /** Request cancelled before a reply */
+    synchronized void cancelled() {
+      if (this.state==State.HALF_OPEN)
+        this.probing=false;
+    }
+
+    /** Return state */
+    synchronized State state() {
+      return this.state;
+    }
+
+    /** Return timeout for the next request */
+    long timeout() {
+      if (this.latency.size()<minSamples)
+        return eventBus.defaultTimeout;
+      long t=(long)(this.latency.percentile(percentile)*multiplier);
+      return Math.max(minTimeout,Math.min(t,eventBus.defaultTimeout));
+    }
+
+    /** Add outcome to the window */
+    private void outcome(boolean failed) {
+      if (this.count==this.window) {
+        if (this.outcomes[this.next])
+          this.failures--;
+      }
+      else {
+        this.count++;
+      }
+      this.outcomes[this.next]=failed;
+      if (failed)
+        this.failures++;
+      this.next=(this.next+1)%this.window;
+    }
+
+    /** Open the circuit */
+    private void open() {
+      this.state=State.OPEN;
+      this.openedAt=System.nanoTime();
+      this.probing=false;
+    }
+
+    /** Close the circuit, forgetting previous outcomes */
+    private void reset() {
+      this.state=State.CLOSED;
+      this.count=this.next=this.failures=0;
+      this.probing=false;
+    }
+  }
+
+  // Instance variables
+
+  /** EventBus */
+  protected final RxEventBus eventBus;
+
+  /** Circuits by address */
+  private final ConcurrentMap<String,Circuit> circuits=new ConcurrentHashMap<>();
+
+  /** Latency samples per address */
+  private int samples=LatencyTracker.DEFAULT_SIZE;
+
+  /** Replies required before adapting the timeout */
+  private int minSamples=20;
+
+  /** Timeout percentile */
+  private double percentile=99;
+
+  /** Timeout multiplier */
+  private double multiplier=2;
+
+  /** Lower bound on the adaptive timeout */
+  private long minTimeout=100;
+
+  /** Outcomes per window */
+  private int window=20;
+
+  /** Outcomes required before opening */
+  private int minRequests=10;
+
+  /** Failure rate that opens the circuit */
+  private double failureRate=0.5;
+
+  /** Time to stay open before probing */
+  private long openMillis=5000;
+
+  // Public
+
+  /** Create new RxCircuitBreaker */
+  public RxCircuitBreaker(RxEventBus eventBus) {
+    this.eventBus=eventBus;
+  }
+
+  /** Set the adaptive timeout (percentile of the last samples replies, times multiplier, at least minTimeout) */
+  public RxCircuitBreaker timeout(int samples, int minSamples, double percentile, double multiplier, long minTimeout) {
+    if ((minSamples<1) || (minSamples>samples))
+      throw new IllegalArgumentException("minSamples must be in [1,samples] (minSamples="+minSamples+",samples="+samples+")");
+    if ((percentile<=0) || (percentile>100))
+      throw new IllegalArgumentException("percentile must be in (0,100] (percentile="+percentile+")");
+    this.samples=samples;
+    this.minSamples=minSamples;
+    this.percentile=percentile;
+    this.multiplier=multiplier;
+    this.minTimeout=minTimeout;
+    return this;
+  }
+
+  /** Set when the circuit opens (failureRate of the last window requests, once minRequests are seen) and how long it stays open */
+  public RxCircuitBreaker circuit(int window, int minRequests, double failureRate, long openMillis) {
+    if ((minRequests<1) || (minRequests>window))
+      throw new IllegalArgumentException("minRequests must be in [1,window] (minRequests="+minRequests+",window="+window+")");
+    if ((failureRate<=0) || (failureRate>1))
+      throw new IllegalArgumentException("failureRate must be in (0,1] (failureRate="+failureRate+")");
+    this.window=window;
+    this.minRequests=minRequests;
+    this.failureRate=failureRate;
+    this.openMillis=openMillis;
+    return this;
+  }
+
+  /** Return the circuit state for address */
+  public State state(String address) {
+    Circuit c=this.circuits.get(address);
+    return (c!=null)?c.state():State.CLOSED;
+  }
+
+  /** Return the timeout the next request to address would use */
+  public long timeout(String address) {
+    return circuit(address).timeout();
+  }
+
+  /** Return the latency percentile for address (or -1 if no replies yet) */
+  public long latency(String address, double percentile) {
+    Circuit c=this.circuits.get(address);
+    return (c!=null)?c.latency.percentile(percentile):-1;
+  }
+
+  /** Create an Observable that sends the message on subscribe, unless the circuit is open */
+  public <S,R> Observable<RxMessage<R>> observeSend(final String address, final S msg) {
+    return Observable.create(new Observable.OnSubscribe<RxMessage<R>>() {
+      public void call(final Subscriber<? super RxMessage<R>> subscriber) {
+        final Circuit c=circuit(address);
+        if (!c.allow()) {
+          subscriber.onError(new ReplyException(ReplyFailure.RECIPIENT_FAILURE,CIRCUIT_OPEN_FAILURE_CODE,"Circuit open (address="+address+")"));
+          return;
+        }
+
+        final long start=System.nanoTime();
+        final AtomicBoolean finished=new AtomicBoolean();
+
+        subscriber.add(Subscriptions.create(new Action0() {
+          public void call() {
+            if (finished.compareAndSet(false,true))
+              c.cancelled();
+          }
+        }));
+
+        eventBus.<S,R>observeSendWithTimeout(address,msg,c.timeout()).unsafeSubscribe(new Subscriber<RxMessage<R>>(subscriber) {
+          public void onNext(RxMessage<R> reply) {
+            if (finished.compareAndSet(false,true))
+              c.success(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start));
+            subscriber.onNext(reply);
+          }
+          public void onError(Throwable e) {
+            if (finished.compareAndSet(false,true))
+              c.failure();
+            subscriber.onError(e);
+          }
+          public void onCompleted() {
+            subscriber.onCompleted();
+          }
+        });
+      }
+    });
+  }
+
+  // Implementation
+
+  /** Return circuit for address */
+  protected Circuit circuit(String address) {
+    Circuit c=this.circuits.get(address);
+    if (c==null) {
+      Circuit n=new Circuit();
+      c=this.circuits.putIfAbsent(address,n);
+      if (c==null)
+        c=n;
+    }
+    return c;
+  }
+}
@@ -0,0 +1,69 @@
+package io.vertx.rxcore.java.eventbus;
+
+import io.vertx.rxcore.java.impl.BinaryJsonCodec;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+/** JsonObject or JsonArray encoded once for sending to many addresses
+ *
+ * <p>The body is encoded as binary JSON when created, and RxEventBus send and publish methods pass the
+ * same bytes for every address instead of encoding the body each time. Receivers must enable binary JSON
+ * (see {@link RxEventBus#enableBinaryJson}) to see the JsonObject or JsonArray rather than a Buffer.
+ * {@link #text} returns the JSON text (encoded once on first use), e.g. for WebSocket text frames.</p>
+ *
+ * <p>The body must not be modified after creating the message.</p>
+ *
+ **/
+public class RxEncodedMessage {
+
+  // Instance variables
+
+  /** Body */
+  private final Object body;
+
+  /** Encoded body */
+  private final Buffer buffer;
+
+  /** JSON text (or null if not encoded yet) */
+  private volatile String text;
+
+  // Public
+
+  /** Create new RxEncodedMessage */
+  public RxEncodedMessage(JsonObject body) {
+    this.body=body;
+    this.buffer=BinaryJsonCodec.encode(body);
+  }
+
+  /** Create new RxEncodedMessage */
+  public RxEncodedMessage(JsonArray body) {
+    this.body=body;
+    this.buffer=BinaryJsonCodec.encode(body);
+  }
+
+  /** Return binary JSON (shared; must not be modified) */
+  public Buffer buffer() {
+    return this.buffer;
+  }
+
+  /** Return encoded length */
+  public int length() {
+    return this.buffer.length();
+  }
+
+  /** Return JSON text */
+  public String text() {
+    String t=this.text;
+    if (t==null) {
+      t=(this.body instanceof JsonObject)?((JsonObject)this.body).encode():((JsonArray)this.body).encode();
+      this.text=t;
+    }
+    return t;
+  }
+
+  /** Return string representation */
+  public String toString() {
+    return "RxEncodedMessage[length="+length()+"]";
+  }
+}
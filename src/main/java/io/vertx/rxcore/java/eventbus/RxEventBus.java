@@ -1,14 +1,31 @@
 package io.vertx.rxcore.java.eventbus;
 
+import io.vertx.rxcore.java.impl.BinaryJsonCodec;
+import io.vertx.rxcore.java.impl.BoundedHandler;
+import io.vertx.rxcore.java.impl.CreditStreamHandler;
 import io.vertx.rxcore.java.impl.HandlerSubscription;
 import io.vertx.rxcore.java.impl.MemoizeHandler;
+import io.vertx.rxcore.java.impl.MulticastHandler;
 import io.vertx.rxcore.java.impl.SingleSubscriptionHandler;
+import io.vertx.rxcore.java.impl.WindowedMerge;
 import org.vertx.java.core.AsyncResult;
 import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.eventbus.EventBus;
 import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
 import rx.Observable;
 import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Func1;
+import rx.subscriptions.CompositeSubscription;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /*
  * Copyright 2013 Red Hat, Inc.
@@ -32,6 +49,9 @@ public class RxEventBus {
   /** Default timeout used for all observe* operations */
   public final static int DEFAULT_TIMEOUT=60*1000;
 
+  /** Failure code for messages rejected by a full handler buffer */
+  public final static int OVERFLOW_FAILURE_CODE=503;
+
   // Customer handlers
   
   /** Standard SendHandler */
@@ -85,13 +105,67 @@ public class RxEventBus {
   }
 
   /** Receive handler */
-  protected class ReceiveHandler<R> extends SingleSubscriptionHandler<RxMessage<R>,Message> {
-    @Override public void handle(Message m) {
-      fireNext(new RxMessageImpl(m));
+  protected class ReceiveHandler<R> extends SingleSubscriptionHandler<RxMessage<R>,Message<R>> {
+    @Override public void handle(Message<R> m) {
+      fireNext(new RxMessageImpl<R>(m));
+    }
+  }
+
+  /** Receive handler with bounded buffer */
+  protected class BoundedReceiveHandler<R> extends BoundedHandler<RxMessage<R>,Message<R>> {
+
+    /** Create new BoundedReceiveHandler */
+    public BoundedReceiveHandler(int bufferSize, BoundedHandler.Overflow overflow, BoundedHandler.Counters counters) {
+      super(bufferSize,overflow,counters);
+    }
+
+    /** Wrap message */
+    @Override public RxMessage<R> wrap(Message<R> m) {
+      return new RxMessageImpl<R>(m);
+    }
+
+    /** Fail rejected message */
+    @Override protected void reject(Message<R> m) {
+      m.fail(OVERFLOW_FAILURE_CODE,"Handler buffer full");
+    }
+  }
+
+  /** Shared receive handler */
+  protected class SharedReceiveHandler<R> extends MulticastHandler<RxMessage<R>,Message<R>> {
+
+    /** Address */
+    private final String address;
+
+    /** Local only */
+    private final boolean local;
+
+    /** Handler registered */
+    private Handler<Message<R>> registered;
+
+    /** Create new SharedReceiveHandler */
+    public SharedReceiveHandler(String address, boolean local) {
+      this.address=address;
+      this.local=local;
+    }
+
+    /** Register once for all subscribers */
+    @Override public void execute() {
+      this.registered=register(this.address,this,this.local);
+    }
+
+    /** Unregister after the last subscriber */
+    @Override public void onUnsubscribed() {
+      sharedHandlers(this.local).remove(this.address,this);
+      unregister(this.address,this,this.registered);
+    }
+
+    /** Wrap message */
+    @Override public RxMessage<R> wrap(Message<R> m) {
+      return new RxMessageImpl<R>(m);
     }
   }
 
-  /** RxMessage implementation with inherited timeouts */
+  /** RxMessage implementation with inherited timeouts and codec */
   protected class RxMessageImpl<R> extends RxMessage<R>
   {
     /** Create new RxMessageImpl */
@@ -104,7 +178,7 @@ public class RxEventBus {
     {
       return Observable.create(new AsyncSendHandler<T>() {
         @Override public void execute() {
-          coreMessage.replyWithTimeout(msg,defaultTimeout,this);
+          coreMessage.replyWithTimeout(encode(msg),defaultTimeout,metered(RxEventBusMetrics.REPLY_ADDRESS,this));
         }
       });
     }
@@ -113,11 +187,80 @@ public class RxEventBus {
     public <R,T> Observable<RxMessage<T>> observeReplyWithTimeout(final R msg, final long timeout) {
       return Observable.create(new AsyncSendHandler<T>() {
         @Override public void execute() {
-          coreMessage.replyWithTimeout(msg,timeout,this);
+          coreMessage.replyWithTimeout(encode(msg),timeout,metered(RxEventBusMetrics.REPLY_ADDRESS,this));
         }
       });
     }
 
+    /** Reply with a stream of values */
+    public <R> Subscription reply(Observable<R> values) {
+      return RxStreamProducer.reply(eventBus,coreMessage,values,defaultTimeout,idleVertx,streamIdleTimeout);
+    }
+
+    /** Decode binary JSON (if enabled) */
+    @Override protected Object decode(Object body) {
+      return RxEventBus.this.decode(body);
+    }
+
+    /** Encode as binary JSON (if enabled) */
+    @Override protected Object encode(Object msg) {
+      return RxEventBus.this.encode(msg);
+    }
+
+  }
+
+  /** Value of a streamed reply */
+  protected class StreamValueMessage<R> extends RxMessageImpl<R> {
+
+    /** Create new StreamValueMessage */
+    @SuppressWarnings("unchecked")
+    public StreamValueMessage(Message<JsonObject> m) {
+      super((Message<R>)(Message<?>)m);
+    }
+
+    /** Return the value carried by the data message */
+    @Override protected Object decode(Object body) {
+      return ((JsonObject)body).getValue(CreditStreamHandler.BODY);
+    }
+  }
+
+  /** Handler for a streamed reply (or a single reply) */
+  protected class ReplyStreamHandler<R> extends CreditStreamHandler<RxMessage<R>> {
+
+    /** Create new ReplyStreamHandler */
+    public ReplyStreamHandler(String address, Object msg, int credits) {
+      super(RxEventBus.this.eventBus,address,msg,credits,defaultTimeout,idleVertx,streamIdleTimeout);
+    }
+
+    /** Send the request, then ask for the stream if the reply is a stream */
+    @Override public void execute() {
+      eventBus.sendWithTimeout(address,encode(msg),timeout,metered(address,new Handler<AsyncResult<Message<Object>>>() {
+        @SuppressWarnings("unchecked")
+        public void handle(AsyncResult<Message<Object>> res) {
+          if (res.failed()) {
+            fail(res.cause());
+            return;
+          }
+          Message<Object> m=res.result();
+          // The announcement is never binary encoded, so there is nothing to decode
+          Object body=m.body();
+          if (!isReplyStream(body)) {
+            single(new RxMessageImpl<R>((Message<R>)(Message<?>)m));
+            return;
+          }
+          // Let the producer time out if no longer wanted
+          if (getSubscriber()==null)
+            return;
+          m.reply(new JsonObject().putString(STREAM,register()).putNumber(CREDITS,credits));
+          start(((JsonObject)body).getString(CONTROL));
+        }
+      }));
+    }
+
+    /** Wrap value */
+    @Override protected RxMessage<R> value(Message<JsonObject> m) {
+      return new StreamValueMessage<R>(m);
+    }
   }
 
   // Instance variables
@@ -128,6 +271,24 @@ public class RxEventBus {
   /** Default timeout */
   protected final int defaultTimeout;
 
+  /** Shared handlers by address */
+  private final ConcurrentMap<String,SharedReceiveHandler<?>> sharedHandlers=new ConcurrentHashMap<>();
+
+  /** Shared local handlers by address */
+  private final ConcurrentMap<String,SharedReceiveHandler<?>> sharedLocalHandlers=new ConcurrentHashMap<>();
+
+  /** Metrics (or null if disabled) */
+  private volatile RxEventBusMetrics metrics;
+
+  /** Send JsonObject and JsonArray bodies as binary JSON */
+  private volatile boolean binaryJson;
+
+  /** Vertx for stream idle timers (or null if disabled) */
+  private volatile Vertx idleVertx;
+
+  /** Stream idle timeout */
+  private volatile long streamIdleTimeout;
+
   // Public
 
   /** Create new RxEventBus */
@@ -146,6 +307,46 @@ public class RxEventBus {
     return this.eventBus;
   }
 
+  /** Record metrics for operations started from now on (returns the existing metrics if already enabled) */
+  public synchronized RxEventBusMetrics enableMetrics() {
+    if (this.metrics==null)
+      this.metrics=new RxEventBusMetrics();
+    return this.metrics;
+  }
+
+  /** Return metrics (or null if not enabled) */
+  public RxEventBusMetrics metrics() {
+    return this.metrics;
+  }
+
+  /** Send JsonObject and JsonArray bodies in compact binary form from now on
+   *
+   * <p>Bodies are carried as a Buffer and decoded when {@link RxMessage#body} is first called, so
+   * handlers that only route or count messages never decode them. Every RxEventBus that receives the
+   * messages must also enable binary JSON; messages received directly from the core EventBus are not
+   * decoded.</p>
+   *
+   **/
+  public RxEventBus enableBinaryJson() {
+    this.binaryJson=true;
+    return this;
+  }
+
+  /** Stop credit-based streams started from now on that stall for idleTimeout msec
+   *
+   * <p>A consumer fails with a TIMEOUT ReplyException (and cancels the producer) if no value arrives
+   * while it is waiting for one. A producer unsubscribes from its values if the consumer grants no more
+   * credits once they are used up. Both sides must enable the timeout to be protected.</p>
+   *
+   **/
+  public synchronized RxEventBus enableStreamIdleTimeout(Vertx vertx, long idleTimeout) {
+    if (idleTimeout<1)
+      throw new IllegalArgumentException("idleTimeout must be positive (idleTimeout="+idleTimeout+")");
+    this.streamIdleTimeout=idleTimeout;
+    this.idleVertx=vertx;
+    return this;
+  }
+
   /** Close */
   public Observable<Void> close()
   {
@@ -156,20 +357,41 @@ public class RxEventBus {
 
   /** Publish */
   public <S> void publish(final String address, final S msg) {
-    this.eventBus.publish(address,msg);
+    RxEventBusMetrics m=this.metrics;
+    if (m!=null)
+      m.metrics(address).published.incrementAndGet();
+    this.eventBus.publish(address,encode(msg));
+  }
+
+  /** Publish to each address
+   *
+   * <p>The message is encoded once for all addresses if it is an {@link RxEncodedMessage}, or a JsonObject or
+   * JsonArray with binary JSON enabled (see {@link #enableBinaryJson}). Otherwise it is passed as-is and the
+   * event bus serialises it for each address.</p>
+   *
+   **/
+  public <S> void publish(final Iterable<String> addresses, final S msg) {
+    RxEventBusMetrics m=this.metrics;
+    Object body=encode(msg);
+    for (String address : addresses) {
+      if (m!=null)
+        m.metrics(address).published.incrementAndGet();
+      this.eventBus.publish(address,body);
+    }
   }
 
   /** Send a message */
   public <S,R> Observable<RxMessage<R>> send(final String address, final S msg) {
     SendHandler<R> h=new SendHandler<R>();
-    this.eventBus.send(address,msg,(Handler)h);
+    RxEventBusMetrics m=this.metrics;
+    this.eventBus.send(address,encode(msg),(m==null)?(Handler)h:m.send(address,h));
     return Observable.create(h.subscribe);
   }
   
   /** Send a message with timeout */
   public <S,R> Observable<RxMessage<R>> sendWithTimeout(final String address, final S msg, final long timeout) {
     AsyncSendHandler<R> h=new AsyncSendHandler<R>();
-    this.eventBus.sendWithTimeout(address,msg,timeout,h);
+    this.eventBus.sendWithTimeout(address,encode(msg),timeout,metered(address,h));
     return Observable.create(h); 
   }
 
@@ -177,9 +399,10 @@ public class RxEventBus {
   public <S,R> Observable<RxMessage<R>> observeSend(final String address, final S msg) {
     return Observable.create(new Observable.OnSubscribe<RxMessage<R>>() {
       /** Send message for each subscription */
+      @SuppressWarnings("unchecked")
       public void call(Subscriber<? super RxMessage<R>> subscriber) {
-        AsyncSendSubscription hs=new AsyncSendSubscription(subscriber);
-        eventBus.sendWithTimeout(address, (Object)msg, defaultTimeout, (Handler)hs);
+        AsyncSendSubscription<R> hs=new AsyncSendSubscription<R>((Subscriber<RxMessage<R>>)subscriber);
+        eventBus.sendWithTimeout(address, encode(msg), defaultTimeout, metered(address,hs));
         subscriber.add(hs);
       }
     });
@@ -189,22 +412,91 @@ public class RxEventBus {
   public <S,R> Observable<RxMessage<R>> observeSendWithTimeout(final String address, final S msg, final long timeout) {
     return Observable.create(new Observable.OnSubscribe<RxMessage<R>>() {
       /** Send message for each subscription */
+      @SuppressWarnings("unchecked")
       public void call(Subscriber<? super RxMessage<R>> subscriber) {
-        AsyncSendSubscription hs=new AsyncSendSubscription(subscriber);
-        eventBus.sendWithTimeout(address, (Object)msg, timeout, hs);
+        AsyncSendSubscription<R> hs=new AsyncSendSubscription<R>((Subscriber<RxMessage<R>>)subscriber);
+        eventBus.sendWithTimeout(address, encode(msg), timeout, metered(address,hs));
         subscriber.add(hs);
       }
     });
   }
 
+  /** Create an Observable that sends the message to every address on subscribe and emits the replies gathered
+   *
+   * <p>Gathering finishes as soon as <code>k</code> replies have arrived, when the quorum can no longer be
+   * reached, or after <code>timeout</code>, whichever is first. The result reports the replies, the failures
+   * and the addresses that timed out. Replies arriving later are ignored (Vert.x releases their reply
+   * handlers on timeout).</p>
+   *
+   **/
+  public <S,R> Observable<RxGatherResult<R>> scatterGather(final List<String> addresses, final S msg, final int k, final long timeout) {
+    if ((k<1) || (k>addresses.size()))
+      throw new IllegalArgumentException("k must be in [1,addresses] (k="+k+",addresses="+addresses.size()+")");
+    if (new HashSet<>(addresses).size()!=addresses.size())
+      throw new IllegalArgumentException("Duplicate address (addresses="+addresses+")");
+
+    return Observable.create(new Observable.OnSubscribe<RxGatherResult<R>>() {
+      public void call(final Subscriber<? super RxGatherResult<R>> subscriber) {
+        final RxGatherResult<R> res=new RxGatherResult<>(addresses,k);
+        final CompositeSubscription requests=new CompositeSubscription();
+        subscriber.add(requests);
+
+        for (final String address : addresses) {
+          Subscriber<RxMessage<R>> request=new Subscriber<RxMessage<R>>() {
+            public void onNext(RxMessage<R> reply) {
+              if (res.reply(address,reply))
+                finish();
+            }
+            public void onError(Throwable e) {
+              if (res.failure(address,e))
+                finish();
+            }
+            public void onCompleted() {
+            }
+            private void finish() {
+              requests.unsubscribe();
+              subscriber.onNext(res);
+              subscriber.onCompleted();
+            }
+          };
+          requests.add(request);
+          RxEventBus.this.<S,R>observeSendWithTimeout(address,msg,timeout).unsafeSubscribe(request);
+          // Finished already (quorum of synchronous replies)
+          if (requests.isUnsubscribed())
+            return;
+        }
+      }
+    });
+  }
+
+  /** Send each message with at most maxInFlight awaiting a reply, emitting replies in message order */
+  public <S,R> Observable<RxMessage<R>> pipeline(final String address, Observable<S> msgs, int maxInFlight) {
+    return pipeline(address,msgs,maxInFlight,true);
+  }
+
+  /** Send each message with at most maxInFlight awaiting a reply (or awaiting demand)
+   *
+   * <p>Each message is sent with the default timeout. Replies are emitted in message order, or as they
+   * arrive if <code>ordered</code> is false. A failed or timed out reply fails the stream.</p>
+   *
+   **/
+  public <S,R> Observable<RxMessage<R>> pipeline(final String address, Observable<S> msgs, int maxInFlight, boolean ordered) {
+    return msgs.lift(new WindowedMerge<S,RxMessage<R>>(new Func1<S,Observable<RxMessage<R>>>() {
+      public Observable<RxMessage<R>> call(S msg) {
+        return observeSend(address,msg);
+      }
+    },maxInFlight,ordered));
+  }
+
   /** Register a handler */
   public <T> Observable<RxMessage<T>> registerLocalHandler(final String address) {
     return Observable.create(new ReceiveHandler<T>() {
+      private Handler<Message<T>> registered;
       @Override public void execute() {
-        eventBus.registerLocalHandler(address,this);
+        registered=register(address,this,true);
       }
       @Override public void onUnsubscribed() {
-        eventBus.unregisterHandler(address,this);
+        unregister(address,this,registered);
       }
     });
   }
@@ -212,24 +504,130 @@ public class RxEventBus {
   /** Register a handler */
   public <T> Observable<RxMessage<T>> registerHandler(final String address) {
     return Observable.create(new ReceiveHandler<T>() {
+      private Handler<Message<T>> registered;
+      @Override public void execute() {
+        registered=register(address,this,false);
+      }
+      @Override public void onUnsubscribed() {
+        unregister(address,this,registered);
+      }
+    });
+  }
+
+  /** Register a handler that buffers at most bufferSize messages awaiting demand */
+  public <T> Observable<RxMessage<T>> registerHandler(final String address, int bufferSize, BoundedHandler.Overflow overflow) {
+    return registerHandler(address,bufferSize,overflow,null);
+  }
+
+  /** Register a handler that buffers at most bufferSize messages awaiting demand
+   *
+   * <p>Once the buffer is full the overflow strategy either fails the new message with
+   * OVERFLOW_FAILURE_CODE or drops a message. Failed and dropped messages are added to counters (if
+   * not null).</p>
+   *
+   **/
+  public <T> Observable<RxMessage<T>> registerHandler(final String address, int bufferSize, BoundedHandler.Overflow overflow, BoundedHandler.Counters counters) {
+    return Observable.create(new BoundedReceiveHandler<T>(bufferSize,overflow,counters) {
+      private Handler<Message<T>> registered;
+      @Override public void execute() {
+        registered=register(address,this,false);
+      }
+      @Override public void onUnsubscribed() {
+        unregister(address,this,registered);
+        super.onUnsubscribed();
+      }
+    });
+  }
+
+  /** Register a local handler that buffers at most bufferSize messages awaiting demand */
+  public <T> Observable<RxMessage<T>> registerLocalHandler(final String address, int bufferSize, BoundedHandler.Overflow overflow) {
+    return registerLocalHandler(address,bufferSize,overflow,null);
+  }
+
+  /** Register a local handler that buffers at most bufferSize messages awaiting demand (see {@link #registerHandler(String,int,BoundedHandler.Overflow,BoundedHandler.Counters)}) */
+  public <T> Observable<RxMessage<T>> registerLocalHandler(final String address, int bufferSize, BoundedHandler.Overflow overflow, BoundedHandler.Counters counters) {
+    return Observable.create(new BoundedReceiveHandler<T>(bufferSize,overflow,counters) {
+      private Handler<Message<T>> registered;
       @Override public void execute() {
-        eventBus.registerHandler(address,this);
+        registered=register(address,this,true);
       }
       @Override public void onUnsubscribed() {
-        eventBus.unregisterHandler(address,this);
+        unregister(address,this,registered);
+        super.onUnsubscribed();
       }
     });
   }
 
+  /** Create an Observable that requests a credit-based stream of values
+   *
+   * <p>The producer (see {@link #registerStreamHandler}) may send up to <code>credits</code> values without
+   * waiting for the consumer, and is granted more as the values are consumed. The request must be
+   * answered within the default timeout.</p>
+   *
+   **/
+  public <S,R> Observable<R> observeWindowedStream(final String address, final S msg, final int credits) {
+    return Observable.create(new CreditStreamHandler<R>(this.eventBus,address,msg,credits,this.defaultTimeout,this.idleVertx,this.streamIdleTimeout));
+  }
+
+  /** Create an Observable that sends the message on subscribe and emits each reply
+   *
+   * <p>A handler that answers with {@link RxMessage#reply(Observable)} streams its values as separate
+   * messages, sending up to <code>credits</code> ahead of consumption; each is emitted as an RxMessage
+   * whose body is the value. A handler that answers with a single reply produces a single RxMessage. The
+   * first reply must arrive within the default timeout.</p>
+   *
+   * <p>A streamed reply is announced by a JsonObject holding only the reserved field
+   * {@link CreditStreamHandler#REPLY_STREAM} set to {@link CreditStreamHandler#REPLY_STREAM_MARKER} and the
+   * control address; any other reply, including one that merely uses the reserved field name, is
+   * delivered as a single RxMessage.</p>
+   *
+   **/
+  public <S,R> Observable<RxMessage<R>> observeSendStream(final String address, final S msg, final int credits) {
+    return Observable.create(new ReplyStreamHandler<R>(address,msg,credits));
+  }
+
+  /** Register a handler for credit-based stream requests */
+  public <S,R> Observable<RxStreamProducer<S,R>> registerStreamHandler(final String address) {
+    return this.<JsonObject>registerHandler(address)
+      .map(new Func1<RxMessage<JsonObject>,RxStreamProducer<S,R>>() {
+        public RxStreamProducer<S,R> call(RxMessage<JsonObject> msg) {
+          return new RxStreamProducer<>(eventBus,msg,idleVertx,streamIdleTimeout);
+        }
+      });
+  }
+
+  /** Register a handler shared by every subscriber to the address
+   *
+   * <p>The address is registered when the first subscriber arrives and unregistered when the last one
+   * leaves. Each message is delivered to every current subscriber; subscribers must not rely on
+   * backpressure.</p>
+   *
+   **/
+  public <T> Observable<RxMessage<T>> registerSharedHandler(final String address) {
+    return observeShared(address,false);
+  }
+
+  /** Register a local handler shared by every subscriber to the address */
+  public <T> Observable<RxMessage<T>> registerSharedLocalHandler(final String address) {
+    return observeShared(address,true);
+  }
+
   /** Create an Observable that requests multiple messages in a sequence */
   public <S,R> Observable<RxStream<S,R>> observeStream(final String address, final S msg) {
 
-    final RxStream<S,R> s=new RxStream<S,R>();
+    final RxStream<S,R> s=new RxStream<S,R>() {
+      @Override protected Object decode(Object body) {
+        return RxEventBus.this.decode(body);
+      }
+      @Override protected Object encode(Object value) {
+        return RxEventBus.this.encode(value);
+      }
+    };
 
     return Observable.create(new SingleSubscriptionHandler<RxStream<S,R>,Message<R>>() {
       @Override public void execute() {
         s.callback=this;
-        eventBus.send(address,msg,(Handler)this);
+        eventBus.send(address,encode(msg),(Handler)this);
       }
       @Override public void handle(Message<R> msg) {
         // Change the current message and re-fire
@@ -242,4 +640,85 @@ public class RxEventBus {
       }
     });
   }
+
+  // Implementation
+
+  /** Encode JsonObject or JsonArray as binary JSON (if enabled), or return the bytes of an RxEncodedMessage */
+  protected Object encode(Object msg) {
+    if (msg instanceof RxEncodedMessage)
+      return ((RxEncodedMessage)msg).buffer();
+    if (this.binaryJson) {
+      if (msg instanceof JsonObject)
+        return BinaryJsonCodec.encode((JsonObject)msg);
+      if (msg instanceof JsonArray)
+        return BinaryJsonCodec.encode((JsonArray)msg);
+    }
+    return msg;
+  }
+
+  /** Decode binary JSON (if enabled) */
+  protected Object decode(Object body) {
+    if (this.binaryJson && (body instanceof Buffer) && BinaryJsonCodec.isEncoded((Buffer)body))
+      return BinaryJsonCodec.decode((Buffer)body);
+    return body;
+  }
+
+  /** Wrap reply handler to record metrics (if enabled) */
+  protected <T> Handler<AsyncResult<Message<T>>> metered(String address, Handler<AsyncResult<Message<T>>> h) {
+    RxEventBusMetrics m=this.metrics;
+    return (m==null)?h:m.request(address,h);
+  }
+
+  /** Register handler, recording metrics (if enabled), and return the handler registered */
+  protected <T> Handler<Message<T>> register(String address, Handler<Message<T>> h, boolean local) {
+    RxEventBusMetrics m=this.metrics;
+    Handler<Message<T>> reg=h;
+    if (m!=null) {
+      m.metrics(address).activeHandlers.incrementAndGet();
+      reg=m.handler(address,h);
+    }
+    if (local)
+      this.eventBus.registerLocalHandler(address,reg);
+    else
+      this.eventBus.registerHandler(address,reg);
+    return reg;
+  }
+
+  /** Unregister handler returned by register() */
+  protected <T> void unregister(String address, Handler<Message<T>> h, Handler<Message<T>> registered) {
+    if (registered==null)
+      return;
+    this.eventBus.unregisterHandler(address,registered);
+    if (registered!=h)
+      this.metrics.metrics(address).activeHandlers.decrementAndGet();
+  }
+
+  /** Return shared handlers */
+  private ConcurrentMap<String,SharedReceiveHandler<?>> sharedHandlers(boolean local) {
+    return local?this.sharedLocalHandlers:this.sharedHandlers;
+  }
+
+  /** Subscribe to the shared handler for address, replacing it if terminated */
+  private <T> Observable<RxMessage<T>> observeShared(final String address, final boolean local) {
+    return Observable.create(new Observable.OnSubscribe<RxMessage<T>>() {
+      @SuppressWarnings("unchecked")
+      public void call(Subscriber<? super RxMessage<T>> subscriber) {
+        ConcurrentMap<String,SharedReceiveHandler<?>> handlers=sharedHandlers(local);
+        for (;;) {
+          // Handlers are shared by address so the body type is the caller's assertion
+          SharedReceiveHandler<T> h=(SharedReceiveHandler<T>)handlers.get(address);
+          if (h==null) {
+            h=new SharedReceiveHandler<>(address,local);
+            SharedReceiveHandler<T> cur=(SharedReceiveHandler<T>)handlers.putIfAbsent(address,h);
+            if (cur!=null)
+              h=cur;
+          }
+          if (h.add(subscriber))
+            return;
+          // Terminated before we could join
+          handlers.remove(address,h);
+        }
+      }
+    });
+  }
 }
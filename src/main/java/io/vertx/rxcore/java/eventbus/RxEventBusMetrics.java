@@ -0,0 +1,251 @@
+package io.vertx.rxcore.java.eventbus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.rxcore.java.impl.Histogram;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.eventbus.EventBus;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.eventbus.ReplyException;
+import org.vertx.java.core.eventbus.ReplyFailure;
+import org.vertx.java.core.json.JsonObject;
+
+/** Per-address metrics for an RxEventBus (see {@link RxEventBus#enableMetrics})
+ *
+ * <p>Records messages sent and published, reply latency, failures and timeouts for requests, and messages
+ * received, active subscriptions and processing time for handlers. Replies sent with
+ * {@link RxMessage#observeReply} are recorded under REPLY_ADDRESS. At most <code>maxAddresses</code>
+ * addresses are tracked separately; the rest are recorded under OTHER_ADDRESS.</p>
+ *
+ **/
+public class RxEventBusMetrics {
+
+  /** Default number of addresses tracked */
+  public static final int DEFAULT_MAX_ADDRESSES=1024;
+
+  /** Address for replies to replies */
+  public static final String REPLY_ADDRESS="<reply>";
+
+  /** Address for untracked addresses */
+  public static final String OTHER_ADDRESS="<other>";
+
+  // Definitions
+
+  /** Metrics for an address */
+  public static class AddressMetrics {
+
+    /** Messages sent */
+    final AtomicLong sent=new AtomicLong();
+
+    /** Messages published */
+    final AtomicLong published=new AtomicLong();
+
+    /** Replies received */
+    final AtomicLong replies=new AtomicLong();
+
+    /** Requests failed (including timeouts) */
+    final AtomicLong failures=new AtomicLong();
+
+    /** Requests timed out */
+    final AtomicLong timeouts=new AtomicLong();
+
+    /** Messages received by handlers */
+    final AtomicLong received=new AtomicLong();
+
+    /** Active handler subscriptions */
+    final AtomicInteger activeHandlers=new AtomicInteger();
+
+    /** Reply latency */
+    final Histogram latency=new Histogram();
+
+    /** Handler processing time */
+    final Histogram processing=new Histogram();
+
+    /** Return messages sent */
+    public long sent() {
+      return this.sent.get();
+    }
+
+    /** Return messages published */
+    public long published() {
+      return this.published.get();
+    }
+
+    /** Return replies received */
+    public long replies() {
+      return this.replies.get();
+    }
+
+    /** Return requests failed (including timeouts) */
+    public long failures() {
+      return this.failures.get();
+    }
+
+    /** Return requests timed out */
+    public long timeouts() {
+      return this.timeouts.get();
+    }
+
+    /** Return messages received by handlers */
+    public long received() {
+      return this.received.get();
+    }
+
+    /** Return active handler subscriptions */
+    public int activeHandlers() {
+      return this.activeHandlers.get();
+    }
+
+    /** Return reply latency */
+    public Histogram latency() {
+      return this.latency;
+    }
+
+    /** Return handler processing time */
+    public Histogram processing() {
+      return this.processing;
+    }
+
+    /** Return as JSON */
+    public JsonObject toJson() {
+      return new JsonObject()
+        .putNumber("sent",sent())
+        .putNumber("published",published())
+        .putNumber("replies",replies())
+        .putNumber("failures",failures())
+        .putNumber("timeouts",timeouts())
+        .putNumber("received",received())
+        .putNumber("activeHandlers",activeHandlers())
+        .putObject("latency",this.latency.toJson())
+        .putObject("processing",this.processing.toJson());
+    }
+  }
+
+  // Instance variables
+
+  /** Maximum addresses tracked */
+  private final int maxAddresses;
+
+  /** Metrics by address */
+  private final ConcurrentMap<String,AddressMetrics> addresses=new ConcurrentHashMap<>();
+
+  /** Time created */
+  private final long startTime=System.currentTimeMillis();
+
+  // Public
+
+  /** Create new RxEventBusMetrics */
+  public RxEventBusMetrics() {
+    this(DEFAULT_MAX_ADDRESSES);
+  }
+
+  /** Create new RxEventBusMetrics */
+  public RxEventBusMetrics(int maxAddresses) {
+    if (maxAddresses<1)
+      throw new IllegalArgumentException("maxAddresses must be positive (maxAddresses="+maxAddresses+")");
+    this.maxAddresses=maxAddresses;
+  }
+
+  /** Return metrics for address (or null if nothing recorded) */
+  public AddressMetrics address(String address) {
+    return this.addresses.get(address);
+  }
+
+  /** Return metrics for every address */
+  public Map<String,AddressMetrics> addresses() {
+    return this.addresses;
+  }
+
+  /** Return snapshot as JSON */
+  public JsonObject toJson() {
+    JsonObject res=new JsonObject();
+    for (Map.Entry<String,AddressMetrics> e : this.addresses.entrySet())
+      res.putObject(e.getKey(),e.getValue().toJson());
+    return new JsonObject()
+      .putNumber("since",this.startTime)
+      .putNumber("timestamp",System.currentTimeMillis())
+      .putObject("addresses",res);
+  }
+
+  /** Publish a snapshot to address every periodMillis (returns the Vert.x timer id) */
+  public long publishPeriodically(Vertx vertx, final String address, long periodMillis) {
+    final EventBus eb=vertx.eventBus();
+    return vertx.setPeriodic(periodMillis,new Handler<Long>() {
+      public void handle(Long id) {
+        eb.publish(address,toJson());
+      }
+    });
+  }
+
+  // Implementation
+
+  /** Return metrics for address, creating if required */
+  AddressMetrics metrics(String address) {
+    AddressMetrics m=this.addresses.get(address);
+    if (m!=null)
+      return m;
+    if (this.addresses.size()>=this.maxAddresses)
+      address=OTHER_ADDRESS;
+    m=new AddressMetrics();
+    AddressMetrics cur=this.addresses.putIfAbsent(address,m);
+    return (cur!=null)?cur:m;
+  }
+
+  /** Wrap reply handler to record a request */
+  <T> Handler<AsyncResult<Message<T>>> request(String address, final Handler<AsyncResult<Message<T>>> h) {
+    final AddressMetrics m=metrics(address);
+    final long start=System.nanoTime();
+    m.sent.incrementAndGet();
+    return new Handler<AsyncResult<Message<T>>>() {
+      public void handle(AsyncResult<Message<T>> res) {
+        if (res.succeeded()) {
+          m.replies.incrementAndGet();
+          m.latency.record(System.nanoTime()-start);
+        }
+        else {
+          m.failures.incrementAndGet();
+          if ((res.cause() instanceof ReplyException) && (((ReplyException)res.cause()).failureType()==ReplyFailure.TIMEOUT))
+            m.timeouts.incrementAndGet();
+        }
+        h.handle(res);
+      }
+    };
+  }
+
+  /** Wrap reply handler to record a request without timeout */
+  <T> Handler<Message<T>> send(String address, final Handler<Message<T>> h) {
+    final AddressMetrics m=metrics(address);
+    final long start=System.nanoTime();
+    m.sent.incrementAndGet();
+    return new Handler<Message<T>>() {
+      public void handle(Message<T> res) {
+        m.replies.incrementAndGet();
+        m.latency.record(System.nanoTime()-start);
+        h.handle(res);
+      }
+    };
+  }
+
+  /** Wrap handler to record messages received */
+  <T> Handler<Message<T>> handler(String address, final Handler<Message<T>> h) {
+    final AddressMetrics m=metrics(address);
+    return new Handler<Message<T>>() {
+      public void handle(Message<T> msg) {
+        m.received.incrementAndGet();
+        long start=System.nanoTime();
+        try {
+          h.handle(msg);
+        }
+        finally {
+          m.processing.record(System.nanoTime()-start);
+        }
+      }
+    };
+  }
+}
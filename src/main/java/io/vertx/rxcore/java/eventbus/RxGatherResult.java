@@ -0,0 +1,112 @@
+package io.vertx.rxcore.java.eventbus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.vertx.java.core.eventbus.ReplyException;
+import org.vertx.java.core.eventbus.ReplyFailure;
+
+/** Result of {@link RxEventBus#scatterGather}
+ *
+ * <p>Replies and failures are kept in the order they arrived. Addresses that timed out, or had not replied
+ * when gathering finished, are reported by {@link #timedOut}.</p>
+ *
+ **/
+public class RxGatherResult<R> {
+
+  // Instance variables
+
+  /** Addresses sent to */
+  private final List<String> addresses;
+
+  /** Replies required */
+  private final int required;
+
+  /** Replies by address */
+  private final Map<String,RxMessage<R>> replies=new LinkedHashMap<>();
+
+  /** Failures (other than timeouts) by address */
+  private final Map<String,Throwable> failures=new LinkedHashMap<>();
+
+  /** Addresses timed out */
+  private final List<String> timedOut=new ArrayList<>();
+
+  /** Gathering has finished */
+  private boolean finished;
+
+  // Public
+
+  /** Create new RxGatherResult */
+  RxGatherResult(List<String> addresses, int required) {
+    this.addresses=addresses;
+    this.required=required;
+  }
+
+  /** Return replies required */
+  public int required() {
+    return this.required;
+  }
+
+  /** Return true if at least the required number of replies arrived */
+  public synchronized boolean quorum() {
+    return this.replies.size()>=this.required;
+  }
+
+  /** Return replies by address */
+  public synchronized Map<String,RxMessage<R>> replies() {
+    return Collections.unmodifiableMap(this.replies);
+  }
+
+  /** Return failures (other than timeouts) by address */
+  public synchronized Map<String,Throwable> failures() {
+    return Collections.unmodifiableMap(this.failures);
+  }
+
+  /** Return addresses that timed out or had not replied when gathering finished */
+  public synchronized List<String> timedOut() {
+    return Collections.unmodifiableList(this.timedOut);
+  }
+
+  /** Return string representation */
+  public synchronized String toString() {
+    return "RxGatherResult[replies="+this.replies.keySet()+",failures="+this.failures.keySet()+",timedOut="+this.timedOut+"]";
+  }
+
+  // Implementation
+
+  /** Record reply (and return true if gathering has just finished) */
+  synchronized boolean reply(String address, RxMessage<R> reply) {
+    if (this.finished)
+      return false;
+    this.replies.put(address,reply);
+    return finish();
+  }
+
+  /** Record failure (and return true if gathering has just finished) */
+  synchronized boolean failure(String address, Throwable e) {
+    if (this.finished)
+      return false;
+    if ((e instanceof ReplyException) && (((ReplyException)e).failureType()==ReplyFailure.TIMEOUT))
+      this.timedOut.add(address);
+    else
+      this.failures.put(address,e);
+    return finish();
+  }
+
+  /** Finish if the quorum is reached or can no longer be reached, marking addresses yet to reply as timed out */
+  private boolean finish() {
+    int failed=this.failures.size()+this.timedOut.size();
+    if ((this.replies.size()<this.required) && (this.addresses.size()-failed>=this.required))
+      return false;
+
+    for (String address : this.addresses) {
+      if (!this.replies.containsKey(address) && !this.failures.containsKey(address) && !this.timedOut.contains(address))
+        this.timedOut.add(address);
+    }
+    this.finished=true;
+    return true;
+  }
+}
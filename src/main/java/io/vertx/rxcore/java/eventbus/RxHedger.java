@@ -0,0 +1,218 @@
+package io.vertx.rxcore.java.eventbus;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.rxcore.java.impl.LatencyTracker;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+
+/** Send idempotent requests with a hedge
+ *
+ * <p>If no reply has arrived after the hedge delay a duplicate request is sent and the first reply wins;
+ * the other request is unsubscribed. The delay is fixed, or the tracked latency percentile for the address
+ * once <code>minSamples</code> replies have been seen.</p>
+ *
+ * <p>Hedges are limited to <code>budgetPercent</code> of requests: each request earns a fraction of a hedge
+ * and a hedge is only sent if a whole one has been earned (at most <code>MAX_BURST</code> are saved up).
+ * The request fails only if every request sent fails.</p>
+ *
+ **/
+public class RxHedger {
+
+  /** Maximum hedges saved up */
+  public static final int MAX_BURST=10;
+
+  // Instance variables
+
+  /** Vertx */
+  protected final Vertx vertx;
+
+  /** EventBus */
+  protected final RxEventBus eventBus;
+
+  /** Fixed hedge delay */
+  protected final long delayMillis;
+
+  /** Hedges per request */
+  protected final double budget;
+
+  /** Tracked percentile (or 0 for a fixed delay) */
+  private double percentile;
+
+  /** Replies required before using the tracked delay */
+  private int minSamples;
+
+  /** Latencies by address */
+  private final ConcurrentMap<String,LatencyTracker> latencies=new ConcurrentHashMap<>();
+
+  /** Hedges earned */
+  private double tokens;
+
+  /** Hedges sent */
+  private long hedges;
+
+  /** Requests made */
+  private long requests;
+
+  // Public
+
+  /** Create new RxHedger
+   *
+   * @param delayMillis Time to wait for a reply before hedging
+   * @param budgetPercent Maximum hedges as a percentage of requests
+   *
+   **/
+  public RxHedger(Vertx vertx, RxEventBus eventBus, long delayMillis, double budgetPercent) {
+    if (delayMillis<1)
+      throw new IllegalArgumentException("delayMillis must be positive (delayMillis="+delayMillis+")");
+    if ((budgetPercent<0) || (budgetPercent>100))
+      throw new IllegalArgumentException("budgetPercent must be in [0,100] (budgetPercent="+budgetPercent+")");
+
+    this.vertx=vertx;
+    this.eventBus=eventBus;
+    this.delayMillis=delayMillis;
+    this.budget=budgetPercent/100;
+  }
+
+  /** Hedge after the tracked latency percentile (using the fixed delay until minSamples replies are seen) */
+  public RxHedger trackDelay(double percentile, int minSamples) {
+    if ((percentile<=0) || (percentile>100))
+      throw new IllegalArgumentException("percentile must be in (0,100] (percentile="+percentile+")");
+    if (minSamples<1)
+      throw new IllegalArgumentException("minSamples must be positive (minSamples="+minSamples+")");
+    this.percentile=percentile;
+    this.minSamples=minSamples;
+    return this;
+  }
+
+  /** Return the hedge delay for address */
+  public long delay(String address) {
+    LatencyTracker t=this.latencies.get(address);
+    if ((this.percentile==0) || (t==null) || (t.size()<this.minSamples))
+      return this.delayMillis;
+    return Math.max(1,t.percentile(this.percentile));
+  }
+
+  /** Return hedges sent */
+  public synchronized long hedges() {
+    return this.hedges;
+  }
+
+  /** Return requests made */
+  public synchronized long requests() {
+    return this.requests;
+  }
+
+  /** Create an Observable that sends the message on subscribe, hedging if the reply is slow */
+  public <S,R> Observable<RxMessage<R>> observeSend(final String address, final S msg) {
+    return Observable.create(new Observable.OnSubscribe<RxMessage<R>>() {
+      public void call(final Subscriber<? super RxMessage<R>> subscriber) {
+        earn();
+
+        final CompositeSubscription attempts=new CompositeSubscription();
+        // Requests outstanding, or -1 once finished
+        final AtomicInteger outstanding=new AtomicInteger(1);
+        subscriber.add(attempts);
+
+        // Each request sent
+        class Attempt extends Subscriber<RxMessage<R>> {
+          /** Time this request was sent */
+          private long sent;
+          void send() {
+            attempts.add(this);
+            this.sent=System.nanoTime();
+            eventBus.<S,R>observeSend(address,msg).unsafeSubscribe(this);
+          }
+          public void onNext(RxMessage<R> reply) {
+            if (outstanding.getAndSet(-1)<0)
+              return;
+            attempts.unsubscribe();
+            tracker(address).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-this.sent));
+            subscriber.onNext(reply);
+            subscriber.onCompleted();
+          }
+          public void onError(Throwable e) {
+            // Only the last request outstanding reports failure
+            for (;;) {
+              int n=outstanding.get();
+              if (n<0)
+                return;
+              if (outstanding.compareAndSet(n,(n==1)?-1:n-1)) {
+                if (n==1) {
+                  attempts.unsubscribe();
+                  subscriber.onError(e);
+                }
+                return;
+              }
+            }
+          }
+          public void onCompleted() {
+          }
+        }
+
+        final long timerId=vertx.setTimer(delay(address), new Handler<Long>() {
+          public void handle(Long id) {
+            // Only while the primary is outstanding
+            if ((outstanding.get()!=1) || !spend())
+              return;
+            if (!outstanding.compareAndSet(1,2)) {
+              refund();
+              return;
+            }
+            new Attempt().send();
+          }
+        });
+        attempts.add(Subscriptions.create(new Action0() {
+          public void call() {
+            vertx.cancelTimer(timerId);
+          }
+        }));
+
+        new Attempt().send();
+      }
+    });
+  }
+
+  // Implementation
+
+  /** Return tracker for address */
+  private LatencyTracker tracker(String address) {
+    LatencyTracker t=this.latencies.get(address);
+    if (t==null) {
+      LatencyTracker n=new LatencyTracker();
+      t=this.latencies.putIfAbsent(address,n);
+      if (t==null)
+        t=n;
+    }
+    return t;
+  }
+
+  /** Earn part of a hedge for a request */
+  private synchronized void earn() {
+    this.requests++;
+    this.tokens=Math.min(MAX_BURST,this.tokens+this.budget);
+  }
+
+  /** Spend a hedge (or return false if none earned) */
+  private synchronized boolean spend() {
+    if (this.tokens<1)
+      return false;
+    this.tokens--;
+    this.hedges++;
+    return true;
+  }
+
+  /** Return an unused hedge */
+  private synchronized void refund() {
+    this.tokens=Math.min(MAX_BURST,this.tokens+1);
+    this.hedges--;
+  }
+}
@@ -3,6 +3,7 @@ package io.vertx.rxcore.java.eventbus;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.eventbus.Message;
 import rx.Observable;
+import rx.Subscription;
 
 /*
  * Copyright 2013 Red Hat, Inc.
@@ -26,6 +27,9 @@ public abstract class RxMessage<T> {
   /** Core Message */
   protected final Message<T> coreMessage;
 
+  /** Decoded body (or null if not decoded yet) */
+  private T body;
+
   /** Wrap Message with RxMessage */
   RxMessage(Message<T> coreMessage) {
     this.coreMessage = coreMessage;
@@ -37,10 +41,14 @@ public abstract class RxMessage<T> {
   }
 
   /**
-   * The body of the message
+   * The body of the message (decoded on first access)
    */
+  @SuppressWarnings("unchecked")
   public T body() {
-    return coreMessage.body();
+    T b=this.body;
+    if (b==null)
+      this.body=b=(T)decode(coreMessage.body());
+    return b;
   }
 
   /**
@@ -64,9 +72,12 @@ public abstract class RxMessage<T> {
 
   /** Send reply without expecting a response */
   public <R> void reply(final R msg) {
-    coreMessage.reply(msg);
+    coreMessage.reply(encode(msg));
   }
 
+  /** Reply with a stream of values sent as the requester grants credits (see {@link RxEventBus#observeSendStream}) */
+  public abstract <R> Subscription reply(Observable<R> values);
+
   /** Observe a reply */
   public abstract <R,T> Observable<RxMessage<T>> observeReply(final R msg);
 
@@ -77,4 +88,16 @@ public abstract class RxMessage<T> {
   public void fail(int failureCode, String message) {
     coreMessage.fail(failureCode, message);
   }
+
+  // Implementation
+
+  /** Decode body as received (default returns body unchanged) */
+  protected Object decode(Object body) {
+    return body;
+  }
+
+  /** Encode reply before sending (default returns msg unchanged) */
+  protected Object encode(Object msg) {
+    return msg;
+  }
 }
@@ -0,0 +1,248 @@
+package io.vertx.rxcore.java.eventbus;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+import rx.Observable;
+import rx.Subscriber;
+import rx.subjects.AsyncSubject;
+
+/** Cache of replies to idempotent requests
+ *
+ * <p>Requests are keyed by address and a fingerprint of the body (JSON is compared by its encoding and
+ * byte[]/Buffer by content). Concurrent identical requests share a single outstanding send, and a
+ * successful reply is then kept for the TTL of its address, up to <code>maxEntries</code> replies in
+ * least-recently-used order. Failed requests are never cached. An address with no TTL only shares
+ * outstanding sends.</p>
+ *
+ * <p>Cached replies are shared, so subscribers must not reply to them or modify their bodies.</p>
+ *
+ **/
+public class RxReplyCache {
+
+  /** Default maximum cached replies */
+  public static final int DEFAULT_MAX_ENTRIES=1024;
+
+  // Definitions
+
+  /** Cache key */
+  private static final class Key {
+
+    /** Address */
+    private final String address;
+
+    /** Body fingerprint */
+    private final Object fingerprint;
+
+    /** Create new Key */
+    Key(String address, Object fingerprint) {
+      this.address=address;
+      this.fingerprint=fingerprint;
+    }
+
+    /** Equals */
+    public boolean equals(Object o) {
+      if (!(o instanceof Key))
+        return false;
+      Key k=(Key)o;
+      return this.address.equals(k.address) && ((this.fingerprint==null)?(k.fingerprint==null):this.fingerprint.equals(k.fingerprint));
+    }
+
+    /** Hash */
+    public int hashCode() {
+      return 31*this.address.hashCode()+((this.fingerprint==null)?0:this.fingerprint.hashCode());
+    }
+  }
+
+  /** Cached (or outstanding) reply */
+  private static final class CachedReply {
+
+    /** Reply */
+    final AsyncSubject<RxMessage<?>> reply=AsyncSubject.create();
+
+    /** Expiry time in nanoseconds (or Long.MAX_VALUE while outstanding) */
+    volatile long expires=Long.MAX_VALUE;
+  }
+
+  // Instance variables
+
+  /** EventBus */
+  protected final RxEventBus eventBus;
+
+  /** Maximum cached replies */
+  protected final int maxEntries;
+
+  /** Default TTL */
+  private final long defaultTtlMillis;
+
+  /** TTL by address */
+  private final Map<String,Long> ttls=new ConcurrentHashMap<>();
+
+  /** Replies in access order */
+  private final LinkedHashMap<Key,CachedReply> entries;
+
+  /** Requests answered from the cache (or an outstanding send) */
+  private final AtomicLong hits=new AtomicLong();
+
+  /** Requests sent */
+  private final AtomicLong misses=new AtomicLong();
+
+  // Public
+
+  /** Create new RxReplyCache */
+  public RxReplyCache(RxEventBus eventBus) {
+    this(eventBus,DEFAULT_MAX_ENTRIES,0);
+  }
+
+  /** Create new RxReplyCache
+   *
+   * @param maxEntries Maximum cached replies
+   * @param defaultTtlMillis TTL for addresses without their own, or 0 to only share outstanding sends
+   *
+   **/
+  public RxReplyCache(RxEventBus eventBus, final int maxEntries, long defaultTtlMillis) {
+    if (maxEntries<1)
+      throw new IllegalArgumentException("maxEntries must be positive (maxEntries="+maxEntries+")");
+    if (defaultTtlMillis<0)
+      throw new IllegalArgumentException("defaultTtlMillis must not be negative (defaultTtlMillis="+defaultTtlMillis+")");
+
+    this.eventBus=eventBus;
+    this.maxEntries=maxEntries;
+    this.defaultTtlMillis=defaultTtlMillis;
+    this.entries=new LinkedHashMap<Key,CachedReply>(16,0.75f,true) {
+      protected boolean removeEldestEntry(Map.Entry<Key,CachedReply> eldest) {
+        return size()>maxEntries;
+      }
+    };
+  }
+
+  /** Set the TTL for address (0 to only share outstanding sends) */
+  public RxReplyCache ttl(String address, long ttlMillis) {
+    if (ttlMillis<0)
+      throw new IllegalArgumentException("ttlMillis must not be negative (ttlMillis="+ttlMillis+")");
+    this.ttls.put(address,ttlMillis);
+    return this;
+  }
+
+  /** Create an Observable that returns the cached reply, or sends the message on subscribe */
+  public <S,R> Observable<RxMessage<R>> observeSend(final String address, final S msg) {
+    return Observable.create(new Observable.OnSubscribe<RxMessage<R>>() {
+      @SuppressWarnings("unchecked")
+      public void call(Subscriber<? super RxMessage<R>> subscriber) {
+        Key key=new Key(address,fingerprint(msg));
+        CachedReply e;
+        boolean send=false;
+
+        synchronized(entries) {
+          e=entries.get(key);
+          if ((e!=null) && (e.expires<=System.nanoTime())) {
+            entries.remove(key);
+            e=null;
+          }
+          if (e==null) {
+            e=new CachedReply();
+            entries.put(key,e);
+            send=true;
+          }
+        }
+
+        (send?misses:hits).incrementAndGet();
+
+        // Subscribe before sending in case the reply is synchronous
+        ((Observable<RxMessage<R>>)(Observable)e.reply).unsafeSubscribe(subscriber);
+        if (send)
+          send(key,e,msg);
+      }
+    });
+  }
+
+  /** Remove cached replies for address */
+  public void invalidate(String address) {
+    synchronized(this.entries) {
+      for (Iterator<Key> it=this.entries.keySet().iterator();it.hasNext();) {
+        if (it.next().address.equals(address))
+          it.remove();
+      }
+    }
+  }
+
+  /** Remove every cached reply */
+  public void invalidateAll() {
+    synchronized(this.entries) {
+      this.entries.clear();
+    }
+  }
+
+  /** Return cached (and outstanding) replies */
+  public int size() {
+    synchronized(this.entries) {
+      return this.entries.size();
+    }
+  }
+
+  /** Return requests answered without sending */
+  public long hits() {
+    return this.hits.get();
+  }
+
+  /** Return requests sent */
+  public long misses() {
+    return this.misses.get();
+  }
+
+  // Implementation
+
+  /** Return fingerprint for body */
+  protected Object fingerprint(Object body) {
+    if ((body instanceof JsonObject) || (body instanceof JsonArray))
+      return body.getClass().getSimpleName()+":"+body.toString();
+    if (body instanceof byte[])
+      return ByteBuffer.wrap(((byte[])body).clone());
+    if (body instanceof Buffer)
+      return ByteBuffer.wrap(((Buffer)body).getBytes());
+    return body;
+  }
+
+  /** Send request for entry */
+  private <S> void send(final Key key, final CachedReply e, S msg) {
+    this.eventBus.observeSend(key.address,msg).subscribe(new Subscriber<RxMessage<Object>>() {
+      public void onNext(RxMessage<Object> reply) {
+        e.reply.onNext(reply);
+      }
+      public void onError(Throwable t) {
+        remove(key,e);
+        e.reply.onError(t);
+      }
+      public void onCompleted() {
+        long ttl=ttlMillis(key.address);
+        if (ttl>0)
+          e.expires=System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(ttl);
+        else
+          remove(key,e);
+        e.reply.onCompleted();
+      }
+    });
+  }
+
+  /** Return TTL for address */
+  private long ttlMillis(String address) {
+    Long ttl=this.ttls.get(address);
+    return (ttl!=null)?ttl:this.defaultTtlMillis;
+  }
+
+  /** Remove entry (unless already replaced) */
+  private void remove(Key key, CachedReply e) {
+    synchronized(this.entries) {
+      if (this.entries.get(key)==e)
+        this.entries.remove(key);
+    }
+  }
+}
@@ -9,21 +9,28 @@ public class RxStream<S,R> implements Handler<Message<R>> {
   /** Current message */
   private Message<R> cur;
 
+  /** Decoded value of the current message (or null if not decoded yet) */
+  private R value;
+
   /** Handler */
   public Handler<Message<R>> callback;
 
   /** Send next part of stream */
   public void next(S value) {
-    cur.reply(value,this.callback);
+    cur.reply(encode(value),this.callback);
   }
 
   /** Finish */
   public void complete() {
   }
 
-  /** Return the current value */
+  /** Return the current value (decoded on first access) */
+  @SuppressWarnings("unchecked")
   public R value() {
-    return cur.body();
+    R v=this.value;
+    if (v==null)
+      this.value=v=(R)decode(cur.body());
+    return v;
   }
 
   // Handler implementation
@@ -32,5 +39,18 @@ public class RxStream<S,R> implements Handler<Message<R>> {
   public void handle(Message<R> msg) {
     // Keep the message
     this.cur=msg;
+    this.value=null;
+  }
+
+  // Implementation
+
+  /** Decode value as received (default returns body unchanged) */
+  protected Object decode(Object body) {
+    return body;
+  }
+
+  /** Encode next request before sending (default returns value unchanged) */
+  protected Object encode(Object value) {
+    return value;
   }
 }
@@ -0,0 +1,250 @@
+package io.vertx.rxcore.java.eventbus;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.rxcore.java.impl.CreditStreamHandler;
+import io.vertx.rxcore.java.impl.IdleTimer;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.eventbus.EventBus;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/** Producer side of a credit-based stream requested with {@link RxEventBus#observeWindowedStream}
+ *
+ * <p>{@link #send} subscribes to the values and sends them to the consumer as it grants credits, so the
+ * values Observable is only requested as fast as the consumer can take them.</p>
+ *
+ * <p>If an idle timeout is given the values are unsubscribed (and the consumer sent a failure) when no
+ * credits arrive for that long while all granted credits have been used, eg because the consumer has
+ * gone away.</p>
+ *
+ **/
+public class RxStreamProducer<S,R> {
+
+  // Instance variables
+
+  /** Core bus */
+  private final EventBus eventBus;
+
+  /** Stream request */
+  private final RxMessage<JsonObject> request;
+
+  /** Consumer data address */
+  private final String streamAddress;
+
+  /** Initial credits */
+  private final int credits;
+
+  /** Vertx for the idle timer (or null) */
+  private final Vertx vertx;
+
+  /** Idle timeout (or 0 if none) */
+  private final long idleTimeout;
+
+  /** Sent (only one stream per request) */
+  private boolean sent;
+
+  // Public
+
+  /** Create new RxStreamProducer from a stream request */
+  public RxStreamProducer(EventBus eventBus, RxMessage<JsonObject> request) {
+    this(eventBus,request,null,0);
+  }
+
+  /** Create new RxStreamProducer that stops if the consumer grants no credits for idleTimeout msec (if vertx is not null) */
+  public RxStreamProducer(EventBus eventBus, RxMessage<JsonObject> request, Vertx vertx, long idleTimeout) {
+    JsonObject req=request.body();
+    if ((req==null) || !req.containsField(CreditStreamHandler.STREAM))
+      throw new IllegalArgumentException("Not a stream request (request="+req+")");
+    if ((vertx!=null) && (idleTimeout<1))
+      throw new IllegalArgumentException("idleTimeout must be positive (idleTimeout="+idleTimeout+")");
+
+    this.eventBus=eventBus;
+    this.request=request;
+    this.streamAddress=req.getString(CreditStreamHandler.STREAM);
+    this.credits=req.getInteger(CreditStreamHandler.CREDITS);
+    this.vertx=vertx;
+    this.idleTimeout=idleTimeout;
+  }
+
+  /** Return the request body */
+  @SuppressWarnings("unchecked")
+  public S body() {
+    return (S)this.request.body().getValue(CreditStreamHandler.BODY);
+  }
+
+  /** Return the underlying request */
+  public RxMessage<JsonObject> request() {
+    return this.request;
+  }
+
+  /** Fail the request before streaming */
+  public void fail(int failureCode, String message) {
+    this.request.fail(failureCode,message);
+  }
+
+  /** Stream values to the consumer (unsubscribe to stop without completing) */
+  public Subscription send(Observable<R> values) {
+    if (this.sent)
+      throw new IllegalStateException("Stream already sent (address="+this.streamAddress+")");
+    this.sent=true;
+
+    StreamSubscriber<R> sub=new StreamSubscriber<>(this.eventBus,this.vertx,this.idleTimeout);
+    // Stream protocol messages bypass the binary JSON codec
+    this.request.coreMessage().reply(new JsonObject().putString(CreditStreamHandler.CONTROL,sub.controlAddress));
+    sub.start(this.streamAddress,this.credits,values);
+    return sub;
+  }
+
+  // Implementation
+
+  /** Answer request with a stream of replies (see {@link RxMessage#reply(Observable)})
+   *
+   * <p>The reply carries the control address; the requester replies to it with its data address and
+   * initial credits, after which values are sent as for {@link #send}. If the requester does not answer
+   * within the timeout the values are never subscribed. The idle timeout (if vertx is not null) applies
+   * as for {@link #RxStreamProducer(EventBus,RxMessage,Vertx,long)}.</p>
+   *
+   **/
+  static <R> Subscription reply(EventBus eventBus, Message<?> request, final Observable<R> values, long timeout, Vertx vertx, long idleTimeout) {
+    final StreamSubscriber<R> sub=new StreamSubscriber<>(eventBus,vertx,idleTimeout);
+    JsonObject announce=new JsonObject()
+      .putString(CreditStreamHandler.REPLY_STREAM,CreditStreamHandler.REPLY_STREAM_MARKER)
+      .putString(CreditStreamHandler.CONTROL,sub.controlAddress);
+    request.replyWithTimeout(announce,timeout,new Handler<AsyncResult<Message<JsonObject>>>() {
+      public void handle(AsyncResult<Message<JsonObject>> res) {
+        if (res.failed()) {
+          sub.unsubscribe();
+          return;
+        }
+        JsonObject req=res.result().body();
+        sub.start(req.getString(CreditStreamHandler.STREAM),req.getInteger(CreditStreamHandler.CREDITS),values);
+      }
+    });
+    return sub;
+  }
+
+  /** Subscriber that sends each value to the consumer */
+  private static class StreamSubscriber<R> extends Subscriber<R> {
+
+    /** Core bus */
+    private final EventBus eventBus;
+
+    /** Control address */
+    final String controlAddress=UUID.randomUUID().toString();
+
+    /** Consumer data address */
+    private String streamAddress;
+
+    /** Initial credits */
+    private int credits;
+
+    /** Vertx for the idle timer (or null) */
+    private final Vertx vertx;
+
+    /** Idle timeout */
+    private final long idleTimeout;
+
+    /** Credits granted but not yet used */
+    private final AtomicLong remaining=new AtomicLong();
+
+    /** Idle timer (once streaming) */
+    private volatile IdleTimer idle;
+
+    /** Credit and cancel handler */
+    final Handler<Message<JsonObject>> control=new Handler<Message<JsonObject>>() {
+      public void handle(Message<JsonObject> msg) {
+        JsonObject ctl=msg.body();
+        if (ctl.containsField(CreditStreamHandler.CANCEL)) {
+          unsubscribe();
+          return;
+        }
+        int n=ctl.getInteger(CreditStreamHandler.CREDITS);
+        remaining.addAndGet(n);
+        IdleTimer t=idle;
+        if (t!=null)
+          t.touch();
+        request(n);
+      }
+    };
+
+    /** Create new StreamSubscriber, registering its control address */
+    StreamSubscriber(EventBus eventBus, Vertx vertx, long idleTimeout) {
+      this.eventBus=eventBus;
+      this.vertx=vertx;
+      this.idleTimeout=idleTimeout;
+      eventBus.registerHandler(this.controlAddress,this.control);
+      add(Subscriptions.create(new Action0() {
+        public void call() {
+          StreamSubscriber.this.eventBus.unregisterHandler(controlAddress,control);
+        }
+      }));
+    }
+
+    /** Subscribe to values once the consumer is known */
+    void start(String streamAddress, int credits, Observable<R> values) {
+      this.streamAddress=streamAddress;
+      this.credits=credits;
+      this.remaining.set(credits);
+      if (isUnsubscribed())
+        return;
+      if (this.vertx!=null) {
+        final IdleTimer t=new IdleTimer(this.vertx,this.idleTimeout) {
+          @Override protected boolean waiting() {
+            return remaining.get()<=0;
+          }
+          @Override protected void expired() {
+            sendFailure("Consumer idle (idleTimeout="+StreamSubscriber.this.idleTimeout+")");
+            unsubscribe();
+          }
+        };
+        add(Subscriptions.create(new Action0() {
+          public void call() {
+            t.stop();
+          }
+        }));
+        this.idle=t;
+        t.start();
+      }
+      values.subscribe(this);
+    }
+
+    /** Request the initial credits */
+    @Override public void onStart() {
+      request(credits);
+    }
+
+    /** Send value */
+    public void onNext(R value) {
+      remaining.decrementAndGet();
+      eventBus.send(streamAddress,new JsonObject().putValue(CreditStreamHandler.BODY,value));
+    }
+
+    /** Send failure */
+    public void onError(Throwable e) {
+      sendFailure(String.valueOf(e.getMessage()));
+      unsubscribe();
+    }
+
+    /** Send end */
+    public void onCompleted() {
+      eventBus.send(streamAddress,new JsonObject().putBoolean(CreditStreamHandler.END,true));
+      unsubscribe();
+    }
+
+    /** Send failure */
+    void sendFailure(String message) {
+      eventBus.send(streamAddress,new JsonObject()
+        .putNumber(CreditStreamHandler.FAILURE_CODE,-1)
+        .putString(CreditStreamHandler.MESSAGE,message));
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package io.vertx.rxcore.java.eventbus;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/** Publish/subscribe topic within this process
+ *
+ * <p>Messages are passed directly to subscribers without going through the EventBus, so they are not
+ * copied or wrapped; publishers must not modify a message after publishing it. Subscribers are held in a
+ * copy-on-write array and each has a lock-free queue drained on the Context it subscribed from (or
+ * synchronously if it subscribed outside a Context). Subscribers must not rely on backpressure.</p>
+ *
+ * <p>Topics are shared by name across the process. If bridged, each message is also published to an
+ * EventBus address for remote subscribers; use {@link #connect} to feed messages from the EventBus into
+ * the topic (but not from the address it is bridged to, or local messages are delivered twice).</p>
+ *
+ * <p>Messages published after a subscriber has been completed by {@link #close} are dropped.</p>
+ *
+ **/
+public class RxTopic<T> {
+
+  /** No subscribers */
+  private static final TopicSubscriber<?>[] EMPTY=new TopicSubscriber<?>[0];
+
+  /** Topic closed */
+  private static final TopicSubscriber<?>[] TERMINATED=new TopicSubscriber<?>[0];
+
+  /** Queued null */
+  private static final Object NULL=new Object();
+
+  /** Queued completion */
+  private static final Object COMPLETE=new Object();
+
+  /** Topics by name */
+  private static final ConcurrentMap<String,RxTopic<?>> topics=new ConcurrentHashMap<>();
+
+  // Definitions
+
+  /** Subscriber with its own queue and Context */
+  private static final class TopicSubscriber<T> implements Handler<Void> {
+
+    /** Subscriber */
+    private final Subscriber<? super T> subscriber;
+
+    /** Context to deliver on (or null for synchronous delivery) */
+    private final Context context;
+
+    /** Messages awaiting delivery */
+    private final Queue<Object> queue=new ConcurrentLinkedQueue<>();
+
+    /** Offers not yet drained */
+    private final AtomicInteger wip=new AtomicInteger();
+
+    /** Completion delivered (only accessed while draining) */
+    private boolean done;
+
+    /** Create new TopicSubscriber */
+    TopicSubscriber(Subscriber<? super T> subscriber, Context context) {
+      this.subscriber=subscriber;
+      this.context=context;
+    }
+
+    /** Queue message, scheduling a drain if not already scheduled */
+    void offer(Object msg) {
+      this.queue.offer(msg);
+      if (this.wip.getAndIncrement()!=0)
+        return;
+      if (this.context!=null)
+        this.context.runOnContext(this);
+      else
+        handle(null);
+    }
+
+    /** Drain queue */
+    @SuppressWarnings("unchecked")
+    public void handle(Void v) {
+      int missed=1;
+      for (;;) {
+        Object msg;
+        while ((msg=this.queue.poll())!=null) {
+          if (this.done || this.subscriber.isUnsubscribed()) {
+            this.queue.clear();
+          }
+          else if (msg==COMPLETE) {
+            this.done=true;
+            this.subscriber.onCompleted();
+          }
+          else {
+            this.subscriber.onNext((msg==NULL)?null:(T)msg);
+          }
+        }
+        missed=this.wip.addAndGet(-missed);
+        if (missed==0)
+          return;
+      }
+    }
+  }
+
+  // Instance variables
+
+  /** Vertx */
+  private final Vertx vertx;
+
+  /** EventBus used to bridge */
+  private final RxEventBus eventBus;
+
+  /** Name */
+  private final String name;
+
+  /** Current subscribers */
+  private final AtomicReference<TopicSubscriber<?>[]> subscribers=new AtomicReference<TopicSubscriber<?>[]>(EMPTY);
+
+  /** Bridge address (or null) */
+  private volatile String bridgeAddress;
+
+  // Public
+
+  /** Create new RxTopic (use {@link #topic} for a shared topic) */
+  public RxTopic(Vertx vertx, RxEventBus eventBus, String name) {
+    this.vertx=vertx;
+    this.eventBus=eventBus;
+    this.name=name;
+  }
+
+  /** Return the topic shared across the process by name, creating it if required */
+  @SuppressWarnings("unchecked")
+  public static <T> RxTopic<T> topic(Vertx vertx, RxEventBus eventBus, String name) {
+    RxTopic<T> t=(RxTopic<T>)topics.get(name);
+    if (t==null) {
+      RxTopic<T> n=new RxTopic<>(vertx,eventBus,name);
+      t=(RxTopic<T>)topics.putIfAbsent(name,n);
+      if (t==null)
+        t=n;
+    }
+    return t;
+  }
+
+  /** Return name */
+  public String name() {
+    return this.name;
+  }
+
+  /** Return number of subscribers */
+  public int size() {
+    return this.subscribers.get().length;
+  }
+
+  /** Also publish each message to address (or stop if null) */
+  public RxTopic<T> bridge(String address) {
+    this.bridgeAddress=address;
+    return this;
+  }
+
+  /** Publish message to every current subscriber */
+  public void publish(T msg) {
+    Object m=(msg==null)?NULL:msg;
+    for (TopicSubscriber<?> s : this.subscribers.get())
+      s.offer(m);
+    String address=this.bridgeAddress;
+    if (address!=null)
+      this.eventBus.publish(address,msg);
+  }
+
+  /** Publish each message from source until unsubscribed (an error from source ends the connection but is not published) */
+  public Subscription connect(Observable<? extends T> source) {
+    return source.subscribe(new Subscriber<T>() {
+      public void onNext(T msg) {
+        publish(msg);
+      }
+      public void onError(Throwable e) {
+        // Subscribers only see messages, so drop the error
+      }
+      public void onCompleted() {
+      }
+    });
+  }
+
+  /** Create an Observable of messages published after subscribing */
+  public Observable<T> observe() {
+    return Observable.create(new Observable.OnSubscribe<T>() {
+      public void call(Subscriber<? super T> subscriber) {
+        add(new TopicSubscriber<T>(subscriber,vertx.currentContext()));
+      }
+    });
+  }
+
+  /** Complete every subscriber and remove the topic (later subscribers complete immediately) */
+  public void close() {
+    topics.remove(this.name,this);
+    for (TopicSubscriber<?> s : this.subscribers.getAndSet(TERMINATED))
+      s.offer(COMPLETE);
+  }
+
+  // Implementation
+
+  /** Add subscriber (completing it if closed) */
+  private void add(final TopicSubscriber<T> sub) {
+    for (;;) {
+      TopicSubscriber<?>[] cur=this.subscribers.get();
+      if (cur==TERMINATED) {
+        sub.subscriber.onCompleted();
+        return;
+      }
+
+      TopicSubscriber<?>[] next=new TopicSubscriber<?>[cur.length+1];
+      System.arraycopy(cur,0,next,0,cur.length);
+      next[cur.length]=sub;
+      if (this.subscribers.compareAndSet(cur,next)) {
+        sub.subscriber.add(Subscriptions.create(new Action0() {
+          public void call() {
+            remove(sub);
+          }
+        }));
+        return;
+      }
+    }
+  }
+
+  /** Remove subscriber */
+  private void remove(TopicSubscriber<T> sub) {
+    for (;;) {
+      TopicSubscriber<?>[] cur=this.subscribers.get();
+      int i=0;
+      while ((i<cur.length) && (cur[i]!=sub))
+        i++;
+      if (i==cur.length)
+        return;
+
+      TopicSubscriber<?>[] next;
+      if (cur.length==1) {
+        next=EMPTY;
+      }
+      else {
+        next=new TopicSubscriber<?>[cur.length-1];
+        System.arraycopy(cur,0,next,0,i);
+        System.arraycopy(cur,i+1,next,i,cur.length-i-1);
+      }
+      if (this.subscribers.compareAndSet(cur,next))
+        return;
+    }
+  }
+}
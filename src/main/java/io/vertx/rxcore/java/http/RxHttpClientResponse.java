@@ -27,6 +27,11 @@ public class RxHttpClientResponse implements HttpClientResponse {
   public Observable<Buffer> asObservable() {
     return RxSupport.toObservable(nested);
   }
+
+  /** Return as Observable<Buffer> with explicit flow-control limits */
+  public Observable<Buffer> asObservable(int prefetch, int lowWatermark) {
+    return RxSupport.toObservable(nested,prefetch,lowWatermark);
+  }
   
   // HttpClientResponse implementation
   
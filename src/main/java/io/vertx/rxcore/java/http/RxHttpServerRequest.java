@@ -33,6 +33,11 @@ public class RxHttpServerRequest implements HttpServerRequest {
   public Observable<Buffer> asObservable() {
     return RxSupport.toObservable(nested);
   }
+
+  /** Return observable for accessing the response as a stream of Buffer with explicit flow-control limits */
+  public Observable<Buffer> asObservable(int prefetch, int lowWatermark) {
+    return RxSupport.toObservable(nested,prefetch,lowWatermark);
+  }
   
   // HttpServerRequest implementation
   
@@ -1,12 +1,19 @@
 package io.vertx.rxcore.java.http;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 
 import io.vertx.rxcore.RxSupport;
+import io.vertx.rxcore.java.impl.BufferAggregator;
+import io.vertx.rxcore.java.impl.JsonEncoder;
+import io.vertx.rxcore.java.impl.JsonStreamWriter;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.MultiMap;
 import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.http.*;
 import org.vertx.java.core.json.JsonObject;
 import rx.Observable;
+import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Func1;
 
@@ -17,15 +24,44 @@ public class RxHttpSupport {
 
   // Server
   
-  public static Func1<HttpServerRequest,Observable<Buffer>> decodeBody=new Func1<HttpServerRequest,Observable<Buffer>>() {
-    public Observable<Buffer> call(HttpServerRequest httpReq) {
-      // Must use Rx methods to access stream as Observable
-      assert(httpReq instanceof RxHttpServerRequest);
-      
-      return ((RxHttpServerRequest)httpReq).asObservable().reduce(new Buffer(),RxSupport.mergeBuffers);
-    }
-  };
+  public static Func1<HttpServerRequest,Observable<Buffer>> decodeBody=decodeBody(BufferAggregator.UNLIMITED);
+
+  /** Decode the request body, failing if it exceeds maxSize */
+  public static Func1<HttpServerRequest,Observable<Buffer>> decodeBody(final int maxSize) {
+    return new Func1<HttpServerRequest,Observable<Buffer>>() {
+      public Observable<Buffer> call(HttpServerRequest httpReq) {
+        // Must use Rx methods to access stream as Observable
+        assert(httpReq instanceof RxHttpServerRequest);
+
+        return ((RxHttpServerRequest)httpReq).asObservable().lift(aggregateBody(httpReq.headers(),maxSize));
+      }
+    };
+  }
   
+  /** Stream Observable<JsonObject> as a chunked JSON array or newline-delimited JSON response
+   *
+   * <p>The response is ended when the source completes, or closed if it fails. The total number of bytes
+   * written is emitted on completion</p>
+   *
+   **/
+  public static Observable<Long> respondJsonStream(Context context, final HttpServerResponse resp, Observable<JsonObject> src, JsonStreamWriter.Format format) {
+    resp.setChunked(true);
+    resp.putHeader("Content-Type",(format==JsonStreamWriter.Format.NDJSON)?"application/x-ndjson":"application/json");
+
+    return RxSupport.writeJsonStream(context,src,resp,format)
+      .doOnCompleted(new Action0() {
+        public void call() {
+          resp.end();
+        }
+      })
+      .doOnError(new Action1<Throwable>() {
+        public void call(Throwable t) {
+          // Headers have been sent so truncate the response
+          resp.close();
+        }
+      });
+  }
+
   // Client
   
   // Uploaders
@@ -37,8 +73,15 @@ public class RxHttpSupport {
 
   /** Create uploader for JsonObject */
   public static Action1<HttpClientRequest> uploadJson(JsonObject src, String charset) throws UnsupportedEncodingException {
+    Charset cs;
+    try {
+      cs=JsonEncoder.charset(charset);
+    }
+    catch(IllegalArgumentException e) {
+      throw new UnsupportedEncodingException(charset);
+    }
     String contentType="text/json;charset="+charset;
-    return uploadBody(contentType,src.encode().getBytes(charset));    
+    return uploadBody(contentType,JsonEncoder.encodeBytes(src,cs));
   }
   
   /** Create uploader for byte array */
@@ -71,30 +114,59 @@ public class RxHttpSupport {
   
   /** Convert the response to an Observable<Buffer> with single body */
   public static Func1<RxHttpClientResponse, Observable<Buffer>> downloadBody() {
+    return downloadBody(BufferAggregator.UNLIMITED);
+  }
+
+  /** Convert the response to an Observable<Buffer> with single body, failing if it exceeds maxSize */
+  public static Func1<RxHttpClientResponse, Observable<Buffer>> downloadBody(final int maxSize) {
     return new Func1<RxHttpClientResponse, Observable<Buffer>>() {
       public Observable<Buffer> call(RxHttpClientResponse httpResp) {
 
         checkResponse(httpResp);
         
-        return httpResp.asObservable().reduce(new Buffer(),RxSupport.mergeBuffers);
+        return httpResp.asObservable().lift(aggregateBody(httpResp.headers(),maxSize));
       }
     };
   }
   
   /** Convert the response to an Observable<JsonObject> with single body */
   public static Func1<RxHttpClientResponse, Observable<JsonObject>> downloadJson() {
+    return downloadJson(BufferAggregator.UNLIMITED);
+  }
+
+  /** Convert the response to an Observable<JsonObject> with single body, failing if it exceeds maxSize */
+  public static Func1<RxHttpClientResponse, Observable<JsonObject>> downloadJson(final int maxSize) {
     return new Func1<RxHttpClientResponse, Observable<JsonObject>>() {
       public Observable<JsonObject> call(RxHttpClientResponse httpResp) {
 
         checkResponse(httpResp);
         
         // TODO: Extract charset from Content-type
-        return httpResp.asObservable().reduce(new Buffer(),RxSupport.mergeBuffers).map(RxSupport.decodeJson("utf8"));
+        return httpResp.asObservable().lift(aggregateBody(httpResp.headers(),maxSize)).map(RxSupport.decodeJson("utf8"));
       }
     };
   }
 
   // Utility
+
+  /** Create an aggregator for a body, presized from Content-Length when present */
+  public static BufferAggregator aggregateBody(MultiMap headers, int maxSize) {
+    return new BufferAggregator(contentLength(headers),maxSize);
+  }
+
+  /** Return the Content-Length (or -1 if not present or invalid) */
+  public static long contentLength(MultiMap headers) {
+    String value=headers.get("Content-Length");
+    if (value==null)
+      return -1;
+    try {
+      long len=Long.parseLong(value.trim());
+      return (len>=0)?len:-1;
+    }
+    catch(NumberFormatException e) {
+      return -1;
+    }
+  }
   
   /** Validate response */
   public static void checkResponse(HttpClientResponse httpResp) throws RuntimeException {
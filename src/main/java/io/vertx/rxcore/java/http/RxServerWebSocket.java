@@ -26,6 +26,11 @@ public class RxServerWebSocket extends RxWebSocket<RxServerWebSocket> {
   public Observable<Buffer> asObservable() {
     return RxSupport.toObservable(this.nested);
   }
+
+  /** Return as Observable<Buffer> with explicit flow-control limits */
+  public Observable<Buffer> asObservable(int prefetch, int lowWatermark) {
+    return RxSupport.toObservable(this.nested,prefetch,lowWatermark);
+  }
   
   // ServerWebSocket implementation
 
@@ -61,6 +61,11 @@ public class RxWebSocket<T extends WebSocket> implements WebSocket {
     return RxSupport.toObservable(nested);
   }
 
+  /** Return as Observable<Buffer> with explicit flow-control limits */
+  public Observable<Buffer> asObservable(int prefetch, int lowWatermark) {
+    return RxSupport.toObservable(nested,prefetch,lowWatermark);
+  }
+
   // WebSocketBase implementation
 
   public String binaryHandlerID() {
@@ -0,0 +1,345 @@
+package io.vertx.rxcore.java.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.DecodeException;
+import org.vertx.java.core.json.EncodeException;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+/** Compact binary encoding of JsonObject and JsonArray
+ *
+ * <p>Values are tagged; integers are zig-zag varints and strings are length-prefixed UTF-8. Each field name
+ * is written once per message and then referred to by index. Decoded field names are interned in a bounded
+ * cache shared by all messages.</p>
+ *
+ * <p>Encoded data starts with a 2-byte magic number and a version so it can be told apart from other
+ * Buffer bodies.</p>
+ *
+ **/
+public class BinaryJsonCodec {
+
+  /** Magic number */
+  private static final byte MAGIC0=(byte)0xB1, MAGIC1=(byte)0x4A;
+
+  /** Format version */
+  private static final byte VERSION=1;
+
+  /** Value tags */
+  private static final byte NULL=0, TRUE=1, FALSE=2, INT=3, LONG=4, DOUBLE=5, FLOAT=6, STRING=7, BINARY=8, OBJECT=9, ARRAY=10, BIG_INTEGER=11, BIG_DECIMAL=12;
+
+  /** Maximum field names interned */
+  private static final int MAX_INTERNED=4096;
+
+  /** Interned field names by UTF-8 bytes */
+  private static final Map<Key,String> interned=new ConcurrentHashMap<>();
+
+  // Definitions
+
+  /** Field name bytes */
+  private static final class Key {
+
+    /** Bytes */
+    private final byte[] bytes;
+
+    /** Hash */
+    private final int hash;
+
+    /** Create new Key */
+    Key(byte[] bytes) {
+      this.bytes=bytes;
+      this.hash=Arrays.hashCode(bytes);
+    }
+
+    /** Equals */
+    public boolean equals(Object o) {
+      return (o instanceof Key) && Arrays.equals(this.bytes,((Key)o).bytes);
+    }
+
+    /** Hash */
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+
+  // Public
+
+  /** Return true if buf holds encoded JSON */
+  public static boolean isEncoded(Buffer buf) {
+    return (buf.length()>=3) && (buf.getByte(0)==MAGIC0) && (buf.getByte(1)==MAGIC1);
+  }
+
+  /** Encode JsonObject */
+  public static Buffer encode(JsonObject obj) {
+    return encodeValue(obj);
+  }
+
+  /** Encode JsonArray */
+  public static Buffer encode(JsonArray arr) {
+    return encodeValue(arr);
+  }
+
+  /** Decode to JsonObject or JsonArray */
+  @SuppressWarnings("unchecked")
+  public static Object decode(Buffer buf) {
+    if (!isEncoded(buf))
+      throw new DecodeException("Not binary JSON");
+
+    // Duplicate so the Buffer can be decoded again
+    ByteBuf in=buf.getByteBuf();
+    in.skipBytes(2);
+    byte version=in.readByte();
+    if (version!=VERSION)
+      throw new DecodeException("Unsupported binary JSON version (version="+version+")");
+
+    try {
+      Object res=read(in,new ArrayList<String>());
+      if (res instanceof Map)
+        return JsonEncoder.wrap((Map<String,Object>)res);
+      if (res instanceof List)
+        return new JsonArray((List<Object>)res);
+      throw new DecodeException("Binary JSON must contain an object or array");
+    }
+    catch(IndexOutOfBoundsException e) {
+      throw new DecodeException("Truncated binary JSON");
+    }
+  }
+
+  // Implementation
+
+  /** Encode object or array */
+  private static Buffer encodeValue(Object value) {
+    ByteBuf out=Unpooled.buffer(256);
+    out.writeByte(MAGIC0);
+    out.writeByte(MAGIC1);
+    out.writeByte(VERSION);
+    write(out,value,new HashMap<String,Integer>());
+    return new Buffer(out);
+  }
+
+  /** Write value */
+  @SuppressWarnings("unchecked")
+  private static void write(ByteBuf out, Object v, Map<String,Integer> names) {
+    if (v==null) {
+      out.writeByte(NULL);
+    }
+    else if (v instanceof String) {
+      out.writeByte(STRING);
+      writeString(out,(String)v);
+    }
+    else if ((v instanceof Integer) || (v instanceof Short) || (v instanceof Byte)) {
+      out.writeByte(INT);
+      writeVarLong(out,zigZag(((Number)v).intValue()));
+    }
+    else if (v instanceof Long) {
+      out.writeByte(LONG);
+      writeVarLong(out,zigZag((Long)v));
+    }
+    else if (v instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double)v);
+    }
+    else if (v instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float)v);
+    }
+    else if (v instanceof Boolean) {
+      out.writeByte(((Boolean)v)?TRUE:FALSE);
+    }
+    else if (v instanceof JsonObject) {
+      writeMap(out,JsonEncoder.map((JsonObject)v),names);
+    }
+    else if (v instanceof Map) {
+      writeMap(out,(Map<String,Object>)v,names);
+    }
+    else if (v instanceof JsonArray) {
+      writeList(out,((JsonArray)v).toList(),names);
+    }
+    else if (v instanceof List) {
+      writeList(out,(List<Object>)v,names);
+    }
+    else if (v instanceof byte[]) {
+      byte[] b=(byte[])v;
+      out.writeByte(BINARY);
+      writeVarLong(out,b.length);
+      out.writeBytes(b);
+    }
+    else if (v instanceof BigInteger) {
+      out.writeByte(BIG_INTEGER);
+      writeString(out,v.toString());
+    }
+    else if (v instanceof BigDecimal) {
+      out.writeByte(BIG_DECIMAL);
+      writeString(out,v.toString());
+    }
+    else {
+      throw new EncodeException("Unsupported JSON value (class="+v.getClass().getName()+")");
+    }
+  }
+
+  /** Write object, naming each field once */
+  private static void writeMap(ByteBuf out, Map<String,Object> map, Map<String,Integer> names) {
+    out.writeByte(OBJECT);
+    writeVarLong(out,map.size());
+    for (Map.Entry<String,Object> e : map.entrySet()) {
+      Integer ref=names.get(e.getKey());
+      if (ref!=null) {
+        writeVarLong(out,ref+1);
+      }
+      else {
+        names.put(e.getKey(),names.size());
+        writeVarLong(out,0);
+        writeString(out,e.getKey());
+      }
+      write(out,e.getValue(),names);
+    }
+  }
+
+  /** Write array */
+  private static void writeList(ByteBuf out, List<Object> list, Map<String,Integer> names) {
+    out.writeByte(ARRAY);
+    writeVarLong(out,list.size());
+    for (Object v : list)
+      write(out,v,names);
+  }
+
+  /** Read value */
+  private static Object read(ByteBuf in, List<String> names) {
+    byte tag=in.readByte();
+    switch(tag) {
+      case NULL:
+        return null;
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case INT:
+        return (int)unZigZag(readVarLong(in));
+      case LONG:
+        return unZigZag(readVarLong(in));
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case STRING:
+        return readString(in);
+      case BINARY: {
+        byte[] b=new byte[readLength(in)];
+        in.readBytes(b);
+        return b;
+      }
+      case OBJECT: {
+        int n=readLength(in);
+        Map<String,Object> map=new LinkedHashMap<>(Math.max(4,n*4/3+1));
+        for (int i=0;i<n;i++) {
+          long ref=readVarLong(in);
+          String name;
+          if (ref==0) {
+            name=readName(in);
+            names.add(name);
+          }
+          else if ((ref>0) && (ref<=names.size())) {
+            name=names.get((int)ref-1);
+          }
+          else {
+            throw new DecodeException("Invalid field name reference (ref="+ref+")");
+          }
+          map.put(name,read(in,names));
+        }
+        return map;
+      }
+      case ARRAY: {
+        int n=readLength(in);
+        List<Object> list=new ArrayList<>(n);
+        for (int i=0;i<n;i++)
+          list.add(read(in,names));
+        return list;
+      }
+      case BIG_INTEGER:
+        return new BigInteger(readString(in));
+      case BIG_DECIMAL:
+        return new BigDecimal(readString(in));
+      default:
+        throw new DecodeException("Invalid binary JSON tag (tag="+tag+")");
+    }
+  }
+
+  /** Write length-prefixed UTF-8 */
+  private static void writeString(ByteBuf out, String s) {
+    byte[] b=s.getBytes(JsonEncoder.UTF8);
+    writeVarLong(out,b.length);
+    out.writeBytes(b);
+  }
+
+  /** Read length-prefixed UTF-8 */
+  private static String readString(ByteBuf in) {
+    int len=readLength(in);
+    String s=in.toString(in.readerIndex(),len,JsonEncoder.UTF8);
+    in.skipBytes(len);
+    return s;
+  }
+
+  /** Read field name, interning it */
+  private static String readName(ByteBuf in) {
+    byte[] b=new byte[readLength(in)];
+    in.readBytes(b);
+    Key k=new Key(b);
+    String name=interned.get(k);
+    if (name==null) {
+      name=new String(b,JsonEncoder.UTF8);
+      if (interned.size()<MAX_INTERNED)
+        interned.put(k,name);
+    }
+    return name;
+  }
+
+  /** Read a length (checked against the bytes remaining) */
+  private static int readLength(ByteBuf in) {
+    long len=readVarLong(in);
+    if ((len<0) || (len>in.readableBytes()))
+      throw new DecodeException("Invalid length in binary JSON (length="+len+")");
+    return (int)len;
+  }
+
+  /** Write unsigned varint */
+  private static void writeVarLong(ByteBuf out, long v) {
+    while ((v&~0x7fL)!=0) {
+      out.writeByte((int)((v&0x7f)|0x80));
+      v>>>=7;
+    }
+    out.writeByte((int)v);
+  }
+
+  /** Read unsigned varint */
+  private static long readVarLong(ByteBuf in) {
+    long v=0;
+    for (int shift=0;shift<64;shift+=7) {
+      byte b=in.readByte();
+      v|=(long)(b&0x7f)<<shift;
+      if ((b&0x80)==0)
+        return v;
+    }
+    throw new DecodeException("Malformed varint in binary JSON");
+  }
+
+  /** Zig-zag encode */
+  private static long zigZag(long v) {
+    return (v<<1)^(v>>63);
+  }
+
+  /** Zig-zag decode */
+  private static long unZigZag(long v) {
+    return (v>>>1)^-(v&1);
+  }
+}
@@ -0,0 +1,34 @@
+package io.vertx.rxcore.java.impl;
+
+/** Body exceeds the maximum size allowed by a {@link BufferAggregator} */
+public class BodyTooLargeException extends RuntimeException {
+
+  private static final long serialVersionUID=1L;
+
+  // Instance variables
+
+  /** Size (expected or received so far) */
+  private final long size;
+
+  /** Maximum size */
+  private final int maxSize;
+
+  // Public
+
+  /** Create new BodyTooLargeException */
+  public BodyTooLargeException(long size, int maxSize) {
+    super("Body exceeds maximum size (size="+size+",maxSize="+maxSize+")");
+    this.size=size;
+    this.maxSize=maxSize;
+  }
+
+  /** Return size (expected or received so far) */
+  public long size() {
+    return this.size;
+  }
+
+  /** Return maximum size */
+  public int maxSize() {
+    return this.maxSize;
+  }
+}
@@ -0,0 +1,114 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Handler that forwards events on demand, buffering at most <code>bufferSize</code> events
+ *
+ * <p>Events arriving while the subscriber has no outstanding requests are buffered. Once the buffer is full
+ * the overflow strategy decides which event is discarded; discarded events are passed to
+ * {@link #reject} (if failing) and counted in the {@link Counters}.</p>
+ *
+ * <p>Subscribers that do not use backpressure request Long.MAX_VALUE so nothing is ever buffered</p>
+ *
+ **/
+public class BoundedHandler<R,T> extends QueueingHandler<R,T> {
+
+  // Definitions
+
+  /** Overflow strategy */
+  public enum Overflow {
+    /** Reject the new event */
+    FAIL,
+    /** Discard the oldest buffered event */
+    DROP_OLDEST,
+    /** Discard the new event */
+    DROP_NEWEST,
+    /** Keep only the newest event (bufferSize is ignored) */
+    LATEST
+  }
+
+  /** Overflow counters (may be shared by several handlers) */
+  public static class Counters {
+
+    /** Events discarded */
+    private final AtomicLong dropped=new AtomicLong();
+
+    /** Events rejected */
+    private final AtomicLong failed=new AtomicLong();
+
+    /** Return events discarded */
+    public long dropped() {
+      return this.dropped.get();
+    }
+
+    /** Return events rejected */
+    public long failed() {
+      return this.failed.get();
+    }
+
+    /** String */
+    public String toString() {
+      return "Counters[dropped="+dropped()+",failed="+failed()+"]";
+    }
+  }
+
+  // Instance variables
+
+  /** Buffer limit */
+  protected final int bufferSize;
+
+  /** Overflow strategy */
+  protected final Overflow overflow;
+
+  /** Counters */
+  protected final Counters counters;
+
+  // Public
+
+  /** Create new BoundedHandler */
+  public BoundedHandler(int bufferSize, Overflow overflow, Counters counters) {
+    if (bufferSize<1)
+      throw new IllegalArgumentException("bufferSize must be positive (bufferSize="+bufferSize+")");
+    if (overflow==null)
+      throw new IllegalArgumentException("overflow must not be null");
+
+    this.bufferSize=(overflow==Overflow.LATEST)?1:bufferSize;
+    this.overflow=overflow;
+    this.counters=(counters!=null)?counters:new Counters();
+  }
+
+  /** Return counters */
+  public Counters counters() {
+    return this.counters;
+  }
+
+  // Implementation
+
+  /** Called with an event rejected by the FAIL strategy */
+  protected void reject(T evt) {
+  }
+
+  /** Buffer event, applying the overflow strategy if full */
+  @Override protected void enqueue(T evt) {
+    if (queued()<this.bufferSize) {
+      offer(evt);
+      return;
+    }
+
+    switch(this.overflow) {
+      case FAIL:
+        this.counters.failed.incrementAndGet();
+        reject(evt);
+        break;
+      case DROP_NEWEST:
+        this.counters.dropped.incrementAndGet();
+        break;
+      default:
+        // Make room (the drain may have taken it already)
+        if (poll()!=null)
+          this.counters.dropped.incrementAndGet();
+        offer(evt);
+        break;
+    }
+  }
+}
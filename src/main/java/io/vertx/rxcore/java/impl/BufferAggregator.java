@@ -0,0 +1,147 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.vertx.java.core.buffer.Buffer;
+import rx.Observable;
+import rx.Subscriber;
+
+/** Operator that aggregates an Observable<Buffer> into a single Buffer
+ *
+ * <p>If the expected size is known the target Buffer is presized for it (up to MAX_PRESIZE, growing as
+ * data arrives beyond that, so a client cannot force a large allocation with a header). Otherwise the
+ * chunks are kept as a list and copied once into a Buffer of the exact size on completion. A single chunk
+ * is emitted as-is without copying.</p>
+ *
+ * <p>The aggregation fails with {@link BodyTooLargeException} as soon as the expected size, or the data
+ * received, exceeds <code>maxSize</code>. If the expected size is too large the source is never subscribed
+ * (eg a ReadStream observable does not register its handlers) but the body is still sent by the peer, so the
+ * connection should be closed rather than reused.</p>
+ *
+ **/
+public class BufferAggregator implements Observable.Operator<Buffer,Buffer> {
+
+  /** No limit */
+  public static final int UNLIMITED=Integer.MAX_VALUE;
+
+  /** Largest initial allocation for a known expected size */
+  public static final int MAX_PRESIZE=64*1024;
+
+  // Instance variables
+
+  /** Expected size (or -1 if unknown) */
+  protected final long expectedSize;
+
+  /** Maximum size */
+  protected final int maxSize;
+
+  // Public
+
+  /** Create new BufferAggregator */
+  public BufferAggregator(long expectedSize, int maxSize) {
+    if (maxSize<0)
+      throw new IllegalArgumentException("maxSize must not be negative (maxSize="+maxSize+")");
+
+    this.expectedSize=expectedSize;
+    this.maxSize=maxSize;
+  }
+
+  // Operator implementation
+
+  /** Aggregate for each subscriber */
+  public Subscriber<? super Buffer> call(final Subscriber<? super Buffer> child) {
+
+    // Fail before any data is read, returning an unsubscribed Subscriber so the source is not subscribed
+    if (this.expectedSize>this.maxSize) {
+      child.onError(tooLarge(this.expectedSize));
+      Subscriber<Buffer> cancelled=new Subscriber<Buffer>() {
+        public void onNext(Buffer b) {
+        }
+        public void onError(Throwable e) {
+        }
+        public void onCompleted() {
+        }
+      };
+      cancelled.unsubscribe();
+      return cancelled;
+    }
+
+    Subscriber<Buffer> parent=new Subscriber<Buffer>() {
+
+      /** Presized target (if expected size known) */
+      private Buffer target=(expectedSize>=0)?new Buffer((int)Math.min(expectedSize,Math.min(maxSize,MAX_PRESIZE))):null;
+
+      /** Chunks (if expected size unknown) */
+      private List<Buffer> chunks=(target==null)?new ArrayList<Buffer>():null;
+
+      /** Size so far */
+      private long size;
+
+      /** Failed */
+      private boolean failed;
+
+      public void onNext(Buffer b) {
+        if (this.failed)
+          return;
+
+        this.size+=b.length();
+        if (this.size>maxSize) {
+          this.failed=true;
+          this.target=null;
+          this.chunks=null;
+          unsubscribe();
+          child.onError(tooLarge(this.size));
+          return;
+        }
+
+        if (this.target!=null)
+          this.target.appendBuffer(b);
+        else
+          this.chunks.add(b);
+      }
+
+      public void onError(Throwable e) {
+        if (this.failed)
+          return;
+        this.target=null;
+        this.chunks=null;
+        child.onError(e);
+      }
+
+      public void onCompleted() {
+        if (this.failed)
+          return;
+
+        Buffer res;
+        if (this.target!=null) {
+          res=this.target;
+        }
+        else if (this.chunks.size()==1) {
+          res=this.chunks.get(0);
+        }
+        else {
+          // Flatten once
+          res=new Buffer((int)this.size);
+          for (Buffer chunk : this.chunks)
+            res.appendBuffer(chunk);
+        }
+        this.target=null;
+        this.chunks=null;
+
+        child.onNext(res);
+        child.onCompleted();
+      }
+    };
+
+    child.add(parent);
+    return parent;
+  }
+
+  // Implementation
+
+  /** Create size exception */
+  protected RuntimeException tooLarge(long size) {
+    return new BodyTooLargeException(size,this.maxSize);
+  }
+}
@@ -13,22 +13,70 @@ import rx.subscriptions.CompositeSubscription;
 import rx.subscriptions.Subscriptions;
 
 import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
-/** Implementation of Scheduler that runs on a given Verticle Context */
+/** Implementation of Scheduler that runs on a given Verticle Context
+ *
+ * <p>By default every scheduled action is dispatched with its own context.runOnContext. If a
+ * <code>tickBudget</code> is given the workers are batched instead: actions are queued per worker and up to
+ * <code>tickBudget</code> of them are run in a single context tick before yielding to other events. An
+ * action scheduled from the owning context while the worker is idle is run immediately (trampolined) and any
+ * actions it schedules are run after it returns, in order.</p>
+ *
+ * <p>Delayed and periodic actions use a Vert.x timer per action, unless a {@link TimerWheel} is given, in
+ * which case they share the wheel's single timer and are rounded up to its tick.</p>
+ *
+ **/
 public class ContextScheduler extends Scheduler {
 
+  /** Unbatched (one context tick per action) */
+  public static final int UNBATCHED=0;
+
+  /** Default actions run per context tick by a batched worker */
+  public static final int DEFAULT_TICK_BUDGET=256;
+
   // Instance variables
 
   /** Vertx */
   private final Vertx vertx;
   private final Context context;
 
+  /** Actions run per context tick (or UNBATCHED) */
+  private final int tickBudget;
+
+  /** Timer wheel for delayed actions (or null) */
+  private final TimerWheel wheel;
+
   /** Create new ContextScheduler */
   public ContextScheduler(Vertx vertx, Context context) {
+    this(vertx,context,UNBATCHED);
+  }
+
+  /** Create new ContextScheduler
+   *
+   * @param tickBudget Actions run per context tick by each worker, or UNBATCHED
+   *
+   **/
+  public ContextScheduler(Vertx vertx, Context context, int tickBudget) {
+    this(vertx,context,tickBudget,null);
+  }
+
+  /** Create new ContextScheduler
+   *
+   * @param tickBudget Actions run per context tick by each worker, or UNBATCHED
+   * @param wheel Timer wheel (on the same context) for delayed and periodic actions, or null
+   *
+   **/
+  public ContextScheduler(Vertx vertx, Context context, int tickBudget, TimerWheel wheel) {
+    if (tickBudget<0)
+      throw new IllegalArgumentException("tickBudget must not be negative (tickBudget="+tickBudget+")");
     this.vertx=vertx;
     this.context=context;
+    this.tickBudget=tickBudget;
+    this.wheel=wheel;
   }
 
   // Scheduler implementation
@@ -36,7 +84,7 @@ public class ContextScheduler extends Scheduler {
   /** Create worker */
   @Override
   public Worker createWorker() {
-    return new ContextWorker();
+    return (this.tickBudget==UNBATCHED)?new ContextWorker():new BatchedContextWorker();
   }
   
   /* ContextAction is conceptually similar to rx.internal.schedulers.ScheduledAction
@@ -243,8 +291,230 @@ public class ContextScheduler extends Scheduler {
     }
   }
 
+  /** Delayed or periodic action on the TimerWheel, cancelled when its worker is unsubscribed */
+  private static final class WheelAction implements Action0, Subscription {
+    private final CompositeSubscription parent;
+    private final Action0 action;
+    private final boolean periodic;
+    volatile TimerWheel.Timeout timeout;
+
+    @SuppressWarnings("unused")
+    volatile int once;
+    static final AtomicIntegerFieldUpdater<WheelAction> ONCE_UPDATER
+            = AtomicIntegerFieldUpdater.newUpdater(WheelAction.class, "once");
+
+    WheelAction(CompositeSubscription parent, Action0 action, boolean periodic) {
+      this.parent = parent;
+      this.action = action;
+      this.periodic = periodic;
+    }
+
+    @Override
+    public void call() {
+      if (once != 0) {
+        return;
+      }
+      try {
+        action.call();
+      }
+      finally {
+        if (!periodic) {
+          // one shot
+          unsubscribe();
+        }
+      }
+    }
+
+    @Override
+    public void unsubscribe() {
+      if (ONCE_UPDATER.compareAndSet(this, 0, 1)) {
+        TimerWheel.Timeout t = timeout;
+        if (t != null) {
+          t.unsubscribe();
+        }
+        parent.remove(this);
+      }
+    }
+
+    @Override
+    public boolean isUnsubscribed() {
+      return once != 0;
+    }
+  }
+
+  /** Schedule on the TimerWheel, adding the timeout to the worker's subscriptions */
+  private Subscription scheduleOnWheel(CompositeSubscription parent, Action0 action, long initialDelayMillis, long periodMillis) {
+    WheelAction w = new WheelAction(parent, action, periodMillis > 0);
+    if (periodMillis > 0) {
+      w.timeout = wheel.schedulePeriodically(w, initialDelayMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+    else {
+      w.timeout = wheel.schedule(w, initialDelayMillis, TimeUnit.MILLISECONDS);
+    }
+    // Cancels the timeout straight away if the worker is already unsubscribed
+    parent.add(w);
+    return w;
+  }
+
+  /** Action queued on a BatchedContextWorker */
+  private static final class BatchedAction implements Subscription {
+    private final Action0 action;
+
+    @SuppressWarnings("unused")
+    volatile int cancelled;
+    static final AtomicIntegerFieldUpdater<BatchedAction> CANCELLED_UPDATER
+            = AtomicIntegerFieldUpdater.newUpdater(BatchedAction.class, "cancelled");
+
+    BatchedAction(Action0 action) {
+      this.action = action;
+    }
+
+    @Override
+    public void unsubscribe() {
+      CANCELLED_UPDATER.lazySet(this, 1);
+    }
+
+    @Override
+    public boolean isUnsubscribed() {
+      return cancelled != 0;
+    }
+
+    /** Run unless cancelled (one shot) */
+    void run() {
+      if (CANCELLED_UPDATER.compareAndSet(this, 0, 1)) {
+        action.call();
+      }
+    }
+  }
+
   // Scheduler.Worker implementation
 
+  /** Worker that runs queued actions in batches on the context */
+  private class BatchedContextWorker extends Scheduler.Worker implements Handler<Void> {
+
+    private final RxJavaSchedulersHook schedulersHook;
+
+    /** Actions waiting to run (multiple producers, drained on the context) */
+    private final ConcurrentLinkedQueue<BatchedAction> queue = new ConcurrentLinkedQueue<BatchedAction>();
+
+    /** Number of queued actions (0 when idle) */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /** Delayed and periodic actions */
+    private final CompositeSubscription timed = new CompositeSubscription();
+
+    private volatile boolean unsubscribed;
+
+    public BatchedContextWorker() {
+      schedulersHook = RxJavaPlugins.getInstance().getSchedulersHook();
+    }
+
+    @Override
+    public Subscription schedule(final Action0 action) {
+      if (unsubscribed) {
+        // don't schedule, we are unsubscribed
+        return Subscriptions.empty();
+      }
+      BatchedAction a = new BatchedAction(schedulersHook.onSchedule(action));
+      queue.offer(a);
+
+      if (wip.getAndIncrement() == 0) {
+        // Idle: run now if already on the context, otherwise start a tick
+        if (vertx.currentContext() == context) {
+          drain();
+        }
+        else {
+          context.runOnContext(this);
+        }
+      }
+      return a;
+    }
+
+    @Override
+    public Subscription schedule(final Action0 action, final long delayTime, final TimeUnit unit) {
+      if (unsubscribed) {
+        // don't schedule, we are unsubscribed
+        return Subscriptions.empty();
+      }
+      final long delayTimeMillis = unit.toMillis(delayTime);
+      if (delayTimeMillis < 1) {
+        return schedule(action);
+      }
+      if (wheel != null) {
+        return scheduleOnWheel(timed, schedulersHook.onSchedule(action), delayTimeMillis, 0);
+      }
+
+      ContextAction c = new ContextAction(vertx, context, schedulersHook.onSchedule(action));
+      c.setTimer(delayTimeMillis);
+      c.addParent(timed);
+      return c;
+    }
+
+    @Override
+    public Subscription schedulePeriodically(final Action0 action, long initialDelay, final long period, final TimeUnit unit) {
+      if (unsubscribed) {
+        // don't schedule, we are unsubscribed
+        return Subscriptions.empty();
+      }
+      final long periodMillis = unit.toMillis(period);
+      if ((wheel != null) && (periodMillis >= 1)) {
+        return scheduleOnWheel(timed, schedulersHook.onSchedule(action), unit.toMillis(initialDelay), periodMillis);
+      }
+
+      ContextAction c = new ContextAction(vertx, context, schedulersHook.onSchedule(action));
+      c.setDelayedPeriodic(unit.toMillis(initialDelay), periodMillis);
+      c.addParent(timed);
+      return c;
+    }
+
+    // Handler implementation
+
+    /** Context tick */
+    @Override
+    public void handle(Void event) {
+      drain();
+    }
+
+    /** Run queued actions, yielding to the context after tickBudget */
+    private void drain() {
+      int count = 0;
+      for (;;) {
+        BatchedAction a = queue.poll();
+        if ((a != null) && !unsubscribed) {
+          try {
+            a.run();
+          }
+          catch (RuntimeException | Error e) {
+            // Run the remaining actions on the next tick
+            if (wip.decrementAndGet() != 0) {
+              context.runOnContext(this);
+            }
+            throw e;
+          }
+        }
+        if (wip.decrementAndGet() == 0) {
+          return;
+        }
+        if (++count >= tickBudget) {
+          // Let other events on the context run
+          context.runOnContext(this);
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void unsubscribe() {
+      unsubscribed = true;
+      timed.unsubscribe();
+    }
+
+    @Override
+    public boolean isUnsubscribed() {
+      return unsubscribed;
+    }
+  }
+
   /** Worker */
   private class ContextWorker extends Scheduler.Worker {
 
@@ -279,6 +549,9 @@ public class ContextScheduler extends Scheduler {
       Action0 decoratedAction = schedulersHook.onSchedule(action);
 
       final long delayTimeMillis = unit.toMillis(delayTime);
+      if ((wheel != null) && (delayTimeMillis >= 1)) {
+        return scheduleOnWheel(innerSubscription, decoratedAction, delayTimeMillis, 0);
+      }
 
       ContextAction c = new ContextAction(vertx, context, decoratedAction);
       c.setTimer(delayTimeMillis);
@@ -296,6 +569,9 @@ public class ContextScheduler extends Scheduler {
 
       final long initialDelayMillis = unit.toMillis(initialDelay);
       final long periodMillis = unit.toMillis(period);
+      if ((wheel != null) && (periodMillis >= 1)) {
+        return scheduleOnWheel(innerSubscription, decoratedAction, initialDelayMillis, periodMillis);
+      }
 
       ContextAction c = new ContextAction(vertx, context, decoratedAction);
       c.setDelayedPeriodic(initialDelayMillis, periodMillis);
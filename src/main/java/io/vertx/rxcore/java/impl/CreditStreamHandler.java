@@ -0,0 +1,318 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.eventbus.EventBus;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.eventbus.ReplyException;
+import org.vertx.java.core.eventbus.ReplyFailure;
+import org.vertx.java.core.json.JsonObject;
+import rx.Subscriber;
+
+/** Handler that receives a credit-based stream of messages
+ *
+ * <p>The consumer registers a data address and sends the request to the producer with an initial grant of
+ * <code>credits</code>. The producer replies with its control address and then sends up to the granted
+ * number of messages to the data address without waiting for replies. As the subscriber consumes messages
+ * the consumer grants more credits (in batches of half the window), so at most <code>credits</code>
+ * messages are ever buffered.</p>
+ *
+ * <p>All protocol messages are JsonObjects, so request and stream values must be JSON-compatible.</p>
+ *
+ * <p>If an idle timeout is given the stream fails with a TIMEOUT ReplyException when no data arrives for
+ * that long while nothing is queued for the subscriber, and the producer is cancelled.</p>
+ *
+ **/
+public class CreditStreamHandler<R> extends SingleSubscriptionHandler<R,Message<JsonObject>> {
+
+  /** Request/data field: value */
+  public static final String BODY="body";
+
+  /** Request field: data address */
+  public static final String STREAM="stream";
+
+  /** Request/control field: credits granted */
+  public static final String CREDITS="credits";
+
+  /** Reply field: control address */
+  public static final String CONTROL="control";
+
+  /** Data field: end of stream */
+  public static final String END="end";
+
+  /** Data field: failure code */
+  public static final String FAILURE_CODE="failureCode";
+
+  /** Data field: failure message */
+  public static final String MESSAGE="message";
+
+  /** Control field: stop sending */
+  public static final String CANCEL="cancel";
+
+  /** Reply field reserved to mark a streamed reply (see {@link #isReplyStream}) */
+  public static final String REPLY_STREAM="__rxvertx.replyStream";
+
+  /** Value of REPLY_STREAM in a streamed reply */
+  public static final String REPLY_STREAM_MARKER="rxvertx.creditStream/1";
+
+  // Instance variables
+
+  /** Core bus */
+  protected final EventBus eventBus;
+
+  /** Producer address */
+  protected final String address;
+
+  /** Request */
+  protected final Object msg;
+
+  /** Window */
+  protected final int credits;
+
+  /** Request timeout */
+  protected final long timeout;
+
+  /** Vertx for the idle timer (or null) */
+  protected final Vertx vertx;
+
+  /** Idle timeout (or 0 if none) */
+  protected final long idleTimeout;
+
+  /** Idle timer (once streaming) */
+  private volatile IdleTimer idle;
+
+  /** Data address */
+  private String dataAddress;
+
+  /** Control address (once the producer has replied) */
+  private volatile String controlAddress;
+
+  /** Values received but not yet requested */
+  private final Queue<R> queue=new ConcurrentLinkedQueue<>();
+
+  /** Values consumed but not yet granted again */
+  private final AtomicInteger consumed=new AtomicInteger();
+
+  /** Drain work-in-progress */
+  private final AtomicInteger wip=new AtomicInteger();
+
+  /** Producer has finished */
+  private volatile boolean done;
+
+  /** Producer failure */
+  private volatile Throwable error;
+
+  // Public
+
+  /** Create new CreditStreamHandler */
+  public CreditStreamHandler(EventBus eventBus, String address, Object msg, int credits, long timeout) {
+    this(eventBus,address,msg,credits,timeout,null,0);
+  }
+
+  /** Create new CreditStreamHandler that fails if the stream is idle for idleTimeout msec (if vertx is not null) */
+  public CreditStreamHandler(EventBus eventBus, String address, Object msg, int credits, long timeout, Vertx vertx, long idleTimeout) {
+    if (credits<1)
+      throw new IllegalArgumentException("credits must be positive (credits="+credits+")");
+    if ((vertx!=null) && (idleTimeout<1))
+      throw new IllegalArgumentException("idleTimeout must be positive (idleTimeout="+idleTimeout+")");
+
+    this.eventBus=eventBus;
+    this.address=address;
+    this.msg=msg;
+    this.credits=credits;
+    this.timeout=timeout;
+    this.vertx=vertx;
+    this.idleTimeout=idleTimeout;
+  }
+
+  // SingleSubscriptionHandler implementation
+
+  /** Register data address and send the request */
+  @Override public void execute() {
+    JsonObject req=new JsonObject()
+      .putString(STREAM,register())
+      .putNumber(CREDITS,this.credits)
+      .putValue(BODY,this.msg);
+
+    this.eventBus.sendWithTimeout(this.address,req,this.timeout,new Handler<AsyncResult<Message<JsonObject>>>() {
+      public void handle(AsyncResult<Message<JsonObject>> res) {
+        if (res.failed())
+          fail(res.cause());
+        else
+          start(res.result().body().getString(CONTROL));
+      }
+    });
+  }
+
+  /** Release the data address, cancelling the producer if still running */
+  @Override public void onUnsubscribed() {
+    stopIdle();
+    unregister();
+    if (!this.done && (this.error==null))
+      control(new JsonObject().putBoolean(CANCEL,true));
+    this.queue.clear();
+  }
+
+  /** Subscriber requested more */
+  @Override public void onRequested() {
+    drain();
+  }
+
+  /** Handle data */
+  @Override public void handle(Message<JsonObject> m) {
+    IdleTimer t=this.idle;
+    if (t!=null)
+      t.touch();
+    JsonObject env=m.body();
+    if (env.containsField(END)) {
+      this.done=true;
+    }
+    else if (env.containsField(FAILURE_CODE)) {
+      this.error=new ReplyException(ReplyFailure.RECIPIENT_FAILURE,env.getInteger(FAILURE_CODE),env.getString(MESSAGE));
+    }
+    else {
+      this.queue.offer(value(m));
+    }
+    drain();
+  }
+
+  // Implementation
+
+  /** Register the data address and return it */
+  protected String register() {
+    this.dataAddress=UUID.randomUUID().toString();
+    this.eventBus.registerHandler(this.dataAddress,this);
+    return this.dataAddress;
+  }
+
+  /** Producer is streaming (cancel at once if already unsubscribed) */
+  protected void start(String controlAddress) {
+    this.controlAddress=controlAddress;
+    if (getSubscriber()==null) {
+      control(new JsonObject().putBoolean(CANCEL,true));
+      return;
+    }
+    if (this.vertx!=null) {
+      IdleTimer t=new IdleTimer(this.vertx,this.idleTimeout) {
+        @Override protected boolean waiting() {
+          return queue.isEmpty();
+        }
+        @Override protected void expired() {
+          control(new JsonObject().putBoolean(CANCEL,true));
+          error=new ReplyException(ReplyFailure.TIMEOUT,-1,"Stream idle (address="+address+",idleTimeout="+idleTimeout+")");
+          drain();
+        }
+      };
+      this.idle=t;
+      t.start();
+    }
+    drain();
+  }
+
+  /** Request failed before streaming */
+  protected void fail(Throwable e) {
+    this.error=e;
+    drain();
+  }
+
+  /** Producer answered with a single value instead of a stream */
+  protected void single(R value) {
+    this.queue.offer(value);
+    this.done=true;
+    drain();
+  }
+
+  /** Return true if body announces a streamed reply: a JsonObject holding only REPLY_STREAM set to REPLY_STREAM_MARKER and the CONTROL address */
+  public static boolean isReplyStream(Object body) {
+    if (!(body instanceof JsonObject))
+      return false;
+    JsonObject obj=(JsonObject)body;
+    return (obj.size()==2) && REPLY_STREAM_MARKER.equals(obj.getValue(REPLY_STREAM)) && (obj.getValue(CONTROL) instanceof String);
+  }
+
+  /** Return the value carried by a data message */
+  @SuppressWarnings("unchecked")
+  protected R value(Message<JsonObject> m) {
+    return (R)m.body().getValue(BODY);
+  }
+
+  /** Stop the idle timer (if started) */
+  private void stopIdle() {
+    IdleTimer t=this.idle;
+    if (t!=null)
+      t.stop();
+  }
+
+  /** Unregister the data address (if registered) */
+  private void unregister() {
+    if (this.dataAddress!=null)
+      this.eventBus.unregisterHandler(this.dataAddress,this);
+  }
+
+  /** Send control message (if the control address is known) */
+  private void control(JsonObject msg) {
+    String ctrl=this.controlAddress;
+    if (ctrl!=null)
+      this.eventBus.send(ctrl,msg);
+  }
+
+  /** Drain the queue to the subscriber, granting credits as values are consumed */
+  @SuppressWarnings("unchecked")
+  protected void drain() {
+    if (this.wip.getAndIncrement()!=0)
+      return;
+
+    int missed=1;
+    for (;;) {
+      Subscriber<? super R> s=getSubscriber();
+      if (s!=null) {
+        long r=this.requested.get();
+        long e=0;
+        while (e!=r) {
+          R next=this.queue.poll();
+          if (next==null)
+            break;
+          s.onNext(next);
+          e++;
+        }
+        if (e>0) {
+          consumeRequested(e);
+          this.consumed.addAndGet((int)e);
+        }
+
+        // Grant in batches to halve the control traffic
+        int c=this.consumed.get();
+        if ((c>=Math.max(1,this.credits/2)) && (this.controlAddress!=null)) {
+          this.consumed.addAndGet(-c);
+          control(new JsonObject().putNumber(CREDITS,c));
+          IdleTimer t=this.idle;
+          if (t!=null)
+            t.touch();
+        }
+
+        Throwable err=this.error;
+        if (err!=null) {
+          stopIdle();
+          unregister();
+          this.queue.clear();
+          fireError(err);
+        }
+        else if (this.done && this.queue.isEmpty()) {
+          stopIdle();
+          unregister();
+          fireComplete();
+        }
+      }
+
+      missed=this.wip.addAndGet(-missed);
+      if (missed==0)
+        return;
+    }
+  }
+}
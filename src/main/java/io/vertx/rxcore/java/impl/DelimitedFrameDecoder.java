@@ -0,0 +1,101 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.Queue;
+
+import org.vertx.java.core.buffer.Buffer;
+
+/** Split an Observable<Buffer> into records separated by a delimiter
+ *
+ * <p>The delimiter is removed from each record. Trailing bytes after the last delimiter are emitted as a
+ * final record when the source completes. The delimiter may span chunks.</p>
+ *
+ **/
+public class DelimitedFrameDecoder extends FrameDecoder {
+
+  // Definitions
+
+  /** Delimiter scanner */
+  protected class DelimitedScanner extends Scanner {
+
+    /** Delimiter bytes matched so far */
+    private int matched;
+
+    /** Find records */
+    protected void scan(Buffer buf, Queue<Buffer> out) {
+      int len=buf.length();
+      int start=0;
+
+      for (int i=0;i<len;i++) {
+        byte b=buf.getByte(i);
+        while ((this.matched>0) && (delimiter[this.matched]!=b))
+          this.matched=fallback[this.matched-1];
+        if (delimiter[this.matched]==b)
+          this.matched++;
+
+        if (this.matched==delimiter.length) {
+          this.matched=0;
+          int end=i+1;
+          if (this.partial==null) {
+            checkSize(end-start-delimiter.length);
+            out.offer(slice(buf,start,end-start-delimiter.length));
+          }
+          else {
+            // Delimiter may begin in the kept bytes
+            int size=this.partial.length()+end-delimiter.length;
+            checkSize(size);
+            keep(buf,0,end);
+            Buffer rec=take();
+            out.offer(slice(rec,0,size));
+          }
+          start=end;
+        }
+        else {
+          // Fail before buffering an oversized record
+          checkSize(((this.partial==null)?0:this.partial.length())+(i+1-start)-this.matched);
+        }
+      }
+
+      keep(buf,start,len-start);
+    }
+
+    /** Emit trailing bytes */
+    protected void complete(Queue<Buffer> out) {
+      if (this.partial!=null)
+        out.offer(take());
+    }
+  }
+
+  // Instance variables
+
+  /** Delimiter */
+  protected final byte[] delimiter;
+
+  /** Delimiter prefix table (longest proper prefix that is also a suffix) */
+  protected final int[] fallback;
+
+  // Public
+
+  /** Create new DelimitedFrameDecoder */
+  public DelimitedFrameDecoder(byte[] delimiter, int maxFrameSize) {
+    super(maxFrameSize);
+    if ((delimiter==null) || (delimiter.length==0))
+      throw new IllegalArgumentException("delimiter must not be empty");
+
+    this.delimiter=delimiter.clone();
+    this.fallback=new int[delimiter.length];
+    for (int i=1,k=0;i<delimiter.length;i++) {
+      while ((k>0) && (delimiter[i]!=delimiter[k]))
+        k=this.fallback[k-1];
+      if (delimiter[i]==delimiter[k])
+        k++;
+      this.fallback[i]=k;
+    }
+  }
+
+  // Implementation
+
+  /** Create scanner */
+  protected Scanner createScanner() {
+    return new DelimitedScanner();
+  }
+}
@@ -0,0 +1,241 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.buffer.Buffer;
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+
+/** Operator that splits an Observable<Buffer> with arbitrary chunking into records
+ *
+ * <p>Subclasses provide a Scanner that finds record boundaries. A record that lies inside a single chunk is
+ * emitted as a slice of that chunk without copying; only records that span chunks are copied, and only
+ * the bytes of that record are kept between chunks. Records larger than <code>maxFrameSize</code> fail
+ * the stream before they are buffered.</p>
+ *
+ * <p>Records share memory with the source chunks, so the source must not reuse a Buffer after emitting it
+ * (Vert.x streams do not).</p>
+ *
+ * <p>Records are emitted when requested and the source is only requested when all records found so far
+ * have been consumed.</p>
+ *
+ **/
+public abstract class FrameDecoder implements Observable.Operator<Buffer,Buffer> {
+
+  // Definitions
+
+  /** Per-subscription record scanner */
+  protected abstract class Scanner {
+
+    /** Bytes of the current record from previous chunks */
+    protected Buffer partial;
+
+    /** Find complete records in the chunk, adding them to out */
+    protected abstract void scan(Buffer buf, Queue<Buffer> out);
+
+    /** Source completed (records may be added, or an exception thrown for an incomplete record) */
+    protected abstract void complete(Queue<Buffer> out);
+
+    /** Zero-copy slice of buf */
+    protected Buffer slice(Buffer buf, int start, int len) {
+      return new Buffer(buf.getByteBuf().slice(start,len));
+    }
+
+    /** Keep bytes of an incomplete record */
+    protected void keep(Buffer buf, int start, int len) {
+      if (len==0)
+        return;
+      if (this.partial==null)
+        this.partial=new Buffer(Math.max(len,64));
+      this.partial.appendBuffer(buf,start,len);
+    }
+
+    /** Take the kept bytes */
+    protected Buffer take() {
+      Buffer res=this.partial;
+      this.partial=null;
+      return res;
+    }
+
+    /** Check record size */
+    protected void checkSize(long size) {
+      if (size>maxFrameSize)
+        throw new RuntimeException("Frame exceeds maximum size (size="+size+",maxFrameSize="+maxFrameSize+")");
+    }
+  }
+
+  // Instance variables
+
+  /** Maximum size of a single record */
+  protected final int maxFrameSize;
+
+  // Public
+
+  /** Create new FrameDecoder */
+  protected FrameDecoder(int maxFrameSize) {
+    if (maxFrameSize<1)
+      throw new IllegalArgumentException("maxFrameSize must be positive (maxFrameSize="+maxFrameSize+")");
+    this.maxFrameSize=maxFrameSize;
+  }
+
+  // Operator implementation
+
+  /** Frame for each subscriber */
+  public Subscriber<? super Buffer> call(Subscriber<? super Buffer> child) {
+    FrameSubscriber parent=new FrameSubscriber(child,createScanner());
+    child.add(parent);
+    child.setProducer(parent.producer);
+    return parent;
+  }
+
+  // Implementation
+
+  /** Create scanner for a subscription */
+  protected abstract Scanner createScanner();
+
+  /** Subscriber to the source */
+  protected class FrameSubscriber extends Subscriber<Buffer> {
+
+    /** Target */
+    private final Subscriber<? super Buffer> child;
+
+    /** Record scanner */
+    private final Scanner scanner;
+
+    /** Records found but not yet requested */
+    private final Queue<Buffer> queue=new ConcurrentLinkedQueue<>();
+
+    /** Requested by child */
+    private final AtomicLong requested=new AtomicLong();
+
+    /** Drain work-in-progress */
+    private final AtomicInteger wip=new AtomicInteger();
+
+    /** A chunk has been requested from the source */
+    private final AtomicBoolean reading=new AtomicBoolean();
+
+    /** Source completed */
+    private volatile boolean done;
+
+    /** Failure */
+    private volatile Throwable error;
+
+    /** Producer for the child */
+    final Producer producer=new Producer() {
+      public void request(long n) {
+        if (n<=0)
+          return;
+        for (;;) {
+          long cur=requested.get();
+          long next=cur+n;
+          if (next<0)
+            next=Long.MAX_VALUE;
+          if (requested.compareAndSet(cur,next))
+            break;
+        }
+        drain();
+      }
+    };
+
+    /** Create new FrameSubscriber */
+    public FrameSubscriber(Subscriber<? super Buffer> child, Scanner scanner) {
+      this.child=child;
+      this.scanner=scanner;
+    }
+
+    // Subscriber implementation
+
+    /** Request the first chunk (unless already requested by the child) */
+    @Override public void onStart() {
+      if (this.reading.compareAndSet(false,true))
+        request(1);
+    }
+
+    /** Scan chunk */
+    public void onNext(Buffer buf) {
+      this.reading.set(false);
+      if ((this.error!=null) || this.done)
+        return;
+      try {
+        this.scanner.scan(buf,this.queue);
+      }
+      catch(Throwable t) {
+        unsubscribe();
+        this.scanner.partial=null;
+        this.error=t;
+      }
+      drain();
+    }
+
+    /** Source failure */
+    public void onError(Throwable e) {
+      this.error=e;
+      drain();
+    }
+
+    /** Source completed */
+    public void onCompleted() {
+      if (this.error==null) {
+        try {
+          this.scanner.complete(this.queue);
+        }
+        catch(Throwable t) {
+          this.error=t;
+        }
+      }
+      this.done=true;
+      drain();
+    }
+
+    // Implementation
+
+    /** Emit requested records, and request more when the queue is empty */
+    private void drain() {
+      if (this.wip.getAndIncrement()!=0)
+        return;
+
+      int missed=1;
+      for (;;) {
+        Throwable err=this.error;
+        if (err!=null) {
+          this.queue.clear();
+          this.child.onError(err);
+          return;
+        }
+
+        long r=this.requested.get();
+        long e=0;
+        while (e!=r) {
+          if (this.child.isUnsubscribed())
+            return;
+          Buffer next=this.queue.poll();
+          if (next==null)
+            break;
+          this.child.onNext(next);
+          e++;
+        }
+        if ((e>0) && (r!=Long.MAX_VALUE))
+          this.requested.addAndGet(-e);
+
+        if (this.queue.isEmpty()) {
+          if (this.done) {
+            this.child.onCompleted();
+            return;
+          }
+          // Only read more once every record found has been consumed
+          if ((this.requested.get()>0) && this.reading.compareAndSet(false,true))
+            request(1);
+        }
+
+        missed=this.wip.addAndGet(-missed);
+        if (missed==0)
+          return;
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.vertx.java.core.json.JsonObject;
+
+/** Lock-free histogram of durations with power-of-two microsecond buckets
+ *
+ * <p>Recording is a few atomic increments. Percentiles are estimated as the upper bound of the bucket that
+ * contains them, so they are accurate to within a factor of 2.</p>
+ *
+ **/
+public class Histogram {
+
+  /** Buckets (bucket i holds durations below 2^i us) */
+  private static final int BUCKETS=40;
+
+  // Instance variables
+
+  /** Counts */
+  private final AtomicLongArray counts=new AtomicLongArray(BUCKETS);
+
+  /** Total count */
+  private final AtomicLong count=new AtomicLong();
+
+  /** Total duration (us) */
+  private final AtomicLong sum=new AtomicLong();
+
+  /** Maximum duration (us) */
+  private final AtomicLong max=new AtomicLong();
+
+  // Public
+
+  /** Record duration */
+  public void record(long nanos) {
+    long us=Math.max(0,nanos/1000);
+    int bucket=Math.min(BUCKETS-1,64-Long.numberOfLeadingZeros(us));
+    this.counts.incrementAndGet(bucket);
+    this.count.incrementAndGet();
+    this.sum.addAndGet(us);
+    for (;;) {
+      long m=this.max.get();
+      if ((us<=m) || this.max.compareAndSet(m,us))
+        break;
+    }
+  }
+
+  /** Return number of durations */
+  public long count() {
+    return this.count.get();
+  }
+
+  /** Return mean duration (us) */
+  public long mean() {
+    long n=this.count.get();
+    return (n==0)?0:this.sum.get()/n;
+  }
+
+  /** Return maximum duration (us) */
+  public long max() {
+    return this.max.get();
+  }
+
+  /** Return estimated duration (us) at percentile p (0..100) */
+  public long percentile(double p) {
+    long n=this.count.get();
+    if (n==0)
+      return 0;
+
+    long target=(long)Math.ceil(p/100*n);
+    long seen=0;
+    for (int i=0;i<BUCKETS;i++) {
+      seen+=this.counts.get(i);
+      if (seen>=target)
+        return Math.min(this.max.get(),(i==0)?0:(1L<<i)-1);
+    }
+    return this.max.get();
+  }
+
+  /** Return summary as JSON */
+  public JsonObject toJson() {
+    return new JsonObject()
+      .putNumber("count",count())
+      .putNumber("meanMicros",mean())
+      .putNumber("p50Micros",percentile(50))
+      .putNumber("p95Micros",percentile(95))
+      .putNumber("p99Micros",percentile(99))
+      .putNumber("maxMicros",max());
+  }
+}
@@ -0,0 +1,98 @@
+package io.vertx.rxcore.java.impl;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+
+/** Timer that expires once there has been no activity for <code>idleTimeout</code> msec
+ *
+ * <p>{@link #touch} records activity without rescheduling, so it is cheap to call for every message; the
+ * single Vert.x timer is re-armed for the remaining time when it fires. If {@link #waiting} returns false
+ * when the timeout is reached (eg the other side is waiting for us) the timer starts again instead of
+ * expiring.</p>
+ *
+ **/
+public abstract class IdleTimer implements Handler<Long> {
+
+  // Instance variables
+
+  /** Vertx */
+  private final Vertx vertx;
+
+  /** Idle timeout (msec) */
+  private final long idleTimeout;
+
+  /** Time of last activity (msec) */
+  private volatile long last;
+
+  /** Pending timer (or -1) */
+  private volatile long timerId=-1;
+
+  /** Stopped or expired */
+  private volatile boolean stopped;
+
+  // Public
+
+  /** Create new IdleTimer */
+  public IdleTimer(Vertx vertx, long idleTimeout) {
+    if (idleTimeout<1)
+      throw new IllegalArgumentException("idleTimeout must be positive (idleTimeout="+idleTimeout+")");
+
+    this.vertx=vertx;
+    this.idleTimeout=idleTimeout;
+  }
+
+  /** Start timing */
+  public void start() {
+    touch();
+    this.timerId=this.vertx.setTimer(this.idleTimeout,this);
+  }
+
+  /** Record activity */
+  public void touch() {
+    this.last=now();
+  }
+
+  /** Stop timing */
+  public void stop() {
+    this.stopped=true;
+    long id=this.timerId;
+    if (id!=-1)
+      this.vertx.cancelTimer(id);
+  }
+
+  // Handler implementation
+
+  /** Expire, or re-arm for the time remaining */
+  public void handle(Long id) {
+    if (this.stopped)
+      return;
+
+    long idle=now()-this.last;
+    if (idle<this.idleTimeout) {
+      this.timerId=this.vertx.setTimer(this.idleTimeout-idle,this);
+    }
+    else if (!waiting()) {
+      start();
+    }
+    else {
+      this.stopped=true;
+      this.timerId=-1;
+      expired();
+    }
+  }
+
+  // Implementation
+
+  /** Return true if idle time counts (default: always) */
+  protected boolean waiting() {
+    return true;
+  }
+
+  /** Called once when idle for too long */
+  protected abstract void expired();
+
+  /** Return current time (msec) */
+  private static long now() {
+    return System.nanoTime()/1000000;
+  }
+}
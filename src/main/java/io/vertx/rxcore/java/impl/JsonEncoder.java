@@ -0,0 +1,218 @@
+package io.vertx.rxcore.java.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.EncodeException;
+import org.vertx.java.core.json.JsonObject;
+
+/** Encode JsonObject directly to bytes
+ *
+ * <p>JsonObject.encode() followed by String.getBytes() creates a String, a byte[] and then a copy in the
+ * Buffer. This encoder serialises the object into a per-thread scratch buffer that is reused between calls
+ * and copies the result once into an exactly sized Buffer (or appends it to an existing one). UTF-8 is
+ * written directly by Jackson; other charsets are encoded by a Writer over the same scratch buffer.</p>
+ *
+ * <p>The output is the same as <code>in.encode().getBytes(charset)</code></p>
+ *
+ **/
+public class JsonEncoder {
+
+  /** UTF-8 */
+  public static final Charset UTF8=Charset.forName("UTF-8");
+
+  /** Initial scratch buffer size */
+  protected static final int SCRATCH_SIZE=1024;
+
+  /** Largest scratch buffer kept for reuse */
+  protected static final int MAX_SCRATCH_SIZE=64*1024;
+
+  /** Shared mapper (thread-safe once configured) */
+  private static final ObjectMapper mapper=new ObjectMapper();
+
+  /** Resolved charsets */
+  private static final Map<String,Charset> charsets=new ConcurrentHashMap<>();
+
+  /** Per-thread scratch buffer */
+  private static final ThreadLocal<Scratch> scratch=new ThreadLocal<Scratch>() {
+    @Override protected Scratch initialValue() {
+      return new Scratch();
+    }
+  };
+
+  // Definitions
+
+  /** Access to JsonObject content without copying (through the protected API) */
+  private static final class JsonAccess extends JsonObject {
+
+    /** Never serialized */
+    private static final long serialVersionUID=1L;
+
+    /** Field holding the content */
+    private static final String CONTENT="content";
+
+    /** Create new JsonAccess holding map without conversion */
+    JsonAccess(Map<String,Object> map) {
+      super(map,false);
+    }
+
+    /** Return the map underlying obj */
+    @SuppressWarnings("unchecked")
+    static Map<String,Object> content(JsonObject obj) {
+      JsonAccess holder=new JsonAccess(new HashMap<String,Object>(2));
+      // putObject stores the map itself
+      holder.putObject(CONTENT,obj);
+      return (Map<String,Object>)holder.map.get(CONTENT);
+    }
+
+    /** Return a JsonObject wrapping map */
+    static JsonObject wrap(Map<String,Object> map) {
+      // getObject wraps the map without copying
+      return new JsonAccess(Collections.<String,Object>singletonMap(CONTENT,map)).getObject(CONTENT);
+    }
+  }
+
+  /** Reusable output buffer */
+  protected static class Scratch extends ByteArrayOutputStream {
+
+    /** In use (guards against re-entrant use on the same thread) */
+    boolean busy;
+
+    /** Create new Scratch */
+    Scratch() {
+      super(SCRATCH_SIZE);
+    }
+
+    /** Copy the contents to the end of target */
+    void copyTo(Buffer target) {
+      target.appendBytes(this.buf,0,this.count);
+    }
+
+    /** Copy the contents */
+    byte[] copy() {
+      return Arrays.copyOf(this.buf,this.count);
+    }
+
+    /** Reset for reuse, dropping the buffer if it has grown too large */
+    void release() {
+      if (this.buf.length>MAX_SCRATCH_SIZE)
+        this.buf=new byte[SCRATCH_SIZE];
+      this.count=0;
+      this.busy=false;
+    }
+  }
+
+  // Public
+
+  /** Resolve charset by name (cached) */
+  public static Charset charset(String name) {
+    Charset cs=charsets.get(name);
+    if (cs==null) {
+      try {
+        cs=Charset.forName(name);
+      }
+      catch(IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unsupported charset (charset="+name+")",e);
+      }
+      charsets.put(name,cs);
+    }
+    return cs;
+  }
+
+  /** Encode as UTF-8 */
+  public static Buffer encode(JsonObject in) {
+    return encode(in,UTF8);
+  }
+
+  /** Encode */
+  public static Buffer encode(JsonObject in, Charset charset) {
+    Scratch s=acquire();
+    try {
+      write(in,charset,s);
+      Buffer res=new Buffer(s.size());
+      s.copyTo(res);
+      return res;
+    }
+    finally {
+      release(s);
+    }
+  }
+
+  /** Encode as UTF-8 to the end of target */
+  public static Buffer encode(JsonObject in, Buffer target) {
+    Scratch s=acquire();
+    try {
+      write(in,UTF8,s);
+      s.copyTo(target);
+      return target;
+    }
+    finally {
+      release(s);
+    }
+  }
+
+  /** Encode to byte[] */
+  public static byte[] encodeBytes(JsonObject in, Charset charset) {
+    Scratch s=acquire();
+    try {
+      write(in,charset,s);
+      return s.copy();
+    }
+    finally {
+      release(s);
+    }
+  }
+
+  // Implementation
+
+  /** Get the scratch buffer for this thread */
+  protected static Scratch acquire() {
+    Scratch s=scratch.get();
+    // Nested use gets a private buffer
+    if (s.busy)
+      return new Scratch();
+    s.busy=true;
+    return s;
+  }
+
+  /** Return the scratch buffer */
+  protected static void release(Scratch s) {
+    s.release();
+  }
+
+  /** Serialise to scratch */
+  protected static void write(JsonObject in, Charset charset, Scratch out) {
+    try {
+      Object map=map(in);
+      if (charset==UTF8 || UTF8.equals(charset)) {
+        mapper.writeValue(out,map);
+      }
+      else {
+        Writer w=new OutputStreamWriter(out,charset);
+        mapper.writeValue(w,map);
+      }
+    }
+    catch(Exception e) {
+      throw new EncodeException("Failed to encode as JSON: "+e.getMessage());
+    }
+  }
+
+  /** Return the map underlying the JsonObject (without copying) */
+  public static Map<String,Object> map(JsonObject in) {
+    return JsonAccess.content(in);
+  }
+
+  /** Wrap map as a JsonObject without copying or converting (values must already be JSON-compatible) */
+  public static JsonObject wrap(Map<String,Object> map) {
+    return JsonAccess.wrap(map);
+  }
+}
@@ -0,0 +1,352 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.DecodeException;
+import org.vertx.java.core.json.JsonObject;
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+
+/** Operator that incrementally decodes an Observable<Buffer> of UTF-8 JSON into JsonObjects
+ *
+ * <p>Accepts either a top-level array of objects (separated by single commas) or a sequence of objects separated by whitespace (eg
+ * newline-delimited JSON). Object boundaries are found by scanning the bytes as they arrive so only the
+ * current chunk and the current object are held in memory. An object that lies inside a single chunk is
+ * decoded in place; only objects that span chunks are copied.</p>
+ *
+ * <p>Objects are decoded when requested and the source is only requested when all decoded objects have been
+ * consumed.</p>
+ *
+ **/
+public class JsonStreamDecoder implements Observable.Operator<JsonObject,Buffer> {
+
+  /** Shared mapper (thread-safe once configured) */
+  private static final ObjectMapper mapper=new ObjectMapper();
+
+  // Instance variables
+
+  /** Maximum size of a single object */
+  protected final int maxObjectSize;
+
+  // Public
+
+  /** Create new JsonStreamDecoder */
+  public JsonStreamDecoder() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /** Create new JsonStreamDecoder */
+  public JsonStreamDecoder(int maxObjectSize) {
+    if (maxObjectSize<2)
+      throw new IllegalArgumentException("maxObjectSize must be at least 2 (maxObjectSize="+maxObjectSize+")");
+    this.maxObjectSize=maxObjectSize;
+  }
+
+  // Operator implementation
+
+  /** Decode for each subscriber */
+  public Subscriber<? super Buffer> call(Subscriber<? super JsonObject> child) {
+    DecodeSubscriber parent=new DecodeSubscriber(child);
+    child.add(parent);
+    child.setProducer(parent.producer);
+    return parent;
+  }
+
+  // Implementation
+
+  /** Decode object bytes */
+  @SuppressWarnings("unchecked")
+  protected static JsonObject decode(Buffer buf) {
+    try {
+      ByteBuf bb=buf.getByteBuf();
+      Map<String,Object> map;
+      if (bb.hasArray())
+        map=mapper.readValue(bb.array(),bb.arrayOffset()+bb.readerIndex(),bb.readableBytes(),Map.class);
+      else
+        map=mapper.readValue(buf.getBytes(),Map.class);
+      return new JsonObject(map);
+    }
+    catch(Exception e) {
+      throw new DecodeException("Failed to decode:"+e.getMessage());
+    }
+  }
+
+  /** Subscriber to the source */
+  protected class DecodeSubscriber extends Subscriber<Buffer> {
+
+    /** Scanner states */
+    private static final int START=0, BETWEEN=1, OBJECT=2, STRING=3, ESCAPE=4, END=5;
+
+    /** Target */
+    private final Subscriber<? super JsonObject> child;
+
+    /** Objects found but not yet requested (as raw bytes) */
+    private final Queue<Buffer> queue=new ConcurrentLinkedQueue<>();
+
+    /** Requested by child */
+    private final AtomicLong requested=new AtomicLong();
+
+    /** Drain work-in-progress */
+    private final AtomicInteger wip=new AtomicInteger();
+
+    /** A chunk has been requested from the source */
+    private final AtomicBoolean reading=new AtomicBoolean();
+
+    /** Source completed */
+    private volatile boolean done;
+
+    /** Failure */
+    private volatile Throwable error;
+
+    /** Scanner state */
+    private int state=START;
+
+    /** Top-level array */
+    private boolean array;
+
+    /** Array element ended, so a separator (or the end of the array) is required */
+    private boolean element;
+
+    /** Last array token was a separator, so an element is required */
+    private boolean separator;
+
+    /** Nesting depth within the current object */
+    private int depth;
+
+    /** Bytes of the current object from previous chunks */
+    private Buffer partial;
+
+    /** Producer for the child */
+    final Producer producer=new Producer() {
+      public void request(long n) {
+        if (n<=0)
+          return;
+        for (;;) {
+          long cur=requested.get();
+          long next=cur+n;
+          if (next<0)
+            next=Long.MAX_VALUE;
+          if (requested.compareAndSet(cur,next))
+            break;
+        }
+        drain();
+      }
+    };
+
+    /** Create new DecodeSubscriber */
+    public DecodeSubscriber(Subscriber<? super JsonObject> child) {
+      this.child=child;
+    }
+
+    // Subscriber implementation
+
+    /** Request the first chunk (unless already requested by the child) */
+    @Override public void onStart() {
+      if (this.reading.compareAndSet(false,true))
+        request(1);
+    }
+
+    /** Scan chunk */
+    public void onNext(Buffer buf) {
+      this.reading.set(false);
+      if ((this.error!=null) || this.done)
+        return;
+      try {
+        scan(buf);
+      }
+      catch(Throwable t) {
+        unsubscribe();
+        this.error=t;
+      }
+      drain();
+    }
+
+    /** Source failure */
+    public void onError(Throwable e) {
+      this.error=e;
+      drain();
+    }
+
+    /** Source completed */
+    public void onCompleted() {
+      if ((this.error==null) && (this.state!=START) && (this.state!=BETWEEN) && (this.state!=END))
+        this.error=new DecodeException("Unexpected end of JSON stream");
+      else if ((this.error==null) && this.array && (this.state!=END))
+        this.error=new DecodeException("Unterminated JSON array");
+      this.done=true;
+      drain();
+    }
+
+    // Implementation
+
+    /** Scan a chunk for complete objects */
+    private void scan(Buffer buf) {
+      int len=buf.length();
+      int start=(this.state==OBJECT || this.state==STRING || this.state==ESCAPE)?0:-1;
+
+      for (int i=0;i<len;i++) {
+        byte b=buf.getByte(i);
+        switch(this.state) {
+          case START:
+          case BETWEEN:
+            if (isWhitespace(b))
+              continue;
+            if (b=='{') {
+              if (this.element)
+                throw new DecodeException("Expected ',' between JSON array elements");
+              this.state=OBJECT;
+              this.depth=1;
+              start=i;
+            }
+            else if ((this.state==START) && (b=='[')) {
+              this.array=true;
+              this.state=BETWEEN;
+            }
+            else if (this.array && (this.state==BETWEEN) && (b==',')) {
+              if (!this.element)
+                throw new DecodeException("Unexpected ',' in JSON array");
+              this.element=false;
+              this.separator=true;
+            }
+            else if (this.array && (b==']')) {
+              if (this.separator)
+                throw new DecodeException("Unexpected ']' after ',' in JSON array");
+              this.state=END;
+            }
+            else {
+              throw new DecodeException("Unexpected character '"+(char)b+"' between JSON objects");
+            }
+            break;
+          case OBJECT:
+            if (b=='"') {
+              this.state=STRING;
+            }
+            else if ((b=='{') || (b=='[')) {
+              this.depth++;
+            }
+            else if ((b=='}') || (b==']')) {
+              if (--this.depth==0) {
+                complete(buf,start,i+1);
+                start=-1;
+                this.state=BETWEEN;
+                this.element=this.array;
+                this.separator=false;
+              }
+            }
+            break;
+          case STRING:
+            if (b=='\\')
+              this.state=ESCAPE;
+            else if (b=='"')
+              this.state=OBJECT;
+            break;
+          case ESCAPE:
+            this.state=STRING;
+            break;
+          case END:
+            if (!isWhitespace(b))
+              throw new DecodeException("Unexpected character '"+(char)b+"' after JSON array");
+            break;
+        }
+      }
+
+      // Keep the incomplete object
+      if (start>=0) {
+        if (this.partial==null)
+          this.partial=new Buffer(len-start);
+        this.partial.appendBuffer(buf,start,len-start);
+        checkSize(this.partial.length());
+      }
+    }
+
+    /** Object ends at [start,end) of buf */
+    private void complete(Buffer buf, int start, int end) {
+      Buffer obj;
+      if (this.partial==null) {
+        checkSize(end-start);
+        // Slice in place
+        obj=new Buffer(buf.getByteBuf().slice(start,end-start));
+      }
+      else {
+        checkSize(this.partial.length()+(end-start));
+        obj=this.partial.appendBuffer(buf,start,end-start);
+        this.partial=null;
+      }
+      this.queue.offer(obj);
+    }
+
+    /** Check object size */
+    private void checkSize(int size) {
+      if (size>maxObjectSize)
+        throw new DecodeException("JSON object exceeds maximum size (size="+size+",maxObjectSize="+maxObjectSize+")");
+    }
+
+    /** Emit requested objects, and request more when the queue is empty */
+    private void drain() {
+      if (this.wip.getAndIncrement()!=0)
+        return;
+
+      int missed=1;
+      for (;;) {
+        Throwable err=this.error;
+        if (err!=null) {
+          this.queue.clear();
+          this.child.onError(err);
+          return;
+        }
+
+        long r=this.requested.get();
+        long e=0;
+        while (e!=r) {
+          if (this.child.isUnsubscribed())
+            return;
+          Buffer next=this.queue.poll();
+          if (next==null)
+            break;
+          JsonObject obj;
+          try {
+            obj=decode(next);
+          }
+          catch(Throwable t) {
+            unsubscribe();
+            this.queue.clear();
+            this.child.onError(t);
+            return;
+          }
+          this.child.onNext(obj);
+          e++;
+        }
+        if ((e>0) && (r!=Long.MAX_VALUE))
+          this.requested.addAndGet(-e);
+
+        if (this.queue.isEmpty()) {
+          if (this.done) {
+            this.child.onCompleted();
+            return;
+          }
+          // Only read more once everything decoded has been consumed
+          if ((this.requested.get()>0) && this.reading.compareAndSet(false,true))
+            request(1);
+        }
+
+        missed=this.wip.addAndGet(-missed);
+        if (missed==0)
+          return;
+      }
+    }
+
+    /** JSON whitespace */
+    private boolean isWhitespace(byte b) {
+      return (b==' ') || (b=='\n') || (b=='\r') || (b=='\t');
+    }
+  }
+}
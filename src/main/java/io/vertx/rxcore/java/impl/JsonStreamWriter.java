@@ -0,0 +1,282 @@
+package io.vertx.rxcore.java.impl;
+
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.streams.WriteStream;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/** Write an Observable<JsonObject> to a WriteStream as a JSON array or newline-delimited JSON
+ *
+ * <p>Records are coalesced into write buffers of around <code>batchSize</code> bytes. A partly filled buffer
+ * is written at the end of the current Context tick, so records produced together are written together
+ * without delaying a slow source.</p>
+ *
+ * <p>Records are requested from the source in groups of <code>prefetch</code> and only while the WriteStream
+ * has room. When the WriteStream is full the current buffer is held until its drainHandler is called.</p>
+ *
+ * <p>The total number of bytes written is emitted on completion. The WriteStream is not ended.</p>
+ *
+ * <p>The writer owns the drainHandler and exceptionHandler of the WriteStream while it runs, replacing any
+ * set by the caller, and clears them when it finishes, fails or is unsubscribed.</p>
+ *
+ **/
+public class JsonStreamWriter implements Observable.OnSubscribe<Long> {
+
+  /** Output format */
+  public enum Format {
+    /** Single JSON array */
+    ARRAY,
+    /** One object per line */
+    NDJSON
+  }
+
+  /** Default write buffer size */
+  public static final int DEFAULT_BATCH_SIZE=8*1024;
+
+  /** Default records requested at a time */
+  public static final int DEFAULT_PREFETCH=64;
+
+  // Definitions
+
+  /** Subscriber to the source */
+  protected class WriterSubscriber extends Subscriber<JsonObject> implements Handler<Void> {
+
+    /** Target */
+    private final Subscriber<? super Long> target;
+
+    /** Current write buffer */
+    private Buffer batch;
+
+    /** Records written */
+    private long count;
+
+    /** Bytes written */
+    private long total;
+
+    /** Requested but not yet received */
+    private long outstanding;
+
+    /** End-of-tick flush pending */
+    private boolean flushScheduled;
+
+    /** Source completed */
+    private boolean srcDone;
+
+    /** Writer finished */
+    private boolean done;
+
+    /** End-of-tick flush */
+    private final Handler<Void> tickFlush=new Handler<Void>() {
+      public void handle(Void v) {
+        flushScheduled=false;
+        if (done)
+          return;
+        flush();
+        requestMore();
+      }
+    };
+
+    /** Create new WriterSubscriber */
+    public WriterSubscriber(Subscriber<? super Long> target) {
+      this.target=target;
+      this.batch=new Buffer(batchSize);
+    }
+
+    // Subscriber implementation
+
+    /** Start with no demand (requested once the WriteStream has room) */
+    @Override public void onStart() {
+      request(0);
+    }
+
+    /** Next record */
+    public void onNext(JsonObject obj) {
+      if (this.done)
+        return;
+
+      if (this.outstanding>0)
+        this.outstanding--;
+
+      if (format==Format.ARRAY)
+        this.batch.appendString((this.count==0)?"[":",");
+      JsonEncoder.encode(obj,this.batch);
+      if (format==Format.NDJSON)
+        this.batch.appendString("\n");
+      this.count++;
+
+      if (this.batch.length()>=batchSize)
+        flush();
+      else
+        scheduleFlush();
+
+      requestMore();
+    }
+
+    /** Source failure */
+    public void onError(Throwable e) {
+      fail(e);
+    }
+
+    /** Source completed */
+    public void onCompleted() {
+      if (this.done)
+        return;
+
+      this.srcDone=true;
+      if (format==Format.ARRAY)
+        this.batch.appendString((this.count==0)?"[]":"]");
+      flush();
+      if (this.batch.length()==0)
+        finish();
+    }
+
+    // Handler implementation
+
+    /** Drained */
+    public void handle(Void v) {
+      if (this.done)
+        return;
+
+      flush();
+      if (this.srcDone && (this.batch.length()==0))
+        finish();
+      else
+        requestMore();
+    }
+
+    // Implementation
+
+    /** Start writing */
+    protected void start() {
+      out.drainHandler(this);
+      out.exceptionHandler(new Handler<Throwable>() {
+        public void handle(Throwable t) {
+          fail(t);
+        }
+      });
+      // Release the handlers on finish, failure or unsubscribe
+      add(Subscriptions.create(new Action0() {
+        public void call() {
+          release();
+        }
+      }));
+      requestMore();
+    }
+
+    /** Request more records if none are outstanding and the WriteStream has room */
+    protected void requestMore() {
+      if (this.srcDone || (this.outstanding>0) || out.writeQueueFull())
+        return;
+
+      this.outstanding=prefetch;
+      request(prefetch);
+    }
+
+    /** Write the current buffer if the WriteStream has room */
+    protected void flush() {
+      if ((this.batch.length()==0) || out.writeQueueFull())
+        return;
+
+      out.write(this.batch);
+      this.total+=this.batch.length();
+      this.batch=new Buffer(batchSize);
+    }
+
+    /** Flush at the end of the current tick */
+    protected void scheduleFlush() {
+      if (this.flushScheduled)
+        return;
+
+      this.flushScheduled=true;
+      context.runOnContext(this.tickFlush);
+    }
+
+    /** Finish */
+    protected void finish() {
+      this.done=true;
+      unsubscribe();
+      this.target.onNext(this.total);
+      this.target.onCompleted();
+    }
+
+    /** Clear the WriteStream handlers */
+    protected void release() {
+      try {
+        out.drainHandler(null);
+        out.exceptionHandler(null);
+      }
+      catch(Exception e) {
+        // Clearing handlers after stream closed causes issues for some (eg AsyncFile) so silently drop errors
+      }
+    }
+
+    /** Fail */
+    protected void fail(Throwable t) {
+      if (this.done)
+        return;
+
+      this.done=true;
+      this.batch=new Buffer(0);
+      unsubscribe();
+      this.target.onError(t);
+    }
+  }
+
+  // Instance variables
+
+  /** Context used to flush */
+  protected final Context context;
+
+  /** Source */
+  protected final Observable<JsonObject> src;
+
+  /** Target */
+  protected final WriteStream<?> out;
+
+  /** Format */
+  protected final Format format;
+
+  /** Write buffer size */
+  protected final int batchSize;
+
+  /** Records requested at a time */
+  protected final int prefetch;
+
+  // Public
+
+  /** Create new JsonStreamWriter */
+  public JsonStreamWriter(Context context, Observable<JsonObject> src, WriteStream<?> out, Format format) {
+    this(context,src,out,format,DEFAULT_BATCH_SIZE,DEFAULT_PREFETCH);
+  }
+
+  /** Create new JsonStreamWriter */
+  public JsonStreamWriter(Context context, Observable<JsonObject> src, WriteStream<?> out, Format format, int batchSize, int prefetch) {
+    if (batchSize<1)
+      throw new IllegalArgumentException("batchSize must be positive (batchSize="+batchSize+")");
+    if (prefetch<1)
+      throw new IllegalArgumentException("prefetch must be positive (prefetch="+prefetch+")");
+
+    this.context=context;
+    this.src=src;
+    this.out=out;
+    this.format=format;
+    this.batchSize=batchSize;
+    this.prefetch=prefetch;
+  }
+
+  // OnSubscribe implementation
+
+  /** Start writing for each subscription */
+  public void call(Subscriber<? super Long> subscriber) {
+    WriterSubscriber ws=new WriterSubscriber(subscriber);
+    // Unsubscribing from the result cancels the source
+    subscriber.add(ws);
+    ws.start();
+    src.unsafeSubscribe(ws);
+  }
+}
@@ -0,0 +1,75 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.Arrays;
+
+/** Percentiles over the most recent latency samples
+ *
+ * <p>Samples are kept in a ring of <code>size</code> entries. Percentiles are read from a sorted snapshot
+ * that is refreshed after every <code>size/8</code> new samples, so reads are cheap and slightly stale.</p>
+ *
+ **/
+public class LatencyTracker {
+
+  /** Default number of samples */
+  public static final int DEFAULT_SIZE=128;
+
+  // Instance variables
+
+  /** Samples */
+  private final long[] samples;
+
+  /** Samples recorded (up to samples.length) */
+  private int count;
+
+  /** Next slot */
+  private int next;
+
+  /** Sorted copy of the samples */
+  private long[] sorted=new long[0];
+
+  /** Samples recorded since sorted was taken */
+  private int stale;
+
+  // Public
+
+  /** Create new LatencyTracker */
+  public LatencyTracker() {
+    this(DEFAULT_SIZE);
+  }
+
+  /** Create new LatencyTracker */
+  public LatencyTracker(int size) {
+    if (size<1)
+      throw new IllegalArgumentException("size must be positive (size="+size+")");
+    this.samples=new long[size];
+  }
+
+  /** Record latency */
+  public synchronized void record(long millis) {
+    this.samples[this.next]=millis;
+    this.next=(this.next+1)%this.samples.length;
+    if (this.count<this.samples.length)
+      this.count++;
+    this.stale++;
+  }
+
+  /** Return number of samples held */
+  public synchronized int size() {
+    return this.count;
+  }
+
+  /** Return the latency at percentile p (0..100), or -1 if there are no samples */
+  public synchronized long percentile(double p) {
+    if (this.count==0)
+      return -1;
+
+    if ((this.sorted.length!=this.count) || (this.stale>=Math.max(1,this.samples.length/8))) {
+      this.sorted=Arrays.copyOf(this.samples,this.count);
+      Arrays.sort(this.sorted);
+      this.stale=0;
+    }
+
+    int idx=(int)Math.ceil(p/100*this.sorted.length)-1;
+    return this.sorted[Math.max(0,Math.min(idx,this.sorted.length-1))];
+  }
+}
@@ -0,0 +1,172 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.Queue;
+
+import org.vertx.java.core.buffer.Buffer;
+
+/** Split an Observable<Buffer> into fixed-size or length-prefixed records
+ *
+ * <p>Length prefixes are unsigned big-endian integers of 1, 2 or 4 bytes, or a base-128 varint (as used by
+ * Protocol Buffers). The prefix is removed from each record. The length is checked against
+ * <code>maxFrameSize</code> as soon as the prefix is read, before any of the record is buffered.</p>
+ *
+ * <p>The stream fails if it ends inside a record.</p>
+ *
+ **/
+public class LengthFrameDecoder extends FrameDecoder {
+
+  /** Variable length prefix */
+  public static final int VARINT=-1;
+
+  /** Maximum bytes in a varint prefix */
+  protected static final int MAX_VARINT_BYTES=5;
+
+  // Definitions
+
+  /** Length scanner */
+  protected class LengthScanner extends Scanner {
+
+    /** Length of the prefix of the current record (or -1 if not yet known) */
+    private int headerSize=-1;
+
+    /** Length of the current record */
+    private int frameSize;
+
+    /** Find records */
+    protected void scan(Buffer buf, Queue<Buffer> out) {
+      int len=buf.length();
+      int pos=0;
+
+      // Complete the record that spans chunks
+      if (this.partial!=null) {
+        while ((this.headerSize<0) && (pos<len)) {
+          keep(buf,pos++,1);
+          readHeader(this.partial,0,this.partial.length());
+        }
+        if (this.headerSize<0)
+          return;
+
+        int needed=this.headerSize+this.frameSize-this.partial.length();
+        int n=Math.min(needed,len-pos);
+        keep(buf,pos,n);
+        pos+=n;
+        if (n<needed)
+          return;
+
+        Buffer rec=take();
+        out.offer(slice(rec,this.headerSize,this.frameSize));
+        this.headerSize=-1;
+      }
+
+      // Records within the chunk
+      while (pos<len) {
+        readHeader(buf,pos,len-pos);
+        if ((this.headerSize<0) || (pos+this.headerSize+this.frameSize>len))
+          break;
+        out.offer(slice(buf,pos+this.headerSize,this.frameSize));
+        pos+=this.headerSize+this.frameSize;
+        this.headerSize=-1;
+      }
+
+      // Presize for the rest of the record if its length is known
+      if ((pos<len) && (this.headerSize>=0))
+        this.partial=new Buffer(this.headerSize+this.frameSize);
+      keep(buf,pos,len-pos);
+    }
+
+    /** Fail if the stream ends inside a record */
+    protected void complete(Queue<Buffer> out) {
+      if (this.partial!=null)
+        throw new RuntimeException("Stream ended inside a frame (received="+this.partial.length()+")");
+    }
+
+    /** Read the prefix at [pos,pos+avail) of buf, setting headerSize and frameSize if complete */
+    private void readHeader(Buffer buf, int pos, int avail) {
+      long size;
+      int hs;
+
+      switch(prefixSize) {
+        case 0:
+          hs=0;
+          size=fixedSize;
+          break;
+        case 1:
+          if (avail<1)
+            return;
+          hs=1;
+          size=buf.getByte(pos)&0xff;
+          break;
+        case 2:
+          if (avail<2)
+            return;
+          hs=2;
+          size=buf.getShort(pos)&0xffff;
+          break;
+        case 4:
+          if (avail<4)
+            return;
+          hs=4;
+          size=buf.getInt(pos)&0xffffffffL;
+          break;
+        default:
+          size=0;
+          hs=0;
+          for (int shift=0;;shift+=7) {
+            if (hs>=avail)
+              return;
+            if (hs==MAX_VARINT_BYTES)
+              throw new RuntimeException("Malformed varint frame length");
+            byte b=buf.getByte(pos+hs++);
+            size|=(long)(b&0x7f)<<shift;
+            if ((b&0x80)==0)
+              break;
+          }
+          break;
+      }
+
+      checkSize(size);
+      this.headerSize=hs;
+      this.frameSize=(int)size;
+    }
+  }
+
+  // Instance variables
+
+  /** Prefix size in bytes (0 for fixed-size records, or VARINT) */
+  protected final int prefixSize;
+
+  /** Record size for fixed-size records */
+  protected final int fixedSize;
+
+  // Public
+
+  /** Create new LengthFrameDecoder for fixed-size records */
+  public static LengthFrameDecoder fixed(int size) {
+    return new LengthFrameDecoder(0,size,size);
+  }
+
+  /** Create new LengthFrameDecoder for length-prefixed records
+   *
+   * @param prefixSize 1, 2 or 4 bytes, or VARINT
+   *
+   **/
+  public static LengthFrameDecoder prefixed(int prefixSize, int maxFrameSize) {
+    if ((prefixSize!=1) && (prefixSize!=2) && (prefixSize!=4) && (prefixSize!=VARINT))
+      throw new IllegalArgumentException("prefixSize must be 1, 2, 4 or VARINT (prefixSize="+prefixSize+")");
+    return new LengthFrameDecoder(prefixSize,0,maxFrameSize);
+  }
+
+  // Implementation
+
+  /** Create new LengthFrameDecoder */
+  protected LengthFrameDecoder(int prefixSize, int fixedSize, int maxFrameSize) {
+    super(maxFrameSize);
+    this.prefixSize=prefixSize;
+    this.fixedSize=fixedSize;
+  }
+
+  /** Create scanner */
+  protected Scanner createScanner() {
+    return new LengthScanner();
+  }
+}
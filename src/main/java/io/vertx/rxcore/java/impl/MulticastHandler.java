@@ -0,0 +1,161 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.vertx.java.core.Handler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/** Handler shared by every current subscriber
+ *
+ * <p>{@link #execute} is called when the first subscriber is added and {@link #onUnsubscribed} when the
+ * last one leaves, after which the handler is terminated and {@link #add} fails; callers then create a new
+ * handler. Subscribers are held in a copy-on-write array so dispatch takes no locks.</p>
+ *
+ * <p>Events are wrapped once and passed to every subscriber without regard to demand.</p>
+ *
+ **/
+public class MulticastHandler<R,T> implements Handler<T> {
+
+  /** No subscribers */
+  private static final Subscriber<?>[] EMPTY=new Subscriber<?>[0];
+
+  /** Last subscriber has left */
+  private static final Subscriber<?>[] TERMINATED=new Subscriber<?>[0];
+
+  // Instance variables
+
+  /** Current subscribers */
+  private final AtomicReference<Subscriber<? super R>[]> subscribers=new AtomicReference<>(MulticastHandler.<R>typed(EMPTY));
+
+  /** execute() has been called */
+  private boolean registered;
+
+  /** onUnsubscribed() has been called (or is no longer required) */
+  private boolean terminated;
+
+  // Public
+
+  /** Add subscriber (or return false if terminated) */
+  public boolean add(final Subscriber<? super R> sub) {
+    for (;;) {
+      Subscriber<? super R>[] cur=this.subscribers.get();
+      if (cur==TERMINATED)
+        return false;
+
+      Subscriber<? super R>[] next=newArray(cur.length+1);
+      System.arraycopy(cur,0,next,0,cur.length);
+      next[cur.length]=sub;
+      if (this.subscribers.compareAndSet(cur,next)) {
+        sub.add(Subscriptions.create(new Action0() {
+          public void call() {
+            remove(sub);
+          }
+        }));
+        if (cur.length==0)
+          register();
+        return true;
+      }
+    }
+  }
+
+  /** Return number of subscribers */
+  public int size() {
+    return this.subscribers.get().length;
+  }
+
+  /** Execute (first subscriber added) */
+  public void execute() {
+  }
+
+  /** Unsubscribe (last subscriber removed) */
+  public void onUnsubscribed() {
+  }
+
+  // Handler implementation
+
+  /** Override to wrap value */
+  @SuppressWarnings("unchecked")
+  public R wrap(T value) {
+    return (R)value;
+  }
+
+  /** Dispatch to every subscriber */
+  public void handle(T evt) {
+    Subscriber<? super R>[] subs=this.subscribers.get();
+    if (subs.length==0)
+      return;
+
+    R value=wrap(evt);
+    for (Subscriber<? super R> s : subs)
+      s.onNext(value);
+  }
+
+  // Implementation
+
+  /** Remove subscriber, terminating if it was the last */
+  private void remove(Subscriber<? super R> sub) {
+    for (;;) {
+      Subscriber<? super R>[] cur=this.subscribers.get();
+      int idx=-1;
+      for (int i=0;i<cur.length;i++) {
+        if (cur[i]==sub) {
+          idx=i;
+          break;
+        }
+      }
+      if (idx<0)
+        return;
+
+      Subscriber<? super R>[] next;
+      if (cur.length==1) {
+        next=typed(TERMINATED);
+      }
+      else {
+        next=newArray(cur.length-1);
+        System.arraycopy(cur,0,next,0,idx);
+        System.arraycopy(cur,idx+1,next,idx,cur.length-idx-1);
+      }
+      if (this.subscribers.compareAndSet(cur,next)) {
+        if (next==TERMINATED)
+          terminate();
+        return;
+      }
+    }
+  }
+
+  /** Register (unless already terminated) */
+  private synchronized void register() {
+    if (this.terminated)
+      return;
+    this.registered=true;
+    try {
+      execute();
+    }
+    catch(RuntimeException e) {
+      // Fail every subscriber (each failure removes it, terminating the handler)
+      for (Subscriber<? super R> s : this.subscribers.get())
+        s.onError(e);
+    }
+  }
+
+  /** Unregister (if registered) */
+  private synchronized void terminate() {
+    this.terminated=true;
+    if (this.registered)
+      onUnsubscribed();
+  }
+
+  /** Return a shared empty array typed for R */
+  @SuppressWarnings("unchecked")
+  private static <R> Subscriber<? super R>[] typed(Subscriber<?>[] subs) {
+    return (Subscriber<? super R>[])subs;
+  }
+
+  /** Create subscriber array */
+  @SuppressWarnings("unchecked")
+  private static <R> Subscriber<? super R>[] newArray(int n) {
+    return (Subscriber<? super R>[])new Subscriber<?>[n];
+  }
+}
@@ -0,0 +1,140 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Subscriber;
+
+/** Handler that forwards events on demand, queueing any excess
+ *
+ * <p>Events are passed straight to the subscriber while it has outstanding requests and nothing is queued;
+ * otherwise they are queued (see {@link #enqueue}) and drained as requests arrive. The drain is
+ * serialised by a work-in-progress counter so events are delivered in order from any thread.</p>
+ *
+ **/
+public class QueueingHandler<R,T> extends SingleSubscriptionHandler<R,T> {
+
+  // Instance variables
+
+  /** Events received but not yet requested */
+  private final Queue<T> queue=new ConcurrentLinkedQueue<>();
+
+  /** Queue size (ConcurrentLinkedQueue.size() is O(n)) */
+  private final AtomicInteger queued=new AtomicInteger();
+
+  /** Drain work-in-progress */
+  private final AtomicInteger wip=new AtomicInteger();
+
+  // SingleSubscriptionHandler implementation
+
+  /** Subscriber requested more */
+  @Override public void onRequested() {
+    drain();
+  }
+
+  /** Discard queued events */
+  @Override public void onUnsubscribed() {
+    clear();
+  }
+
+  /** Handle event */
+  @Override public void handle(T evt) {
+
+    // Fast-path: nothing queued and subscriber has demand
+    if (this.wip.compareAndSet(0,1)) {
+      if (this.queue.isEmpty() && (this.requested.get()>0)) {
+        consumeRequested(1);
+        fireNext(wrap(evt));
+        if (this.wip.decrementAndGet()==0)
+          return;
+      }
+      else {
+        enqueue(evt);
+      }
+      drainLoop();
+      return;
+    }
+
+    enqueue(evt);
+    drain();
+  }
+
+  // Implementation
+
+  /** Queue event (override to limit the queue) */
+  protected void enqueue(T evt) {
+    offer(evt);
+  }
+
+  /** Add event to the queue */
+  protected void offer(T evt) {
+    this.queue.offer(evt);
+    this.queued.incrementAndGet();
+  }
+
+  /** Remove the oldest queued event (or return null if none) */
+  protected T poll() {
+    T evt=this.queue.poll();
+    if (evt!=null)
+      this.queued.decrementAndGet();
+    return evt;
+  }
+
+  /** Return number of events queued */
+  protected int queued() {
+    return this.queued.get();
+  }
+
+  /** Return true if nothing is queued */
+  protected boolean isEmpty() {
+    return this.queue.isEmpty();
+  }
+
+  /** Discard queued events */
+  protected void clear() {
+    this.queue.clear();
+    this.queued.set(0);
+  }
+
+  /** Called after each drain pass while subscribed */
+  protected void drained() {
+  }
+
+  /** Drain the queue to the subscriber */
+  protected void drain() {
+    if (this.wip.getAndIncrement()!=0)
+      return;
+    drainLoop();
+  }
+
+  /** Drain loop (must own wip) */
+  @SuppressWarnings("unchecked")
+  private void drainLoop() {
+    int missed=1;
+    for (;;) {
+      Subscriber<? super R> s=getSubscriber();
+      if (s==null) {
+        clear();
+      }
+      else {
+        long r=this.requested.get();
+        long e=0;
+        while (e!=r) {
+          T next=poll();
+          if (next==null)
+            break;
+          s.onNext(wrap(next));
+          e++;
+        }
+        if (e>0)
+          consumeRequested(e);
+        drained();
+      }
+
+      missed=this.wip.addAndGet(-missed);
+      if (missed==0)
+        return;
+    }
+  }
+}
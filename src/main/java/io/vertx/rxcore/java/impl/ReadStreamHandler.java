@@ -0,0 +1,117 @@
+package io.vertx.rxcore.java.impl;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.streams.ReadStream;
+
+/** Handler that adapts a ReadStream into a demand-driven Observable
+ *
+ * <p>Data is forwarded while the subscriber has outstanding requests. Any excess is queued and once
+ * <code>prefetch</code> items are queued the ReadStream is paused. It is resumed when the queue has
+ * been drained down to <code>lowWatermark</code></p>
+ *
+ * <p>Subscribers that do not use backpressure request Long.MAX_VALUE so the stream is never paused</p>
+ *
+ **/
+public class ReadStreamHandler extends QueueingHandler<Buffer,Buffer> {
+
+  /** Default number of items to queue before pausing */
+  public static final int DEFAULT_PREFETCH=16;
+
+  /** Default number of queued items at which to resume */
+  public static final int DEFAULT_LOW_WATERMARK=4;
+
+  // Instance variables
+
+  /** Source */
+  protected final ReadStream<?> rs;
+
+  /** Queue limit before pausing */
+  protected final int prefetch;
+
+  /** Queue level to resume at */
+  protected final int lowWatermark;
+
+  /** Source has ended */
+  private volatile boolean done;
+
+  /** Source is paused */
+  private boolean paused;
+
+  // Public
+
+  /** Create new ReadStreamHandler */
+  public ReadStreamHandler(ReadStream<?> rs) {
+    this(rs,DEFAULT_PREFETCH,DEFAULT_LOW_WATERMARK);
+  }
+
+  /** Create new ReadStreamHandler */
+  public ReadStreamHandler(ReadStream<?> rs, int prefetch, int lowWatermark) {
+    if (prefetch<1)
+      throw new IllegalArgumentException("prefetch must be positive (prefetch="+prefetch+")");
+    if ((lowWatermark<0) || (lowWatermark>=prefetch))
+      throw new IllegalArgumentException("lowWatermark must be in [0,prefetch) (lowWatermark="+lowWatermark+",prefetch="+prefetch+")");
+
+    this.rs=rs;
+    this.prefetch=prefetch;
+    this.lowWatermark=lowWatermark;
+  }
+
+  // SingleSubscriptionHandler implementation
+
+  /** Register with the ReadStream */
+  @Override public void execute() {
+    this.done=false;
+    rs.dataHandler(this);
+    rs.exceptionHandler(new Handler<Throwable>() {
+      public void handle(Throwable t) {
+        clear();
+        fireError(t);
+      }
+    });
+    rs.endHandler(new Handler<Void>() {
+      public void handle(Void v) {
+        done=true;
+        drain();
+      }
+    });
+  }
+
+  /** Release the ReadStream */
+  @Override public void onUnsubscribed() {
+    clear();
+    try {
+      rs.dataHandler(null);
+      rs.exceptionHandler(null);
+      rs.endHandler(null);
+      // Leave the stream as we found it
+      if (this.paused) {
+        this.paused=false;
+        rs.resume();
+      }
+    }
+    catch(Exception e) {
+      // Clearing handlers after stream closed causes issues for some (eg AsyncFile) so silently drop errors
+    }
+  }
+
+  // Implementation
+
+  /** Complete once the source has ended and the queue is empty, otherwise pause or resume the source */
+  @Override protected void drained() {
+    if (this.done && isEmpty()) {
+      fireComplete();
+    }
+    else {
+      int size=queued();
+      if (!this.paused && (size>=this.prefetch)) {
+        this.paused=true;
+        rs.pause();
+      }
+      else if (this.paused && (size<=this.lowWatermark)) {
+        this.paused=false;
+        rs.resume();
+      }
+    }
+  }
+}
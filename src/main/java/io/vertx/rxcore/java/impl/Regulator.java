@@ -314,7 +314,11 @@ public class Regulator<R> implements Observable.Operator<R,R> {
     };
   }
 
-  /** Stream Observable to a target stream */
+  /** Stream Observable to a target stream
+   *
+   * @deprecated use {@link io.vertx.rxcore.RxSupport#pump(Observable, WriteStream)}
+   **/
+  @Deprecated
   public Observable<Long> stream(Observable<Buffer> src, WriteStream<Buffer> out) {
 
     final PublishSubject<Long> rx=PublishSubject.create();
@@ -1,5 +1,6 @@
 package io.vertx.rxcore.java.impl;
 
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.vertx.java.core.Handler;
@@ -10,7 +11,7 @@ import rx.*;
  **/
 public class SingleSubscriptionHandler<R,T> implements Observable.OnSubscribe<R>, Handler<T> {
 
-  class SingleSubscription implements Subscription {
+  class SingleSubscription implements Subscription, Producer {
 
     /** Subscriber */
     public final Subscriber<? super R> subscriber;
@@ -40,11 +41,24 @@ public class SingleSubscriptionHandler<R,T> implements Observable.OnSubscribe<R>
       // Check if still the active subscription
       return subRef.get()!=this;
     }
+
+    /** Request more */
+    public void request(long n) {
+
+      if ((n<=0) || isUnsubscribed())
+        return;
+
+      addRequested(n);
+      onRequested();
+    }
   }
 
   /** Observer reference */
   protected AtomicReference<SingleSubscription> subRef =new AtomicReference<>();
 
+  /** Outstanding requests from the active subscriber (Long.MAX_VALUE if unbounded) */
+  protected final AtomicLong requested=new AtomicLong();
+
   /** Create new SingleSubscriptionHandler */
   public SingleSubscriptionHandler() {
     this.subRef=new AtomicReference<>();
@@ -58,6 +72,10 @@ public class SingleSubscriptionHandler<R,T> implements Observable.OnSubscribe<R>
   public void onUnsubscribed() {
   }
 
+  /** Called when the active subscriber requests more (override to resume a paused source) */
+  public void onRequested() {
+  }
+
   // OnSubscribe
 
   /** Subscription */
@@ -71,6 +89,14 @@ public class SingleSubscriptionHandler<R,T> implements Observable.OnSubscribe<R>
 
     sub.add(singleSub);
 
+    // Already unsubscribed (eg by an operator that failed early) so do not start
+    if (singleSub.isUnsubscribed())
+      return;
+
+    // Track demand from the subscriber
+    this.requested.set(0);
+    sub.setProducer(singleSub);
+
     try {
       execute();
     }
@@ -144,6 +170,26 @@ public class SingleSubscriptionHandler<R,T> implements Observable.OnSubscribe<R>
     s.onError(t);
   }
 
+  /** Add to the outstanding requests (capped at Long.MAX_VALUE) */
+  protected void addRequested(long n) {
+    for (;;) {
+      long cur=this.requested.get();
+      if (cur==Long.MAX_VALUE)
+        return;
+      long next=cur+n;
+      if (next<0)
+        next=Long.MAX_VALUE;
+      if (this.requested.compareAndSet(cur,next))
+        return;
+    }
+  }
+
+  /** Consume n of the outstanding requests */
+  protected void consumeRequested(long n) {
+    if (this.requested.get()!=Long.MAX_VALUE)
+      this.requested.addAndGet(-n);
+  }
+
   /** Get subscriber */
   protected Subscriber getSubscriber() {
 
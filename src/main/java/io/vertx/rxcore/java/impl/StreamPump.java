@@ -0,0 +1,265 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.ArrayDeque;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.streams.WriteStream;
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.MissingBackpressureException;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/** Pump an Observable<Buffer> into a WriteStream
+ *
+ * <p>The source is subscribed when the returned Observable is subscribed. Buffers are requested one at a time
+ * and only while the WriteStream has room, so a backpressure-aware source (eg RxSupport.toObservable) is
+ * paused rather than queued when the WriteStream is slower than the source. The drainHandler of the
+ * WriteStream is used to resume.</p>
+ *
+ * <p>The pump owns the drainHandler and exceptionHandler of the WriteStream while it runs, replacing any set
+ * by the caller, and clears them when it finishes, fails or is unsubscribed.</p>
+ *
+ * <p>Buffers delivered by a source that ignores backpressure are held until the WriteStream drains. Once more
+ * than <code>highWatermark</code> bytes are held the pump fails with MissingBackpressureException, so memory
+ * use is bounded regardless of transfer size. More data is requested once no more than
+ * <code>lowWatermark</code> bytes are held.</p>
+ *
+ * <p>The total number of bytes written is emitted every <code>progressInterval</code> bytes (if positive)
+ * and always once on completion.</p>
+ *
+ * <p>The pump is not thread-safe and should be used on the context that owns the WriteStream</p>
+ *
+ **/
+public class StreamPump implements Observable.OnSubscribe<Long> {
+
+  /** Default maximum bytes held when the WriteStream is full */
+  public static final int DEFAULT_HIGH_WATERMARK=64*1024;
+
+  /** Default bytes held below which more data is requested */
+  public static final int DEFAULT_LOW_WATERMARK=0;
+
+  // Definitions
+
+  /** Subscriber to the source */
+  protected class PumpSubscriber extends Subscriber<Buffer> implements Handler<Void> {
+
+    /** Target */
+    private final Subscriber<? super Long> target;
+
+    /** Buffers held while the WriteStream is full */
+    private final ArrayDeque<Buffer> pending=new ArrayDeque<>();
+
+    /** Bytes held */
+    private long pendingBytes;
+
+    /** Bytes written */
+    private long total;
+
+    /** Next progress report */
+    private long nextProgress;
+
+    /** Requested but not yet received */
+    private long outstanding;
+
+    /** Source completed */
+    private boolean srcDone;
+
+    /** Pump finished */
+    private boolean done;
+
+    /** Create new PumpSubscriber */
+    public PumpSubscriber(Subscriber<? super Long> target) {
+      this.target=target;
+      this.nextProgress=progressInterval;
+    }
+
+    // Subscriber implementation
+
+    /** Start with no demand (requested once the WriteStream has room) */
+    @Override public void onStart() {
+      request(0);
+    }
+
+    /** Next buffer */
+    public void onNext(Buffer buf) {
+      if (this.done)
+        return;
+
+      if (this.outstanding>0)
+        this.outstanding--;
+
+      if (this.pending.isEmpty() && !out.writeQueueFull()) {
+        write(buf);
+      }
+      else {
+        this.pending.addLast(buf);
+        this.pendingBytes+=buf.length();
+        if (this.pendingBytes>highWatermark) {
+          fail(new MissingBackpressureException("Source ignored backpressure (pending="+this.pendingBytes+",highWatermark="+highWatermark+")"));
+          return;
+        }
+      }
+
+      requestMore();
+    }
+
+    /** Source failure */
+    public void onError(Throwable e) {
+      fail(e);
+    }
+
+    /** Source completed */
+    public void onCompleted() {
+      if (this.done)
+        return;
+
+      this.srcDone=true;
+      if (this.pending.isEmpty())
+        finish();
+    }
+
+    // Handler implementation
+
+    /** Drained */
+    public void handle(Void v) {
+      if (this.done)
+        return;
+
+      // Flush held buffers while there is room
+      while (!this.pending.isEmpty() && !out.writeQueueFull()) {
+        Buffer buf=this.pending.pollFirst();
+        this.pendingBytes-=buf.length();
+        write(buf);
+      }
+
+      if (this.srcDone && this.pending.isEmpty())
+        finish();
+      else
+        requestMore();
+    }
+
+    // Implementation
+
+    /** Start pumping */
+    protected void start() {
+      out.drainHandler(this);
+      out.exceptionHandler(new Handler<Throwable>() {
+        public void handle(Throwable t) {
+          fail(t);
+        }
+      });
+      // Release the handlers on finish, failure or unsubscribe
+      add(Subscriptions.create(new Action0() {
+        public void call() {
+          release();
+        }
+      }));
+      requestMore();
+    }
+
+    /** Request another buffer if the WriteStream has room */
+    protected void requestMore() {
+      if (this.srcDone || (this.outstanding>0) || (this.pendingBytes>lowWatermark) || out.writeQueueFull())
+        return;
+
+      this.outstanding++;
+      request(1);
+    }
+
+    /** Write to the WriteStream */
+    protected void write(Buffer buf) {
+      out.write(buf);
+      this.total+=buf.length();
+
+      if ((progressInterval>0) && (this.total>=this.nextProgress)) {
+        this.nextProgress=this.total+progressInterval;
+        this.target.onNext(this.total);
+      }
+    }
+
+    /** Finish */
+    protected void finish() {
+      this.done=true;
+      unsubscribe();
+      // Always report the final total
+      this.target.onNext(this.total);
+      this.target.onCompleted();
+    }
+
+    /** Clear the WriteStream handlers */
+    protected void release() {
+      try {
+        out.drainHandler(null);
+        out.exceptionHandler(null);
+      }
+      catch(Exception e) {
+        // Clearing handlers after stream closed causes issues for some (eg AsyncFile) so silently drop errors
+      }
+    }
+
+    /** Fail */
+    protected void fail(Throwable t) {
+      if (this.done)
+        return;
+
+      this.done=true;
+      this.pending.clear();
+      this.pendingBytes=0;
+      unsubscribe();
+      this.target.onError(t);
+    }
+  }
+
+  // Instance variables
+
+  /** Source */
+  protected final Observable<Buffer> src;
+
+  /** Target */
+  protected final WriteStream<?> out;
+
+  /** Maximum bytes held */
+  protected final int highWatermark;
+
+  /** Bytes held below which more data is requested */
+  protected final int lowWatermark;
+
+  /** Bytes between progress reports (0 for completion only) */
+  protected final long progressInterval;
+
+  // Public
+
+  /** Create new StreamPump */
+  public StreamPump(Observable<Buffer> src, WriteStream<?> out) {
+    this(src,out,DEFAULT_HIGH_WATERMARK,DEFAULT_LOW_WATERMARK,0);
+  }
+
+  /** Create new StreamPump */
+  public StreamPump(Observable<Buffer> src, WriteStream<?> out, int highWatermark, int lowWatermark, long progressInterval) {
+    if (highWatermark<0)
+      throw new IllegalArgumentException("highWatermark must not be negative (highWatermark="+highWatermark+")");
+    if ((lowWatermark<0) || (lowWatermark>highWatermark))
+      throw new IllegalArgumentException("lowWatermark must be in [0,highWatermark] (lowWatermark="+lowWatermark+",highWatermark="+highWatermark+")");
+    if (progressInterval<0)
+      throw new IllegalArgumentException("progressInterval must not be negative (progressInterval="+progressInterval+")");
+
+    this.src=src;
+    this.out=out;
+    this.highWatermark=highWatermark;
+    this.lowWatermark=lowWatermark;
+    this.progressInterval=progressInterval;
+  }
+
+  // OnSubscribe implementation
+
+  /** Start the pump for each subscription */
+  public void call(Subscriber<? super Long> subscriber) {
+    PumpSubscriber ps=new PumpSubscriber(subscriber);
+    // Unsubscribing from the result cancels the source
+    subscriber.add(ps);
+    ps.start();
+    src.unsafeSubscribe(ps);
+  }
+}
@@ -0,0 +1,301 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import rx.Subscription;
+import rx.functions.Action0;
+
+/** Hashed timing wheel that runs delayed and periodic actions on a Context
+ *
+ * <p>All timeouts share a single Vert.x periodic timer that ticks every <code>tickMillis</code> while any
+ * timeout is pending. Scheduling and cancelling are O(1): a timeout is placed in the bucket for its deadline
+ * and a cancelled timeout is unlinked when its bucket is next visited. Deadlines are rounded up to the next
+ * tick.</p>
+ *
+ * <p>Timeouts may be scheduled and cancelled from any thread; actions always run on the context.</p>
+ *
+ **/
+public class TimerWheel {
+
+  /** Default tick */
+  public static final long DEFAULT_TICK_MILLIS=10;
+
+  /** Default number of buckets */
+  public static final int DEFAULT_WHEEL_SIZE=512;
+
+  // Definitions
+
+  /** Scheduled action */
+  public class Timeout implements Subscription {
+
+    /** Action */
+    private final Action0 action;
+
+    /** Period (or 0 for one-shot) */
+    private final long periodMillis;
+
+    /** Deadline (relative to startTime) */
+    private long deadline;
+
+    /** Full turns of the wheel remaining */
+    private long rounds;
+
+    /** Bucket links */
+    private Timeout next, prev;
+
+    /** Cancelled (or run, if one-shot) */
+    volatile int cancelled;
+
+    /** Create new Timeout */
+    Timeout(Action0 action, long deadline, long periodMillis) {
+      this.action=action;
+      this.deadline=deadline;
+      this.periodMillis=periodMillis;
+    }
+
+    /** Cancel (the timeout is unlinked when its bucket is next visited) */
+    public void unsubscribe() {
+      CANCELLED_UPDATER.lazySet(this,1);
+    }
+
+    /** Check cancelled */
+    public boolean isUnsubscribed() {
+      return this.cancelled!=0;
+    }
+  }
+
+  /** Cancelled flag */
+  private static final AtomicIntegerFieldUpdater<Timeout> CANCELLED_UPDATER=AtomicIntegerFieldUpdater.newUpdater(Timeout.class,"cancelled");
+
+  /** Doubly-linked list of timeouts */
+  private static final class Bucket {
+
+    /** Ends */
+    private Timeout head, tail;
+
+    /** Append */
+    void add(Timeout t) {
+      t.prev=this.tail;
+      t.next=null;
+      if (this.tail==null)
+        this.head=t;
+      else
+        this.tail.next=t;
+      this.tail=t;
+    }
+
+    /** Unlink */
+    void remove(Timeout t) {
+      if (t.prev==null)
+        this.head=t.next;
+      else
+        t.prev.next=t.next;
+      if (t.next==null)
+        this.tail=t.prev;
+      else
+        t.next.prev=t.prev;
+      t.next=t.prev=null;
+    }
+  }
+
+  // Instance variables
+
+  /** Vertx */
+  private final Vertx vertx;
+
+  /** Context */
+  private final Context context;
+
+  /** Tick */
+  private final long tickMillis;
+
+  /** Buckets */
+  private final Bucket[] wheel;
+
+  /** Bucket mask */
+  private final int mask;
+
+  /** Time origin */
+  private final long startTime=System.nanoTime();
+
+  /** Timeouts scheduled but not yet placed in a bucket */
+  private final ConcurrentLinkedQueue<Timeout> pending=new ConcurrentLinkedQueue<>();
+
+  /** Ticker running (or start requested) */
+  private final AtomicBoolean running=new AtomicBoolean();
+
+  /** Next tick to process (only used on the context) */
+  private long tick;
+
+  /** Timeouts in buckets (only used on the context) */
+  private int active;
+
+  /** Vert.x periodic timer (only used on the context) */
+  private long timerId=-1;
+
+  /** Tick handler */
+  private final Handler<Long> ticker=new Handler<Long>() {
+    public void handle(Long id) {
+      advance();
+    }
+  };
+
+  /** Start handler */
+  private final Handler<Void> starter=new Handler<Void>() {
+    public void handle(Void v) {
+      // Catch up with the time spent idle
+      tick=Math.max(tick,elapsed()/tickMillis);
+      timerId=vertx.setPeriodic(tickMillis,ticker);
+      advance();
+    }
+  };
+
+  // Public
+
+  /** Create new TimerWheel */
+  public TimerWheel(Vertx vertx, Context context) {
+    this(vertx,context,DEFAULT_TICK_MILLIS,DEFAULT_WHEEL_SIZE);
+  }
+
+  /** Create new TimerWheel
+   *
+   * @param tickMillis Resolution of the wheel
+   * @param wheelSize Number of buckets (rounded up to a power of 2)
+   *
+   **/
+  public TimerWheel(Vertx vertx, Context context, long tickMillis, int wheelSize) {
+    if (tickMillis<1)
+      throw new IllegalArgumentException("tickMillis must be positive (tickMillis="+tickMillis+")");
+    if ((wheelSize<1) || (wheelSize>(1<<30)))
+      throw new IllegalArgumentException("wheelSize must be in [1,2^30] (wheelSize="+wheelSize+")");
+
+    this.vertx=vertx;
+    this.context=context;
+    this.tickMillis=tickMillis;
+
+    int size=Integer.highestOneBit(wheelSize);
+    if (size<wheelSize)
+      size<<=1;
+    this.wheel=new Bucket[size];
+    for (int i=0;i<size;i++)
+      this.wheel[i]=new Bucket();
+    this.mask=size-1;
+  }
+
+  /** Run action on the context after delay */
+  public Timeout schedule(Action0 action, long delay, TimeUnit unit) {
+    return add(new Timeout(action,elapsed()+Math.max(0,unit.toMillis(delay)),0));
+  }
+
+  /** Run action on the context after initialDelay, then every period */
+  public Timeout schedulePeriodically(Action0 action, long initialDelay, long period, TimeUnit unit) {
+    long periodMillis=unit.toMillis(period);
+    if (periodMillis<1)
+      throw new IllegalArgumentException("period must be at least 1ms (period="+periodMillis+"ms)");
+    return add(new Timeout(action,elapsed()+Math.max(0,unit.toMillis(initialDelay)),periodMillis));
+  }
+
+  // Implementation
+
+  /** Milliseconds since startTime */
+  private long elapsed() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-this.startTime);
+  }
+
+  /** Queue timeout for the context */
+  private Timeout add(Timeout t) {
+    this.pending.offer(t);
+    if (this.running.compareAndSet(false,true))
+      this.context.runOnContext(this.starter);
+    return t;
+  }
+
+  /** Place a timeout in its bucket */
+  private void place(Timeout t) {
+    // Ticks are processed when they have fully elapsed, so round up
+    long ticks=(t.deadline+this.tickMillis-1)/this.tickMillis;
+    long target=Math.max(ticks,this.tick);
+    t.rounds=(target-this.tick)/this.wheel.length;
+    this.wheel[(int)(target&this.mask)].add(t);
+    this.active++;
+  }
+
+  /** Process every tick that has elapsed */
+  private void advance() {
+    long now=elapsed();
+
+    for (;;) {
+      // Place new timeouts
+      Timeout t;
+      while ((t=this.pending.poll())!=null) {
+        if (!t.isUnsubscribed())
+          place(t);
+      }
+
+      if (this.tick*this.tickMillis>now)
+        break;
+
+      expire(this.wheel[(int)(this.tick&this.mask)],now);
+      this.tick++;
+    }
+
+    // Stop ticking when idle
+    if ((this.active==0) && this.pending.isEmpty()) {
+      this.vertx.cancelTimer(this.timerId);
+      this.timerId=-1;
+      this.running.set(false);
+      // Restart if a timeout was added while stopping
+      if (!this.pending.isEmpty() && this.running.compareAndSet(false,true))
+        this.context.runOnContext(this.starter);
+    }
+  }
+
+  /** Run the due timeouts in a bucket */
+  private void expire(Bucket b, long now) {
+    Timeout t=b.head;
+    while (t!=null) {
+      Timeout next=t.next;
+      if (t.isUnsubscribed()) {
+        b.remove(t);
+        this.active--;
+      }
+      else if (t.rounds>0) {
+        t.rounds--;
+      }
+      else {
+        b.remove(t);
+        this.active--;
+        run(t,now);
+      }
+      t=next;
+    }
+  }
+
+  /** Run a due timeout, re-arming it if periodic */
+  private void run(Timeout t, long now) {
+    try {
+      t.action.call();
+    }
+    finally {
+      if (t.periodMillis>0) {
+        if (!t.isUnsubscribed()) {
+          // Skip missed periods rather than running them back to back
+          t.deadline+=t.periodMillis;
+          if (t.deadline<=now)
+            t.deadline=now+t.periodMillis;
+          // Placed after the current bucket has been processed
+          this.pending.offer(t);
+        }
+      }
+      else {
+        t.cancelled=1;
+      }
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package io.vertx.rxcore.java.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+import rx.functions.Func1;
+import rx.subscriptions.CompositeSubscription;
+
+/** Operator that maps each item to a single-result Observable with at most <code>maxInFlight</code> subscribed at once
+ *
+ * <p>Results are emitted in source order, or as they complete if <code>ordered</code> is false. An inner
+ * Observable that completes without a value is skipped; only its first value is used.</p>
+ *
+ * <p>The source is requested <code>maxInFlight</code> items up front and one more each time a result is
+ * emitted, so results waiting for downstream demand count against the window and a slow consumer stops new
+ * items being mapped. Any failure fails the stream and unsubscribes every inner Observable.</p>
+ *
+ **/
+public class WindowedMerge<T,R> implements Observable.Operator<R,T> {
+
+  // Instance variables
+
+  /** Map item to result */
+  protected final Func1<? super T,? extends Observable<? extends R>> func;
+
+  /** Maximum inner Observables subscribed (or results awaiting demand) */
+  protected final int maxInFlight;
+
+  /** Emit in source order */
+  protected final boolean ordered;
+
+  // Public
+
+  /** Create new WindowedMerge */
+  public WindowedMerge(Func1<? super T,? extends Observable<? extends R>> func, int maxInFlight, boolean ordered) {
+    if (maxInFlight<1)
+      throw new IllegalArgumentException("maxInFlight must be positive (maxInFlight="+maxInFlight+")");
+    this.func=func;
+    this.maxInFlight=maxInFlight;
+    this.ordered=ordered;
+  }
+
+  // Operator implementation
+
+  /** Merge for each subscriber */
+  public Subscriber<? super T> call(Subscriber<? super R> child) {
+    MergeSubscriber parent=new MergeSubscriber(child);
+    child.add(parent);
+    child.setProducer(parent.producer);
+    return parent;
+  }
+
+  // Implementation
+
+  /** Subscriber to the source */
+  protected class MergeSubscriber extends Subscriber<T> {
+
+    /** Target */
+    private final Subscriber<? super R> child;
+
+    /** Slots in source order (ordered only) */
+    private final Queue<Slot> inFlight=new ConcurrentLinkedQueue<>();
+
+    /** Slots in completion order (unordered only) */
+    private final Queue<Slot> completed=new ConcurrentLinkedQueue<>();
+
+    /** Slots not yet emitted */
+    private final AtomicInteger active=new AtomicInteger();
+
+    /** Inner subscriptions */
+    private final CompositeSubscription inner=new CompositeSubscription();
+
+    /** Requested by child */
+    private final AtomicLong requested=new AtomicLong();
+
+    /** Drain work-in-progress */
+    private final AtomicInteger wip=new AtomicInteger();
+
+    /** Source completed */
+    private volatile boolean done;
+
+    /** Failure */
+    private volatile Throwable error;
+
+    /** Producer for the child */
+    final Producer producer=new Producer() {
+      public void request(long n) {
+        if (n<=0)
+          return;
+        for (;;) {
+          long cur=requested.get();
+          long next=cur+n;
+          if (next<0)
+            next=Long.MAX_VALUE;
+          if (requested.compareAndSet(cur,next))
+            break;
+        }
+        drain();
+      }
+    };
+
+    /** Result of a single item */
+    private class Slot extends Subscriber<R> {
+
+      /** First value */
+      private volatile R value;
+
+      /** Completed */
+      private volatile boolean complete;
+
+      /** Keep first value */
+      public void onNext(R r) {
+        if (this.value==null)
+          this.value=r;
+      }
+
+      /** Fail the stream */
+      public void onError(Throwable e) {
+        error=e;
+        drain();
+      }
+
+      /** Ready to emit */
+      public void onCompleted() {
+        this.complete=true;
+        if (!ordered)
+          completed.offer(this);
+        drain();
+      }
+    }
+
+    /** Create new MergeSubscriber */
+    public MergeSubscriber(Subscriber<? super R> child) {
+      this.child=child;
+      add(this.inner);
+    }
+
+    // Subscriber implementation
+
+    /** Fill the window */
+    @Override public void onStart() {
+      request(maxInFlight);
+    }
+
+    /** Subscribe to the result for the item */
+    public void onNext(T t) {
+      if ((this.error!=null) || this.done)
+        return;
+
+      Observable<? extends R> obs;
+      try {
+        obs=func.call(t);
+      }
+      catch(Throwable e) {
+        onError(e);
+        return;
+      }
+
+      Slot s=new Slot();
+      this.active.incrementAndGet();
+      if (ordered)
+        this.inFlight.offer(s);
+      this.inner.add(s);
+      obs.unsafeSubscribe(s);
+    }
+
+    /** Source failure */
+    public void onError(Throwable e) {
+      this.error=e;
+      drain();
+    }
+
+    /** Source completed */
+    public void onCompleted() {
+      this.done=true;
+      drain();
+    }
+
+    // Implementation
+
+    /** Next completed slot (or null) */
+    private Slot poll() {
+      if (!ordered)
+        return this.completed.poll();
+      Slot head=this.inFlight.peek();
+      if ((head==null) || !head.complete)
+        return null;
+      return this.inFlight.poll();
+    }
+
+    /** Emit requested results, replacing each emitted slot with a new item from the source */
+    private void drain() {
+      if (this.wip.getAndIncrement()!=0)
+        return;
+
+      int missed=1;
+      for (;;) {
+        Throwable err=this.error;
+        if (err!=null) {
+          unsubscribe();
+          this.inFlight.clear();
+          this.completed.clear();
+          this.child.onError(err);
+          return;
+        }
+
+        long r=this.requested.get();
+        long e=0;
+        while (e!=r) {
+          if (this.child.isUnsubscribed())
+            return;
+          Slot s=poll();
+          if (s==null)
+            break;
+          this.inner.remove(s);
+          this.active.decrementAndGet();
+          R value=s.value;
+          if (value!=null) {
+            this.child.onNext(value);
+            e++;
+          }
+          request(1);
+        }
+        if ((e>0) && (r!=Long.MAX_VALUE))
+          this.requested.addAndGet(-e);
+
+        boolean d=this.done;
+        if (d && (this.active.get()==0) && (this.error==null)) {
+          this.child.onCompleted();
+          return;
+        }
+
+        missed=this.wip.addAndGet(-missed);
+        if (missed==0)
+          return;
+      }
+    }
+  }
+}
@@ -39,6 +39,11 @@ public class RxNetSocket {
     return RxSupport.toObservable(netSocket);
   }
 
+  /** Return as Observable<Buffer> with explicit flow-control limits */
+  public Observable<Buffer> asObservable(int prefetch, int lowWatermark) {
+    return RxSupport.toObservable(netSocket,prefetch,lowWatermark);
+  }
+
   /** @deprecated use {@link #asObservable()} */
   @Deprecated
   public Observable<Buffer> dataStream() {
@@ -1,13 +1,29 @@
 package io.vertx.rxcore;
 
 import io.netty.buffer.*;
+import io.vertx.rxcore.java.impl.BodyTooLargeException;
+import io.vertx.rxcore.java.impl.BufferAggregator;
+import io.vertx.rxcore.java.impl.JsonEncoder;
+import io.vertx.rxcore.java.impl.JsonStreamWriter;
+import io.vertx.rxcore.java.impl.LengthFrameDecoder;
+import io.vertx.rxcore.test.integration.java.MockReadStream;
+import io.vertx.rxcore.test.integration.java.MockWriteStream;
 import org.junit.Test;
 import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.DecodeException;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
 import org.vertx.testtools.TestVerticle;
 import rx.Observable;
+import rx.functions.Action1;
+import rx.exceptions.MissingBackpressureException;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static io.vertx.rxcore.test.integration.java.RxAssert.assertSingle;
 import static io.vertx.rxcore.test.integration.java.RxAssert.assertSingleThenComplete;
 import static io.vertx.rxcore.test.integration.java.RxAssert.assertErrorThenComplete;
 import static org.junit.Assert.*;
@@ -105,4 +121,588 @@ public class RxSupportTest extends TestVerticle {
     // Using a writeable seed buffer will ensure you can reduce() successfully
     assertSingleThenComplete(merged.reduce(new Buffer(),RxSupport.mergeBuffers),new Buffer("b1b2"));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testToObservablePausesWithoutDemand() {
+
+    MockReadStream rs=new MockReadStream();
+    TestSubscriber<Buffer> ts=new TestSubscriber<>(1);
+
+    RxSupport.toObservable(rs,4,1).subscribe(ts);
+
+    // First buffer is requested, the rest are queued until prefetch is reached
+    for (int i=0;i<5;i++)
+      rs.push("b"+i);
+
+    ts.assertValues(new Buffer("b0"));
+    assertTrue(rs.paused);
+    assertEquals(1,rs.pauseCount);
+
+    // Draining to the low watermark resumes the stream
+    ts.requestMore(2);
+    assertTrue(rs.paused);
+    ts.requestMore(1);
+    assertFalse(rs.paused);
+
+    // Completion waits for the queue to drain
+    rs.end();
+    ts.assertNotCompleted();
+    ts.requestMore(1);
+    ts.assertValues(new Buffer("b0"),new Buffer("b1"),new Buffer("b2"),new Buffer("b3"),new Buffer("b4"));
+    ts.assertCompleted();
+
+    testComplete();
+  }
+
+  @Test
+  public void testToObservableUnbounded() {
+
+    MockReadStream rs=new MockReadStream();
+    TestSubscriber<Buffer> ts=new TestSubscriber<>();
+
+    RxSupport.toObservable(rs).subscribe(ts);
+
+    for (int i=0;i<100;i++)
+      rs.push("b");
+    rs.end();
+
+    ts.assertValueCount(100);
+    ts.assertCompleted();
+    assertEquals(0,rs.pauseCount);
+
+    testComplete();
+  }
+
+  @Test
+  public void testToObservableError() {
+
+    MockReadStream rs=new MockReadStream();
+    TestSubscriber<Buffer> ts=new TestSubscriber<>(0);
+
+    RxSupport.toObservable(rs).subscribe(ts);
+
+    rs.push("b");
+    rs.fail(new RuntimeException("oops"));
+
+    ts.assertNoValues();
+    ts.assertError(RuntimeException.class);
+
+    testComplete();
+  }
+
+  @Test
+  public void testPumpWaitsForDrain() {
+
+    MockReadStream rs=new MockReadStream();
+    MockWriteStream out=new MockWriteStream(4);
+    TestSubscriber<Long> ts=new TestSubscriber<>();
+
+    RxSupport.pump(RxSupport.toObservable(rs,2,0),out).subscribe(ts);
+
+    // The second write fills the WriteStream so the ReadStream is paused once prefetch is queued
+    for (int i=0;i<4;i++)
+      rs.push("ab");
+
+    assertEquals(2,out.writes);
+    assertTrue(rs.paused);
+
+    out.drain();
+    assertEquals(4,out.writes);
+    assertFalse(rs.paused);
+
+    // Only the total is reported
+    rs.end();
+    ts.assertValues(8L);
+    ts.assertCompleted();
+    assertEquals(new Buffer("abababab"),out.received);
+    assertFalse(out.hasHandlers());
+
+    testComplete();
+  }
+
+  @Test
+  public void testPumpProgress() {
+
+    MockWriteStream out=new MockWriteStream(1024);
+    TestSubscriber<Long> ts=new TestSubscriber<>();
+
+    Observable<Buffer> src=Observable.from(Arrays.asList(new Buffer("abc"),new Buffer("def"),new Buffer("ghi")));
+
+    RxSupport.pump(src,out,1024,0,5).subscribe(ts);
+
+    ts.assertValues(6L,9L);
+    ts.assertCompleted();
+
+    testComplete();
+  }
+
+  @Test
+  public void testPumpOverflow() {
+
+    MockWriteStream out=new MockWriteStream(2);
+    TestSubscriber<Long> ts=new TestSubscriber<>();
+    PublishSubject<Buffer> src=PublishSubject.create();
+
+    RxSupport.pump(src,out,4,0,0).subscribe(ts);
+
+    // PublishSubject ignores backpressure so buffers are held until the limit is exceeded
+    src.onNext(new Buffer("ab"));
+    src.onNext(new Buffer("cd"));
+    src.onNext(new Buffer("ef"));
+    ts.assertNoErrors();
+    src.onNext(new Buffer("gh"));
+    ts.assertError(MissingBackpressureException.class);
+    assertFalse(src.hasObservers());
+
+    testComplete();
+  }
+
+  @Test
+  public void testPumpWriteError() {
+
+    MockWriteStream out=new MockWriteStream(1024);
+    TestSubscriber<Long> ts=new TestSubscriber<>();
+    PublishSubject<Buffer> src=PublishSubject.create();
+
+    RxSupport.pump(src,out).subscribe(ts);
+
+    src.onNext(new Buffer("ab"));
+    out.fail(new RuntimeException("oops"));
+
+    ts.assertError(RuntimeException.class);
+    assertFalse(src.hasObservers());
+    assertFalse(out.hasHandlers());
+
+    testComplete();
+  }
+
+  @Test
+  public void testPumpUnsubscribe() {
+
+    MockWriteStream out=new MockWriteStream(1024);
+    TestSubscriber<Long> ts=new TestSubscriber<>();
+    PublishSubject<Buffer> src=PublishSubject.create();
+
+    RxSupport.pump(src,out).subscribe(ts);
+    assertTrue(out.hasHandlers());
+
+    ts.unsubscribe();
+    assertFalse(src.hasObservers());
+    assertFalse(out.hasHandlers());
+
+    testComplete();
+  }
+
+  @Test
+  public void testAggregateChunks() {
+
+    Observable<Buffer> src=Observable.from(Arrays.asList(new Buffer("b1"),new Buffer("b2"),new Buffer("b3")));
+
+    // Unknown size
+    assertSingle(src.lift(new BufferAggregator(-1,BufferAggregator.UNLIMITED)),new Buffer("b1b2b3"));
+    // Presized
+    assertSingle(src.lift(new BufferAggregator(6,6)),new Buffer("b1b2b3"));
+    // Empty
+    assertSingle(Observable.<Buffer>empty().lift(new BufferAggregator(-1,0)),new Buffer());
+    // Huge expected size is not allocated up front
+    assertSingle(src.lift(new BufferAggregator(Integer.MAX_VALUE-1,BufferAggregator.UNLIMITED)),new Buffer("b1b2b3"));
+
+    testComplete();
+  }
+
+  @Test
+  public void testAggregateTooLarge() {
+
+    PublishSubject<Buffer> src=PublishSubject.create();
+    TestSubscriber<Buffer> ts=new TestSubscriber<>();
+
+    src.lift(new BufferAggregator(-1,3)).subscribe(ts);
+
+    src.onNext(new Buffer("b1"));
+    ts.assertNoErrors();
+    src.onNext(new Buffer("b2"));
+    ts.assertError(BodyTooLargeException.class);
+    assertFalse(src.hasObservers());
+
+    // Expected size is checked before reading
+    TestSubscriber<Buffer> early=new TestSubscriber<>();
+    src.lift(new BufferAggregator(4,3)).subscribe(early);
+    early.assertError(BodyTooLargeException.class);
+    assertFalse(src.hasObservers());
+
+    // ..without registering with a ReadStream
+    MockReadStream rs=new MockReadStream();
+    TestSubscriber<Buffer> unread=new TestSubscriber<>();
+    RxSupport.toObservable(rs).lift(new BufferAggregator(4,3)).subscribe(unread);
+    unread.assertError(BodyTooLargeException.class);
+    assertFalse(rs.reading());
+
+    testComplete();
+  }
+
+  /** Split a string into chunks of the given size */
+  protected static Observable<Buffer> chunked(String data, int size) {
+    return chunked(new Buffer(data),size);
+  }
+
+  /** Split data into chunks of size */
+  protected static Observable<Buffer> chunked(Buffer data, int size) {
+    Buffer[] chunks=new Buffer[(data.length()+size-1)/size];
+    for (int i=0;i<chunks.length;i++)
+      chunks[i]=data.getBuffer(i*size,Math.min(data.length(),(i+1)*size));
+    return Observable.from(chunks);
+  }
+
+  @Test
+  public void testDecodeJsonStreamLines() {
+
+    String data="{\"a\":1}\n{\"b\":\"x}\\\"{\"}\n  {\"c\":{\"d\":[1,2]}}\n";
+
+    for (int size : new int[] { 1, 3, data.length() }) {
+      TestSubscriber<JsonObject> ts=new TestSubscriber<>();
+      chunked(data,size).lift(RxSupport.decodeJsonStream()).subscribe(ts);
+      ts.assertNoErrors();
+      ts.assertValueCount(3);
+      assertEquals(1,(int)ts.getOnNextEvents().get(0).getInteger("a"));
+      assertEquals("x}\"{",ts.getOnNextEvents().get(1).getString("b"));
+      assertEquals(2,(int)ts.getOnNextEvents().get(2).getObject("c").getArray("d").<Integer>get(1));
+      ts.assertCompleted();
+    }
+
+    testComplete();
+  }
+
+  @Test
+  public void testDecodeJsonStreamArray() {
+
+    TestSubscriber<JsonObject> ts=new TestSubscriber<>();
+    chunked(" [ {\"a\":1}, {\"a\":2} ,{\"a\":3}] ",4).lift(RxSupport.decodeJsonStream()).subscribe(ts);
+    ts.assertNoErrors();
+    ts.assertValues(new JsonObject().putNumber("a",1),new JsonObject().putNumber("a",2),new JsonObject().putNumber("a",3));
+    ts.assertCompleted();
+
+    // Empty
+    TestSubscriber<JsonObject> empty=new TestSubscriber<>();
+    chunked("[]",1).lift(RxSupport.decodeJsonStream()).subscribe(empty);
+    empty.assertNoValues();
+    empty.assertCompleted();
+
+    testComplete();
+  }
+
+  @Test
+  public void testDecodeJsonStreamDemand() {
+
+    final AtomicLong chunks=new AtomicLong();
+    TestSubscriber<JsonObject> ts=new TestSubscriber<>(1);
+
+    chunked("{\"a\":1}{\"a\":2}{\"a\":3}{\"a\":4}",8)
+      .doOnNext(new Action1<Buffer>() {
+        public void call(Buffer b) {
+          chunks.incrementAndGet();
+        }
+      })
+      .lift(RxSupport.decodeJsonStream())
+      .subscribe(ts);
+
+    // Only read as far as needed
+    ts.assertValueCount(1);
+    assertEquals(1,chunks.get());
+
+    ts.requestMore(2);
+    ts.assertValueCount(3);
+    assertEquals(3,chunks.get());
+
+    ts.requestMore(10);
+    ts.assertValueCount(4);
+    ts.assertCompleted();
+
+    testComplete();
+  }
+
+  @Test
+  public void testDecodeJsonStreamErrors() {
+
+    TestSubscriber<JsonObject> truncated=new TestSubscriber<>();
+    chunked("{\"a\":1}{\"a\"",4).lift(RxSupport.decodeJsonStream()).subscribe(truncated);
+    truncated.assertValueCount(1);
+    truncated.assertError(DecodeException.class);
+
+    TestSubscriber<JsonObject> invalid=new TestSubscriber<>();
+    chunked("[1,2]",4).lift(RxSupport.decodeJsonStream()).subscribe(invalid);
+    invalid.assertError(DecodeException.class);
+
+    // Array elements must be separated by exactly one comma
+    for (String malformed : new String[] { "[,{}]", "[{},,{}]", "[{}{}]", "[{} {}]", "[{},]" }) {
+      TestSubscriber<JsonObject> separators=new TestSubscriber<>();
+      chunked(malformed,2).lift(RxSupport.decodeJsonStream()).subscribe(separators);
+      separators.assertError(DecodeException.class);
+    }
+
+    TestSubscriber<JsonObject> tooLarge=new TestSubscriber<>();
+    chunked("{\"a\":1}{\"a\":\"0123456789\"}",4).lift(RxSupport.decodeJsonStream(10)).subscribe(tooLarge);
+    tooLarge.assertValueCount(1);
+    tooLarge.assertError(DecodeException.class);
+
+    testComplete();
+  }
+
+  /** Create n records */
+  protected static Observable<JsonObject> records(int n) {
+    JsonObject[] res=new JsonObject[n];
+    for (int i=0;i<n;i++)
+      res[i]=new JsonObject().putNumber("id",i);
+    return Observable.from(res);
+  }
+
+  @Test
+  public void testWriteJsonStreamArray() {
+
+    final MockWriteStream out=new MockWriteStream(1024);
+
+    RxSupport.writeJsonStream(vertx.currentContext(),records(3),out,JsonStreamWriter.Format.ARRAY)
+      .subscribe(new Action1<Long>() {
+        public void call(Long total) {
+          assertEquals("[{\"id\":0},{\"id\":1},{\"id\":2}]",out.received.toString());
+          assertEquals(out.received.length(),total.intValue());
+          // Coalesced into a single write
+          assertEquals(1,out.writes);
+          testComplete();
+        }
+      });
+  }
+
+  @Test
+  public void testWriteJsonStreamFull() {
+
+    final MockWriteStream out=new MockWriteStream(20);
+    final TestSubscriber<Long> ts=new TestSubscriber<>();
+
+    // Each record is 9 bytes so each write is 18 bytes; the second write fills the stream
+    new JsonStreamWriter(vertx.currentContext(),records(10),out,JsonStreamWriter.Format.NDJSON,16,2).call(ts);
+
+    assertEquals(2,out.writes);
+    assertEquals("{\"id\":0}\n{\"id\":1}\n{\"id\":2}\n{\"id\":3}\n",out.received.toString());
+
+    out.drain();
+    assertEquals(4,out.writes);
+    ts.assertNotCompleted();
+    out.drain();
+    assertEquals(5,out.writes);
+    ts.assertValues(90L);
+    ts.assertCompleted();
+    assertFalse(out.hasHandlers());
+
+    testComplete();
+  }
+
+  @Test
+  public void testWriteJsonStreamError() {
+
+    MockWriteStream out=new MockWriteStream(1024);
+    TestSubscriber<Long> ts=new TestSubscriber<>();
+    PublishSubject<JsonObject> src=PublishSubject.create();
+
+    new JsonStreamWriter(vertx.currentContext(),src,out,JsonStreamWriter.Format.NDJSON).call(ts);
+    assertTrue(out.hasHandlers());
+
+    out.fail(new RuntimeException("oops"));
+    ts.assertError(RuntimeException.class);
+    assertFalse(src.hasObservers());
+    assertFalse(out.hasHandlers());
+
+    testComplete();
+  }
+
+  @Test
+  public void testWriteJsonStreamEmpty() {
+
+    final MockWriteStream out=new MockWriteStream(1024);
+
+    RxSupport.writeJsonStream(vertx.currentContext(),records(0),out,JsonStreamWriter.Format.ARRAY)
+      .subscribe(new Action1<Long>() {
+        public void call(Long total) {
+          assertEquals("[]",out.received.toString());
+          testComplete();
+        }
+      });
+  }
+
+  @Test
+  public void testEncodeJson() throws Exception {
+
+    JsonObject obj=new JsonObject()
+      .putString("name","caf\u00e9 \u2603")
+      .putNumber("n",1.5)
+      .putBinary("bin",new byte[] { 1, 2, 3 })
+      .putObject("nested",new JsonObject().putArray("list",new JsonArray().add("a").add(1)));
+
+    assertTrue(Arrays.equals(obj.encode().getBytes("UTF-8"),RxSupport.encodeJson().call(obj).getBytes()));
+    assertTrue(Arrays.equals(obj.encode().getBytes("UTF-16"),RxSupport.encodeJson("UTF-16").call(obj).getBytes()));
+    assertTrue(Arrays.equals(obj.encode().getBytes("ISO-8859-1"),JsonEncoder.encodeBytes(obj,JsonEncoder.charset("ISO-8859-1"))));
+
+    // Append to existing buffer
+    Buffer target=new Buffer("[");
+    JsonEncoder.encode(obj,target);
+    assertEquals("["+obj.encode(),target.toString("UTF-8"));
+
+    // Larger than the retained scratch buffer, then small again
+    StringBuilder sb=new StringBuilder();
+    for (int i=0;i<100*1024;i++)
+      sb.append('x');
+    JsonObject big=new JsonObject().putString("data",sb.toString());
+    assertEquals(big.encode(),JsonEncoder.encode(big).toString("UTF-8"));
+    assertEquals(obj.encode(),JsonEncoder.encode(obj).toString("UTF-8"));
+
+    try {
+      RxSupport.encodeJson("no-such-charset");
+      fail("Unknown charset accepted");
+    }
+    catch(RuntimeException e) {
+      // Expected
+    }
+
+    testComplete();
+  }
+
+  /** Received records as strings */
+  protected static String records(TestSubscriber<Buffer> ts) {
+    StringBuilder sb=new StringBuilder();
+    for (Buffer b : ts.getOnNextEvents())
+      sb.append('<').append(b.toString()).append('>');
+    return sb.toString();
+  }
+
+  @Test
+  public void testFrameDelimited() {
+
+    String data="one\r\ntwo\r\n\r\nthree\r\r\nfour";
+
+    for (int size : new int[] { 1, 2, 3, 5, data.length() }) {
+      TestSubscriber<Buffer> ts=new TestSubscriber<>();
+      chunked(data,size).lift(RxSupport.frameDelimited(new Buffer("\r\n"),100)).subscribe(ts);
+      ts.assertNoErrors();
+      ts.assertCompleted();
+      assertEquals("<one><two><><three\r><four>",records(ts));
+    }
+
+    TestSubscriber<Buffer> tooLarge=new TestSubscriber<>();
+    chunked("ab\nabcdef\nab\n",3).lift(RxSupport.frameLines(4)).subscribe(tooLarge);
+    assertEquals("<ab>",records(tooLarge));
+    tooLarge.assertError(RuntimeException.class);
+
+    testComplete();
+  }
+
+  @Test
+  public void testFrameSlicesInPlace() {
+
+    Buffer chunk=new Buffer("a\nb\n");
+    TestSubscriber<Buffer> ts=new TestSubscriber<>();
+    Observable.just(chunk).lift(RxSupport.frameLines(10)).subscribe(ts);
+    assertEquals("<a><b>",records(ts));
+
+    // Records share memory with the chunk
+    chunk.setByte(0,(byte)'x');
+    assertEquals("<x><b>",records(ts));
+
+    testComplete();
+  }
+
+  @Test
+  public void testFrameFixed() {
+
+    for (int size : new int[] { 1, 2, 3, 7, 9 }) {
+      TestSubscriber<Buffer> ts=new TestSubscriber<>();
+      chunked("aaabbbccc",size).lift(RxSupport.frameFixed(3)).subscribe(ts);
+      ts.assertNoErrors();
+      assertEquals("<aaa><bbb><ccc>",records(ts));
+    }
+
+    TestSubscriber<Buffer> truncated=new TestSubscriber<>();
+    chunked("aaabb",2).lift(RxSupport.frameFixed(3)).subscribe(truncated);
+    assertEquals("<aaa>",records(truncated));
+    truncated.assertError(RuntimeException.class);
+
+    testComplete();
+  }
+
+  @Test
+  public void testFrameLengthPrefixed() {
+
+    String[] recs={ "hello", "", "world!", new String(new char[300]).replace('\0','z') };
+
+    for (int prefix : new int[] { 1, 2, 4, LengthFrameDecoder.VARINT }) {
+      Buffer data=new Buffer();
+      String expected="";
+      for (String rec : recs) {
+        int len=rec.length();
+        if ((prefix==1) && (len>255))
+          continue;
+        if (prefix==1)
+          data.appendByte((byte)len);
+        else if (prefix==2)
+          data.appendShort((short)len);
+        else if (prefix==4)
+          data.appendInt(len);
+        else {
+          while (len>=0x80) {
+            data.appendByte((byte)((len&0x7f)|0x80));
+            len>>>=7;
+          }
+          data.appendByte((byte)len);
+        }
+        data.appendString(rec);
+        expected+="<"+rec+">";
+      }
+
+      for (int size : new int[] { 1, 2, 3, 5, 64, data.length() }) {
+        TestSubscriber<Buffer> ts=new TestSubscriber<>();
+        chunked(data,size).lift(RxSupport.frameLengthPrefixed(prefix,1024)).subscribe(ts);
+        ts.assertNoErrors();
+        ts.assertCompleted();
+        assertEquals(expected,records(ts));
+      }
+    }
+
+    // Length checked before data is buffered
+    TestSubscriber<Buffer> tooLarge=new TestSubscriber<>();
+    Observable.just(new Buffer().appendInt(Integer.MAX_VALUE)).lift(RxSupport.frameLengthPrefixed(4,1024)).subscribe(tooLarge);
+    tooLarge.assertError(RuntimeException.class);
+
+    TestSubscriber<Buffer> badVarint=new TestSubscriber<>();
+    Observable.just(new Buffer(new byte[] { -1, -1, -1, -1, -1, -1 })).lift(RxSupport.frameLengthPrefixed(LengthFrameDecoder.VARINT,Integer.MAX_VALUE)).subscribe(badVarint);
+    badVarint.assertError(RuntimeException.class);
+
+    testComplete();
+  }
+
+  @Test
+  public void testFrameDemand() {
+
+    final AtomicLong chunks=new AtomicLong();
+    TestSubscriber<Buffer> ts=new TestSubscriber<>(1);
+
+    chunked("a\nb\nc\nd\n",4)
+      .doOnNext(new Action1<Buffer>() {
+        public void call(Buffer b) {
+          chunks.incrementAndGet();
+        }
+      })
+      .lift(RxSupport.frameLines(10))
+      .subscribe(ts);
+
+    ts.assertValueCount(1);
+    assertEquals(1,chunks.get());
+
+    ts.requestMore(1);
+    ts.assertValueCount(2);
+    assertEquals(1,chunks.get());
+
+    ts.requestMore(10);
+    ts.assertValueCount(4);
+    ts.assertCompleted();
+
+    testComplete();
+  }
+}
@@ -18,26 +18,51 @@ package io.vertx.rxcore.test.integration.java;
  * @author <a href="http://tfox.org">Tim Fox</a>
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import io.vertx.rxcore.java.RxVertx;
+import io.vertx.rxcore.java.eventbus.RxBatchLoader;
+import io.vertx.rxcore.java.eventbus.RxCircuitBreaker;
+import io.vertx.rxcore.java.eventbus.RxEncodedMessage;
 import io.vertx.rxcore.java.eventbus.RxEventBus;
+import io.vertx.rxcore.java.eventbus.RxEventBusMetrics;
+import io.vertx.rxcore.java.eventbus.RxGatherResult;
+import io.vertx.rxcore.java.eventbus.RxHedger;
 import io.vertx.rxcore.java.eventbus.RxMessage;
+import io.vertx.rxcore.java.eventbus.RxReplyCache;
 import io.vertx.rxcore.java.eventbus.RxStream;
+import io.vertx.rxcore.java.eventbus.RxStreamProducer;
+import io.vertx.rxcore.java.eventbus.RxTopic;
+import io.vertx.rxcore.java.impl.BoundedHandler;
+import io.vertx.rxcore.java.impl.CreditStreamHandler;
 import io.vertx.rxcore.java.impl.Regulator;
 import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.eventbus.Message;
 import org.vertx.java.core.eventbus.ReplyException;
+import org.vertx.java.core.eventbus.ReplyFailure;
 import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
 import org.vertx.testtools.TestVerticle;
 import rx.Observable;
+import rx.Observer;
 import rx.Subscription;
 import rx.functions.*;
+import rx.observers.TestSubscriber;
 
 import static io.vertx.rxcore.test.integration.java.RxAssert.*;
+import static org.vertx.testtools.VertxAssert.assertArrayEquals;
 import static org.vertx.testtools.VertxAssert.assertEquals;
+import static org.vertx.testtools.VertxAssert.assertNull;
+import static org.vertx.testtools.VertxAssert.assertSame;
+import static org.vertx.testtools.VertxAssert.assertTrue;
 import static org.vertx.testtools.VertxAssert.fail;
 import static org.vertx.testtools.VertxAssert.testComplete;
 
@@ -428,6 +453,63 @@ public class EventBusIntegrationTest extends TestVerticle {
     assertCountThenComplete(res,41);
   }
 
+  @Test
+  public void testStreamBinaryJson() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus()).enableBinaryJson();
+
+    // Reply with the count requested, waiting for the next request until it reaches 0
+    final Action1<RxMessage<JsonObject>> countdown=new Action1<RxMessage<JsonObject>>() {
+      public void call(RxMessage<JsonObject> msg) {
+        JsonObject res=new JsonObject().putNumber("n",msg.body().getInteger("n"));
+        if (msg.body().getInteger("n")>0)
+          msg.<JsonObject,JsonObject>observeReply(res).subscribe(this);
+        else
+          msg.reply(res);
+      }
+    };
+    rx.<JsonObject>registerHandler("binary-countdown").subscribe(countdown);
+
+    Observable<Integer> res=rx.<JsonObject,JsonObject>observeStream("binary-countdown", new JsonObject().putNumber("n",3))
+      .map(new Func1<RxStream<JsonObject,JsonObject>,Integer>() {
+        public Integer call(RxStream<JsonObject,JsonObject> s) {
+          int n=s.value().getInteger("n");
+          if (n>0)
+            s.next(new JsonObject().putNumber("n",n-1));
+          return n;
+        }
+      });
+
+    assertSequenceThenComplete(res, 3, 2, 1, 0);
+  }
+
+  @Test
+  public void testWindowedStreamBinaryJson() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus()).enableBinaryJson();
+
+    rx.<Integer,JsonObject>registerStreamHandler("binary-pages").subscribe(new Action1<RxStreamProducer<Integer,JsonObject>>() {
+      public void call(RxStreamProducer<Integer,JsonObject> req) {
+        req.send(Observable.range(0,req.body())
+          .map(new Func1<Integer,JsonObject>() {
+            public JsonObject call(Integer value) {
+              return new JsonObject().putNumber("n",value);
+            }
+          }));
+      }
+    });
+
+    // More values than the first window, so the consumer must grant further credits
+    Observable<Integer> res=rx.<Integer,JsonObject>observeWindowedStream("binary-pages", 50, 8)
+      .map(new Func1<JsonObject,Integer>() {
+        public Integer call(JsonObject value) {
+          return value.getInteger("n");
+        }
+      });
+
+    assertCountThenComplete(res,50);
+  }
+
   @Test
   public void testFlow() {
 
@@ -492,4 +574,1109 @@ public class EventBusIntegrationTest extends TestVerticle {
 
     assertErrorThenComplete(rxEventBus.observeSend("fail", "ping"), ReplyException.class, "oops");
   }
+
+  /** Register a handler that doubles each key of a batch */
+  protected void registerDoubler(String address, final List<Integer> batchSizes) {
+    vertx.eventBus().registerHandler(address, new Handler<Message<JsonArray>>() {
+      public void handle(Message<JsonArray> msg) {
+        batchSizes.add(msg.body().size());
+        JsonArray res=new JsonArray();
+        for (Object key : msg.body())
+          res.add(((Integer)key==0)?null:(Integer)key*2);
+        msg.reply(res);
+      }
+    });
+  }
+
+  @Test
+  public void testBatchLoader() {
+
+    final List<Integer> batchSizes=new ArrayList<>();
+    registerDoubler("double", batchSizes);
+
+    RxVertx rx=new RxVertx(vertx);
+    RxBatchLoader<Integer,Integer> loader=rx.batchLoader("double");
+
+    Observable<Integer> res=loader.loadMany(Arrays.asList(1,2,3,2,0,4))
+      .doOnCompleted(new Action0() {
+        public void call() {
+          // One request, duplicate key sent once
+          assertEquals(Arrays.asList(5), batchSizes);
+        }
+      });
+
+    // Key 0 has no value
+    assertSequenceThenComplete(res,2,4,6,4,8);
+  }
+
+  @Test
+  public void testBatchLoaderMaxSize() {
+
+    final List<Integer> batchSizes=new ArrayList<>();
+    registerDoubler("double-max", batchSizes);
+
+    RxBatchLoader<Integer,Integer> loader=new RxBatchLoader<>(vertx, new RxEventBus(vertx.eventBus()), "double-max", 2, 0, 1000);
+
+    Observable<Integer> res=loader.loadMany(Arrays.asList(1,2,3,4,5))
+      .doOnCompleted(new Action0() {
+        public void call() {
+          assertEquals(Arrays.asList(2,2,1), batchSizes);
+        }
+      });
+
+    assertSequenceThenComplete(res,2,4,6,8,10);
+  }
+
+  @Test
+  public void testBatchLoaderFail() {
+
+    vertx.eventBus().registerHandler("batch-fail", new Handler<Message<JsonArray>>() {
+      public void handle(Message<JsonArray> msg) {
+        msg.fail(500,"unavailable");
+      }
+    });
+
+    RxBatchLoader<String,String> loader=new RxBatchLoader<>(vertx, new RxEventBus(vertx.eventBus()), "batch-fail", 10, 5, 1000);
+
+    Observable<String> res=Observable.merge(loader.load("a"),loader.load("b"));
+
+    assertErrorThenComplete(res,ReplyException.class);
+  }
+
+  /** Register a handler that replies to each integer after a varying delay, tracking the requests in flight */
+  protected void registerSlowEcho(String address, final AtomicInteger received, final AtomicInteger maxInFlight) {
+    final AtomicInteger inFlight=new AtomicInteger();
+    vertx.eventBus().registerHandler(address, new Handler<Message<Integer>>() {
+      public void handle(final Message<Integer> msg) {
+        received.incrementAndGet();
+        maxInFlight.set(Math.max(maxInFlight.get(),inFlight.incrementAndGet()));
+        vertx.setTimer(5+10*(3-msg.body()%4), new Handler<Long>() {
+          public void handle(Long id) {
+            inFlight.decrementAndGet();
+            msg.reply(msg.body());
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testPipeline() {
+
+    final AtomicInteger received=new AtomicInteger();
+    final AtomicInteger maxInFlight=new AtomicInteger();
+    registerSlowEcho("slow-echo", received, maxInFlight);
+
+    RxEventBus rxEventBus = new RxEventBus(vertx.eventBus());
+
+    Observable<Integer> res=rxEventBus.<Integer,Integer>pipeline("slow-echo", Observable.range(0,20), 4)
+      .map(new Func1<RxMessage<Integer>,Integer>() {
+        public Integer call(RxMessage<Integer> msg) {
+          return msg.body();
+        }
+      })
+      .doOnCompleted(new Action0() {
+        public void call() {
+          assertEquals(20, received.get());
+          assertEquals(4, maxInFlight.get());
+        }
+      });
+
+    assertSequenceThenComplete(res,0,1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19);
+  }
+
+  @Test
+  public void testPipelineUnordered() {
+
+    final AtomicInteger received=new AtomicInteger();
+    final AtomicInteger maxInFlight=new AtomicInteger();
+    registerSlowEcho("slow-echo", received, maxInFlight);
+
+    RxEventBus rxEventBus = new RxEventBus(vertx.eventBus());
+
+    Observable<List<Integer>> res=rxEventBus.<Integer,Integer>pipeline("slow-echo", Observable.range(0,8), 4, false)
+      .map(new Func1<RxMessage<Integer>,Integer>() {
+        public Integer call(RxMessage<Integer> msg) {
+          return msg.body();
+        }
+      })
+      .toList()
+      .doOnCompleted(new Action0() {
+        public void call() {
+          assertEquals(4, maxInFlight.get());
+        }
+      });
+
+    // Shortest delay first within each window
+    assertSingleThenComplete(res.map(new Func1<List<Integer>,List<Integer>>() {
+      public List<Integer> call(List<Integer> values) {
+        assertEquals(3, values.get(0).intValue());
+        Collections.sort(values);
+        return values;
+      }
+    }),Arrays.asList(0,1,2,3,4,5,6,7));
+  }
+
+  @Test
+  public void testPipelineDemand() {
+
+    final AtomicInteger received=new AtomicInteger();
+    final AtomicInteger maxInFlight=new AtomicInteger();
+    registerSlowEcho("slow-echo", received, maxInFlight);
+
+    RxEventBus rxEventBus = new RxEventBus(vertx.eventBus());
+
+    final List<Integer> values=new ArrayList<>();
+    final TestSubscriber<RxMessage<Integer>> sub=new TestSubscriber<>(new Observer<RxMessage<Integer>>() {
+      public void onNext(RxMessage<Integer> msg) {
+        values.add(msg.body());
+      }
+      public void onError(Throwable e) {
+        fail("unexpected failure (e="+e+")");
+      }
+      public void onCompleted() {
+        assertEquals(10, values.size());
+        testComplete();
+      }
+    }, 2);
+
+    rxEventBus.<Integer,Integer>pipeline("slow-echo", Observable.range(0,10), 3).subscribe(sub);
+
+    vertx.setTimer(200, new Handler<Long>() {
+      public void handle(Long id) {
+        // Two replies emitted, so only two more messages sent
+        assertEquals(Arrays.asList(0,1), values);
+        assertEquals(5, received.get());
+        sub.requestMore(Long.MAX_VALUE);
+      }
+    });
+  }
+
+  /** Send 0..4 to a bounded handler that has no demand, then request and check what was kept */
+  protected void assertOverflow(BoundedHandler.Overflow overflow, final int bufferSize, final List<Integer> expected, final long dropped, final long failed) {
+
+    RxEventBus rxEventBus = new RxEventBus(vertx.eventBus());
+    final BoundedHandler.Counters counters=new BoundedHandler.Counters();
+
+    final List<Integer> values=new ArrayList<>();
+    final TestSubscriber<RxMessage<Integer>> sub=new TestSubscriber<>(new Observer<RxMessage<Integer>>() {
+      public void onNext(RxMessage<Integer> msg) {
+        values.add(msg.body());
+        msg.reply(msg.body());
+      }
+      public void onError(Throwable e) {
+        fail("unexpected failure (e="+e+")");
+      }
+      public void onCompleted() {
+      }
+    }, 0);
+
+    rxEventBus.<Integer>registerHandler("bounded", bufferSize, overflow, counters).subscribe(sub);
+
+    final AtomicInteger rejected=new AtomicInteger();
+    for (int i=0;i<5;i++) {
+      vertx.eventBus().sendWithTimeout("bounded", i, 1000, new Handler<AsyncResult<Message<Integer>>>() {
+        public void handle(AsyncResult<Message<Integer>> res) {
+          if (res.failed() && (((ReplyException)res.cause()).failureCode()==RxEventBus.OVERFLOW_FAILURE_CODE))
+            rejected.incrementAndGet();
+        }
+      });
+    }
+
+    vertx.setTimer(100, new Handler<Long>() {
+      public void handle(Long id) {
+        assertEquals(0, values.size());
+        assertEquals(failed, rejected.get());
+        assertEquals(dropped, counters.dropped());
+        assertEquals(failed, counters.failed());
+        sub.requestMore(Long.MAX_VALUE);
+        assertEquals(expected, values);
+        sub.unsubscribe();
+        testComplete();
+      }
+    });
+  }
+
+  @Test
+  public void testOverflowFail() {
+    assertOverflow(BoundedHandler.Overflow.FAIL, 2, Arrays.asList(0,1), 0, 3);
+  }
+
+  @Test
+  public void testOverflowDropOldest() {
+    assertOverflow(BoundedHandler.Overflow.DROP_OLDEST, 2, Arrays.asList(3,4), 3, 0);
+  }
+
+  @Test
+  public void testOverflowDropNewest() {
+    assertOverflow(BoundedHandler.Overflow.DROP_NEWEST, 3, Arrays.asList(0,1,2), 2, 0);
+  }
+
+  @Test
+  public void testOverflowLatest() {
+    assertOverflow(BoundedHandler.Overflow.LATEST, 3, Arrays.asList(4), 4, 0);
+  }
+
+  @Test
+  public void testOverflowLocal() {
+
+    RxEventBus rxEventBus = new RxEventBus(vertx.eventBus());
+
+    final List<Integer> values=new ArrayList<>();
+    final TestSubscriber<RxMessage<Integer>> sub=new TestSubscriber<>(new Observer<RxMessage<Integer>>() {
+      public void onNext(RxMessage<Integer> msg) {
+        values.add(msg.body());
+      }
+      public void onError(Throwable e) {
+        fail("unexpected failure (e="+e+")");
+      }
+      public void onCompleted() {
+      }
+    }, 0);
+
+    rxEventBus.<Integer>registerLocalHandler("bounded-local", 2, BoundedHandler.Overflow.DROP_NEWEST).subscribe(sub);
+
+    for (int i=0;i<5;i++)
+      vertx.eventBus().send("bounded-local", i);
+
+    vertx.setTimer(100, new Handler<Long>() {
+      public void handle(Long id) {
+        assertEquals(0, values.size());
+        sub.requestMore(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(0,1), values);
+        sub.unsubscribe();
+        testComplete();
+      }
+    });
+  }
+
+  @Test
+  public void testSharedHandler() {
+
+    final RxEventBus rxEventBus = new RxEventBus(vertx.eventBus());
+
+    final List<String> received=new ArrayList<>();
+    final Subscription s1=rxEventBus.<String>registerSharedHandler("shared").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        received.add("1:"+msg.body());
+      }
+    });
+    final Subscription s2=rxEventBus.<String>registerSharedHandler("shared").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        received.add("2:"+msg.body());
+        // Only one handler registered, so the reply is sent once
+        msg.reply("pong");
+      }
+    });
+
+    rxEventBus.<String,String>observeSend("shared","ping")
+      .flatMap(new Func1<RxMessage<String>,Observable<Void>>() {
+        public Observable<Void> call(RxMessage<String> reply) {
+          assertEquals("pong", reply.body());
+          assertEquals(Arrays.asList("1:ping","2:ping"), received);
+
+          s1.unsubscribe();
+          s2.unsubscribe();
+
+          // Last subscriber left so the address is unregistered
+          return rxEventBus.<String,String>observeSendWithTimeout("shared","ping",100)
+            .map(new Func1<RxMessage<String>,Void>() {
+              public Void call(RxMessage<String> msg) {
+                return null;
+              }
+            });
+        }
+      })
+      .subscribe(new Action1<Void>() {
+        public void call(Void v) {
+          fail("unexpected reply");
+        }
+      }, new Action1<Throwable>() {
+        public void call(Throwable t) {
+          assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException)t).failureType());
+          assertEquals(2, received.size());
+
+          // Re-registered by a new subscriber
+          rxEventBus.<String>registerSharedHandler("shared").subscribe(new Action1<RxMessage<String>>() {
+            public void call(RxMessage<String> msg) {
+              msg.reply("pong");
+            }
+          });
+          assertMessageThenComplete(rxEventBus.<String,String>observeSend("shared","ping"), "pong");
+        }
+      });
+  }
+
+  @Test
+  public void testWindowedStream() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus());
+
+    final AtomicInteger sent=new AtomicInteger();
+    final AtomicInteger consumed=new AtomicInteger();
+    final AtomicInteger maxOutstanding=new AtomicInteger();
+
+    rx.<Integer,Integer>registerStreamHandler("pages").subscribe(new Action1<RxStreamProducer<Integer,Integer>>() {
+      public void call(RxStreamProducer<Integer,Integer> req) {
+        req.send(Observable.range(0,req.body())
+          .doOnNext(new Action1<Integer>() {
+            public void call(Integer value) {
+              maxOutstanding.set(Math.max(maxOutstanding.get(),sent.incrementAndGet()-consumed.get()));
+            }
+          }));
+      }
+    });
+
+    Observable<Integer> res=rx.<Integer,Integer>observeWindowedStream("pages", 100, 8)
+      .doOnNext(new Action1<Integer>() {
+        public void call(Integer value) {
+          consumed.incrementAndGet();
+        }
+      })
+      .doOnCompleted(new Action0() {
+        public void call() {
+          assertEquals(100, consumed.get());
+          // Never more in flight than the credits granted
+          assertTrue(maxOutstanding.get()<=8);
+        }
+      });
+
+    assertCountThenComplete(res,100);
+  }
+
+  @Test
+  public void testWindowedStreamCancel() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus());
+
+    final AtomicInteger sent=new AtomicInteger();
+    final CountDownLatch cancelled=new CountDownLatch(1);
+
+    rx.<Integer,Integer>registerStreamHandler("pages").subscribe(new Action1<RxStreamProducer<Integer,Integer>>() {
+      public void call(RxStreamProducer<Integer,Integer> req) {
+        req.send(Observable.range(0,req.body())
+          .doOnNext(new Action1<Integer>() {
+            public void call(Integer value) {
+              sent.incrementAndGet();
+            }
+          })
+          .doOnUnsubscribe(new Action0() {
+            public void call() {
+              cancelled.countDown();
+            }
+          }));
+      }
+    });
+
+    Observable<Integer> res=rx.<Integer,Integer>observeWindowedStream("pages", 1000, 4).take(10);
+
+    assertSequence(res,0,1,2,3,4,5,6,7,8,9);
+
+    vertx.setTimer(100, new Handler<Long>() {
+      public void handle(Long id) {
+        assertEquals(0, cancelled.getCount());
+        assertTrue(sent.get()<=14);
+        testComplete();
+      }
+    });
+  }
+
+  @Test
+  public void testWindowedStreamIdleProducer() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus()).enableStreamIdleTimeout(vertx, 100);
+
+    // Producer stalls without completing
+    rx.<Integer,Integer>registerStreamHandler("stalled").subscribe(new Action1<RxStreamProducer<Integer,Integer>>() {
+      public void call(RxStreamProducer<Integer,Integer> req) {
+        req.send(Observable.<Integer>never());
+      }
+    });
+
+    rx.<Integer,Integer>observeWindowedStream("stalled", 0, 4).subscribe(new Observer<Integer>() {
+      public void onNext(Integer value) {
+        fail("unexpected value");
+      }
+      public void onError(Throwable e) {
+        assertEquals(ReplyFailure.TIMEOUT, ((ReplyException)e).failureType());
+        testComplete();
+      }
+      public void onCompleted() {
+        fail("unexpected completion");
+      }
+    });
+  }
+
+  @Test
+  public void testWindowedStreamIdleConsumer() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus()).enableStreamIdleTimeout(vertx, 100);
+
+    final AtomicInteger sent=new AtomicInteger();
+    final CountDownLatch cancelled=new CountDownLatch(1);
+
+    rx.<Integer,Integer>registerStreamHandler("pages").subscribe(new Action1<RxStreamProducer<Integer,Integer>>() {
+      public void call(RxStreamProducer<Integer,Integer> req) {
+        req.send(Observable.range(0,req.body())
+          .doOnNext(new Action1<Integer>() {
+            public void call(Integer value) {
+              sent.incrementAndGet();
+            }
+          })
+          .doOnUnsubscribe(new Action0() {
+            public void call() {
+              cancelled.countDown();
+            }
+          }));
+      }
+    });
+
+    // Consumer never requests so no credits are granted after the first window
+    final TestSubscriber<Integer> sub=new TestSubscriber<>(0);
+    rx.<Integer,Integer>observeWindowedStream("pages", 1000, 4).subscribe(sub);
+
+    vertx.setTimer(300, new Handler<Long>() {
+      public void handle(Long id) {
+        assertEquals(0, cancelled.getCount());
+        assertEquals(4, sent.get());
+        assertEquals(1, sub.getOnErrorEvents().size());
+        testComplete();
+      }
+    });
+  }
+
+  /** Register a handler that replies with the number of requests received */
+  protected void registerCounter(String address, final AtomicInteger received) {
+    vertx.eventBus().registerHandler(address, new Handler<Message<JsonObject>>() {
+      public void handle(Message<JsonObject> msg) {
+        msg.reply(received.incrementAndGet());
+      }
+    });
+  }
+
+  /** Map reply to body */
+  protected static <T> Func1<RxMessage<T>,T> body() {
+    return new Func1<RxMessage<T>,T>() {
+      public T call(RxMessage<T> msg) {
+        return msg.body();
+      }
+    };
+  }
+
+  @Test
+  public void testReplyCache() {
+
+    final AtomicInteger received=new AtomicInteger();
+    registerCounter("reference", received);
+
+    final RxReplyCache cache=new RxReplyCache(new RxEventBus(vertx.eventBus()), 2, 0)
+      .ttl("reference", 200);
+
+    final JsonObject a=new JsonObject().putString("id","a");
+
+    // Concurrent identical requests share one send
+    Observable<Integer> first=Observable.merge(
+      cache.<JsonObject,Integer>observeSend("reference", a).map(EventBusIntegrationTest.<Integer>body()),
+      cache.<JsonObject,Integer>observeSend("reference", new JsonObject().putString("id","a")).map(EventBusIntegrationTest.<Integer>body()));
+
+    assertSequenceThen(first, new Action0() {
+      public void call() {
+        assertEquals(1, received.get());
+
+        // Cached within the TTL
+        assertSequenceThen(cache.<JsonObject,Integer>observeSend("reference", a).map(EventBusIntegrationTest.<Integer>body()), new Action0() {
+          public void call() {
+            assertEquals(1, cache.misses());
+            assertEquals(2, cache.hits());
+
+            vertx.setTimer(300, new Handler<Long>() {
+              public void handle(Long id) {
+                // Expired
+                assertSingleThenComplete(cache.<JsonObject,Integer>observeSend("reference", a).map(EventBusIntegrationTest.<Integer>body()), 2);
+              }
+            });
+          }
+        }, 1);
+      }
+    }, 1, 1);
+  }
+
+  @Test
+  public void testReplyCacheLru() {
+
+    final AtomicInteger received=new AtomicInteger();
+    registerCounter("reference", received);
+
+    final RxReplyCache cache=new RxReplyCache(new RxEventBus(vertx.eventBus()), 2, 60000);
+
+    Observable<Integer> res=Observable.from(Arrays.asList("a","b","a","c","b","a"))
+      .concatMap(new Func1<String,Observable<Integer>>() {
+        public Observable<Integer> call(String id) {
+          return cache.<String,Integer>observeSend("reference", id).map(EventBusIntegrationTest.<Integer>body());
+        }
+      });
+
+    // c evicts b (a was used more recently), then b evicts a
+    assertSequenceThenComplete(res,1,2,1,3,4,5);
+  }
+
+  @Test
+  public void testAdaptiveTimeout() {
+
+    final AtomicInteger delay=new AtomicInteger(0);
+    vertx.eventBus().registerHandler("adaptive", new Handler<Message<String>>() {
+      public void handle(final Message<String> msg) {
+        if (delay.get()==0) {
+          msg.reply("fast");
+          return;
+        }
+        vertx.setTimer(delay.get(), new Handler<Long>() {
+          public void handle(Long id) {
+            msg.reply("slow");
+          }
+        });
+      }
+    });
+
+    final RxCircuitBreaker breaker=new RxCircuitBreaker(new RxEventBus(vertx.eventBus()))
+      .timeout(32, 10, 99, 2, 100);
+
+    // Default timeout until enough replies have been seen
+    assertEquals(RxEventBus.DEFAULT_TIMEOUT, (int)breaker.timeout("adaptive"));
+
+    Observable<String> res=Observable.range(0,10)
+      .concatMap(new Func1<Integer,Observable<String>>() {
+        public Observable<String> call(Integer i) {
+          return breaker.<String,String>observeSend("adaptive","ping").map(EventBusIntegrationTest.<String>body());
+        }
+      })
+      .last();
+
+    assertSequenceThen(res, new Action0() {
+      public void call() {
+        // Fast replies so the timeout drops to the minimum
+        assertEquals(100, breaker.timeout("adaptive"));
+        delay.set(500);
+        assertErrorThenComplete(breaker.observeSend("adaptive","ping"), ReplyException.class);
+      }
+    }, "fast");
+  }
+
+  @Test
+  public void testCircuitBreaker() {
+
+    final AtomicInteger received=new AtomicInteger();
+    final AtomicInteger failing=new AtomicInteger(1);
+    vertx.eventBus().registerHandler("flaky", new Handler<Message<String>>() {
+      public void handle(Message<String> msg) {
+        received.incrementAndGet();
+        if (failing.get()!=0)
+          msg.fail(500,"unavailable");
+        else
+          msg.reply("ok");
+      }
+    });
+
+    final RxCircuitBreaker breaker=new RxCircuitBreaker(new RxEventBus(vertx.eventBus()))
+      .circuit(4, 4, 0.5, 200);
+
+    Observable<Object> failures=Observable.range(0,4)
+      .concatMap(new Func1<Integer,Observable<Object>>() {
+        public Observable<Object> call(Integer i) {
+          return breaker.observeSend("flaky","ping")
+            .cast(Object.class)
+            .onErrorReturn(new Func1<Throwable,Object>() {
+              public Object call(Throwable t) {
+                return "failed";
+              }
+            });
+        }
+      });
+
+    assertSequenceThen(failures, new Action0() {
+      public void call() {
+        assertEquals(RxCircuitBreaker.State.OPEN, breaker.state("flaky"));
+
+        // Fails fast without sending
+        breaker.observeSend("flaky","ping").subscribe(new Action1<Object>() {
+          public void call(Object o) {
+            fail("unexpected reply");
+          }
+        }, new Action1<Throwable>() {
+          public void call(Throwable t) {
+            assertEquals(RxCircuitBreaker.CIRCUIT_OPEN_FAILURE_CODE, ((ReplyException)t).failureCode());
+            assertEquals(4, received.get());
+          }
+        });
+
+        failing.set(0);
+        vertx.setTimer(250, new Handler<Long>() {
+          public void handle(Long id) {
+            // Probe succeeds and closes the circuit
+            assertSequenceThen(breaker.<String,String>observeSend("flaky","ping").map(EventBusIntegrationTest.<String>body()), new Action0() {
+              public void call() {
+                assertEquals(RxCircuitBreaker.State.CLOSED, breaker.state("flaky"));
+                testComplete();
+              }
+            }, "ok");
+          }
+        });
+      }
+    }, "failed", "failed", "failed", "failed");
+  }
+
+  /** Register a handler whose first reply is slow */
+  protected void registerSlowFirst(String address, final AtomicInteger received) {
+    vertx.eventBus().registerHandler(address, new Handler<Message<String>>() {
+      public void handle(final Message<String> msg) {
+        if (received.incrementAndGet()>1) {
+          msg.reply("fast");
+          return;
+        }
+        vertx.setTimer(300, new Handler<Long>() {
+          public void handle(Long id) {
+            msg.reply("slow");
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testHedgedSendLatency() {
+
+    final AtomicInteger received=new AtomicInteger();
+    registerSlowFirst("hedged-latency", received);
+
+    final RxHedger hedger=new RxHedger(vertx, new RxEventBus(vertx.eventBus()), 100, 100)
+      .trackDelay(50, 1);
+
+    assertSequenceThen(hedger.<String,String>observeSend("hedged-latency","ping").map(EventBusIntegrationTest.<String>body()), new Action0() {
+      public void call() {
+        // Latency of the winning hedge is measured from when it was sent, not from the primary
+        assertTrue(hedger.delay("hedged-latency")<100);
+        testComplete();
+      }
+    }, "fast");
+  }
+
+  @Test
+  public void testCircuitBreakerReconfigured() {
+
+    vertx.eventBus().registerHandler("steady", new Handler<Message<String>>() {
+      public void handle(Message<String> msg) {
+        msg.reply("ok");
+      }
+    });
+
+    final RxCircuitBreaker breaker=new RxCircuitBreaker(new RxEventBus(vertx.eventBus()))
+      .circuit(2, 2, 0.5, 200);
+
+    // Circuit for "steady" keeps its 2-outcome window after the settings grow
+    Observable<String> res=Observable.range(0,6)
+      .concatMap(new Func1<Integer,Observable<String>>() {
+        public Observable<String> call(Integer i) {
+          if (i==1)
+            breaker.circuit(20, 10, 0.5, 200);
+          return breaker.<String,String>observeSend("steady","ping").map(EventBusIntegrationTest.<String>body());
+        }
+      });
+
+    assertSequenceThenComplete(res, "ok", "ok", "ok", "ok", "ok", "ok");
+  }
+
+  @Test
+  public void testHedgedSend() {
+
+    final AtomicInteger received=new AtomicInteger();
+    registerSlowFirst("hedged", received);
+
+    final RxHedger hedger=new RxHedger(vertx, new RxEventBus(vertx.eventBus()), 50, 100);
+    final long startTime=System.currentTimeMillis();
+
+    assertSequenceThen(hedger.<String,String>observeSend("hedged","ping").map(EventBusIntegrationTest.<String>body()), new Action0() {
+      public void call() {
+        assertTrue(System.currentTimeMillis()-startTime<250);
+        assertEquals(2, received.get());
+        assertEquals(1, hedger.hedges());
+        testComplete();
+      }
+    }, "fast");
+  }
+
+  @Test
+  public void testHedgeBudget() {
+
+    final AtomicInteger received=new AtomicInteger();
+    registerSlowFirst("hedged", received);
+
+    // 10% budget so the first request has not earned a hedge
+    final RxHedger hedger=new RxHedger(vertx, new RxEventBus(vertx.eventBus()), 50, 10);
+
+    assertSequenceThen(hedger.<String,String>observeSend("hedged","ping").map(EventBusIntegrationTest.<String>body()), new Action0() {
+      public void call() {
+        assertEquals(1, received.get());
+        assertEquals(0, hedger.hedges());
+        assertEquals(1, hedger.requests());
+        testComplete();
+      }
+    }, "slow");
+  }
+
+  @Test
+  public void testMetrics() {
+
+    final RxEventBus rxEventBus=new RxEventBus(vertx.eventBus());
+    final RxEventBusMetrics metrics=rxEventBus.enableMetrics();
+
+    final Subscription handler=rxEventBus.<String>registerHandler("metered").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        // Ignore "never" so the request times out
+        if (!msg.body().equals("never"))
+          msg.reply("pong");
+      }
+    });
+    assertEquals(1, metrics.address("metered").activeHandlers());
+
+    Observable<String> res=Observable.concat(
+        rxEventBus.<String,String>observeSend("metered","ping").map(EventBusIntegrationTest.<String>body()),
+        rxEventBus.<String,String>observeSend("metered","ping").map(EventBusIntegrationTest.<String>body()),
+        rxEventBus.<String,String>observeSendWithTimeout("metered","never",50).map(EventBusIntegrationTest.<String>body())
+          .onErrorReturn(new Func1<Throwable,String>() {
+            public String call(Throwable t) {
+              return "timeout";
+            }
+          }));
+
+    assertSequenceThen(res, new Action0() {
+      public void call() {
+        RxEventBusMetrics.AddressMetrics m=metrics.address("metered");
+        assertEquals(3, m.sent());
+        assertEquals(2, m.replies());
+        assertEquals(1, m.failures());
+        assertEquals(1, m.timeouts());
+        assertEquals(3, m.received());
+        assertEquals(2, m.latency().count());
+        assertEquals(3, m.processing().count());
+
+        handler.unsubscribe();
+        assertEquals(0, m.activeHandlers());
+
+        // Published snapshot
+        final long timerId=metrics.publishPeriodically(vertx, "metrics", 10);
+        vertx.eventBus().registerHandler("metrics", new Handler<Message<JsonObject>>() {
+          public void handle(Message<JsonObject> msg) {
+            vertx.cancelTimer(timerId);
+            assertEquals(3, msg.body().getObject("addresses").getObject("metered").getInteger("sent").intValue());
+            testComplete();
+          }
+        });
+      }
+    }, "pong", "pong", "timeout");
+  }
+
+  @Test
+  public void testBinaryJson() {
+
+    final RxEventBus rxEventBus=new RxEventBus(vertx.eventBus()).enableBinaryJson();
+
+    rxEventBus.<JsonObject>registerHandler("binary").subscribe(new Action1<RxMessage<JsonObject>>() {
+      public void call(RxMessage<JsonObject> msg) {
+        // Carried as a Buffer and decoded on access
+        assertTrue(((Message)msg.coreMessage()).body() instanceof Buffer);
+        JsonObject body=msg.body();
+        assertSame(body, msg.body());
+        assertEquals(-42, body.getInteger("int").intValue());
+        assertEquals(Long.MAX_VALUE, body.getLong("long").longValue());
+        assertEquals(1.5, body.getNumber("double").doubleValue(), 0);
+        assertEquals(true, body.getBoolean("bool"));
+        assertNull(body.getValue("null"));
+        assertArrayEquals(new byte[]{1,2,3}, body.getBinary("bytes"));
+        JsonArray items=body.getArray("items");
+        assertEquals(2, items.size());
+        assertEquals("b", ((JsonObject)items.get(1)).getString("name"));
+        msg.reply(new JsonObject().putString("reply", body.getObject("nested").getString("name")));
+      }
+    });
+
+    JsonObject req=new JsonObject()
+      .putNumber("int", -42)
+      .putNumber("long", Long.MAX_VALUE)
+      .putNumber("double", 1.5)
+      .putBoolean("bool", true)
+      .putValue("null", null)
+      .putBinary("bytes", new byte[]{1,2,3})
+      .putObject("nested", new JsonObject().putString("name", "n\u00e9sted"))
+      .putArray("items", new JsonArray()
+        .addObject(new JsonObject().putString("name", "a"))
+        .addObject(new JsonObject().putString("name", "b")));
+
+    Observable<String> res=rxEventBus.<JsonObject,JsonObject>observeSend("binary", req)
+      .map(new Func1<RxMessage<JsonObject>,String>() {
+        public String call(RxMessage<JsonObject> msg) {
+          return msg.body().getString("reply");
+        }
+      });
+
+    assertSingleThenComplete(res, "n\u00e9sted");
+  }
+
+  @Test
+  public void testTopic() {
+
+    final RxTopic<String> topic=new RxVertx(vertx).<String>topic("prices").bridge("prices.remote");
+    final List<String> other=Collections.synchronizedList(new ArrayList<String>());
+    final AtomicInteger remote=new AtomicInteger();
+    // Local and remote subscribers both finished
+    final AtomicInteger pending=new AtomicInteger(2);
+
+    vertx.eventBus().registerHandler("prices.remote", new Handler<Message<String>>() {
+      public void handle(Message<String> msg) {
+        if ((remote.incrementAndGet()==3) && (pending.decrementAndGet()==0))
+          testComplete();
+      }
+    });
+
+    final Subscription sub=topic.observe().subscribe(new Action1<String>() {
+      public void call(String msg) {
+        other.add(msg);
+      }
+    });
+    assertEquals(1, topic.size());
+
+    assertSequenceThen(topic.observe().take(3), new Action0() {
+      public void call() {
+        assertEquals(Arrays.asList("a","b","c"), other);
+        sub.unsubscribe();
+        topic.close();
+        assertEquals(0, topic.size());
+        if (pending.decrementAndGet()==0)
+          testComplete();
+      }
+    }, "a", "b", "c");
+
+    topic.publish("a");
+    topic.publish("b");
+    topic.publish("c");
+  }
+
+  @Test
+  public void testTopicConnectError() {
+
+    final RxTopic<String> topic=new RxTopic<>(vertx, new RxEventBus(vertx.eventBus()), "connected");
+
+    assertSequenceThen(topic.observe().take(2), new Action0() {
+      public void call() {
+        topic.close();
+        testComplete();
+      }
+    }, "a", "b");
+
+    // The error ends the connection without reaching subscribers
+    topic.connect(Observable.just("a").concatWith(Observable.<String>error(new RuntimeException("source failed"))));
+    topic.publish("b");
+  }
+
+  @Test
+  public void testStreamedReply() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus());
+
+    final AtomicInteger sent=new AtomicInteger();
+    final AtomicInteger consumed=new AtomicInteger();
+    final AtomicInteger maxOutstanding=new AtomicInteger();
+
+    rx.<Integer>registerHandler("rows").subscribe(new Action1<RxMessage<Integer>>() {
+      public void call(RxMessage<Integer> msg) {
+        msg.reply(Observable.range(0,msg.body())
+          .doOnNext(new Action1<Integer>() {
+            public void call(Integer value) {
+              maxOutstanding.set(Math.max(maxOutstanding.get(),sent.incrementAndGet()-consumed.get()));
+            }
+          }));
+      }
+    });
+
+    Observable<Integer> res=rx.<Integer,Integer>observeSendStream("rows", 50, 4)
+      .map(EventBusIntegrationTest.<Integer>body())
+      .doOnNext(new Action1<Integer>() {
+        public void call(Integer value) {
+          assertEquals(consumed.getAndIncrement(), value.intValue());
+        }
+      })
+      .doOnCompleted(new Action0() {
+        public void call() {
+          assertEquals(50, consumed.get());
+          // Never more in flight than the credits granted
+          assertTrue(maxOutstanding.get()<=4);
+        }
+      });
+
+    assertCountThenComplete(res,50);
+  }
+
+  @Test
+  public void testStreamedReplySingle() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus());
+
+    rx.<String>registerHandler("single").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        msg.reply("only");
+      }
+    });
+
+    assertSingleThenComplete(rx.<String,String>observeSendStream("single", "ping", 4).map(EventBusIntegrationTest.<String>body()), "only");
+  }
+
+  @Test
+  public void testStreamedReplyReservedField() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus());
+
+    // Plain replies that use the field names are not mistaken for a stream
+    final JsonObject reply=new JsonObject()
+      .putString(CreditStreamHandler.REPLY_STREAM, "user data")
+      .putString("replyStream", "user data");
+    rx.<String>registerHandler("reserved").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        msg.reply(reply);
+      }
+    });
+
+    assertSingleThenComplete(rx.<String,JsonObject>observeSendStream("reserved", "ping", 4).map(EventBusIntegrationTest.<JsonObject>body()), reply);
+  }
+
+  @Test
+  public void testStreamedReplyBinaryJson() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus()).enableBinaryJson();
+
+    rx.<JsonObject>registerHandler("binary-rows").subscribe(new Action1<RxMessage<JsonObject>>() {
+      public void call(RxMessage<JsonObject> msg) {
+        msg.reply(Observable.range(0,msg.body().getInteger("n")));
+      }
+    });
+
+    Observable<Integer> res=rx.<JsonObject,Integer>observeSendStream("binary-rows", new JsonObject().putNumber("n",3), 2)
+      .map(EventBusIntegrationTest.<Integer>body());
+
+    assertSequenceThenComplete(res, 0, 1, 2);
+  }
+
+  @Test
+  public void testScatterGather() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus());
+
+    rx.<String>registerHandler("sg.a").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        msg.reply("a");
+      }
+    });
+    rx.<String>registerHandler("sg.b").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        msg.fail(500, "broken");
+      }
+    });
+    rx.<String>registerHandler("sg.c").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        msg.reply("c");
+      }
+    });
+    // sg.d never replies
+    rx.<String>registerHandler("sg.d").subscribe();
+
+    final long start=System.currentTimeMillis();
+    Observable<RxGatherResult<String>> res=rx.scatterGather(Arrays.asList("sg.a","sg.b","sg.c","sg.d"), "ping", 2, 5000);
+
+    res.subscribe(new Action1<RxGatherResult<String>>() {
+      public void call(RxGatherResult<String> r) {
+        // Finished by the quorum, not the timeout
+        assertTrue(System.currentTimeMillis()-start<5000);
+        assertTrue(r.quorum());
+        assertEquals(Arrays.asList("sg.a","sg.c"), new ArrayList<>(r.replies().keySet()));
+        assertEquals(Collections.singleton("sg.b"), r.failures().keySet());
+        assertEquals(Arrays.asList("sg.d"), r.timedOut());
+        testComplete();
+      }
+    });
+  }
+
+  @Test
+  public void testScatterGatherTimeout() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus());
+
+    rx.<String>registerHandler("sgt.a").subscribe(new Action1<RxMessage<String>>() {
+      public void call(RxMessage<String> msg) {
+        msg.reply("a");
+      }
+    });
+    rx.<String>registerHandler("sgt.b").subscribe();
+
+    Observable<Boolean> res=rx.<String,String>scatterGather(Arrays.asList("sgt.a","sgt.b"), "ping", 2, 100)
+      .map(new Func1<RxGatherResult<String>,Boolean>() {
+        public Boolean call(RxGatherResult<String> r) {
+          assertEquals(Arrays.asList("sgt.b"), r.timedOut());
+          return r.quorum();
+        }
+      });
+
+    assertSingleThenComplete(res, false);
+  }
+
+  @Test
+  public void testEncodedMessage() {
+
+    final RxEventBus rx=new RxEventBus(vertx.eventBus()).enableBinaryJson();
+
+    final JsonObject body=new JsonObject().putString("symbol", "ACME").putNumber("price", 42.5);
+    final RxEncodedMessage encoded=new RxEncodedMessage(body);
+    assertEquals(body.encode(), encoded.text());
+
+    final List<String> addresses=Arrays.asList("user.1","user.2","user.3");
+    final AtomicInteger received=new AtomicInteger();
+    for (String address : addresses) {
+      rx.<JsonObject>registerHandler(address).subscribe(new Action1<RxMessage<JsonObject>>() {
+        public void call(RxMessage<JsonObject> msg) {
+          assertEquals(body, msg.body());
+          if (received.incrementAndGet()==addresses.size())
+            testComplete();
+        }
+      });
+    }
+
+    rx.publish(addresses, encoded);
+  }
+
+  @Test
+  public void testPublishEncodedOnce() {
+
+    final AtomicInteger encoded=new AtomicInteger();
+    final JsonObject body=new JsonObject().putString("symbol", "ACME").putNumber("price", 42.5);
+    final RxEventBus rx=new RxEventBus(vertx.eventBus()) {
+      @Override protected Object encode(Object msg) {
+        if (msg==body)
+          encoded.incrementAndGet();
+        return super.encode(msg);
+      }
+    }.enableBinaryJson();
+
+    final List<String> addresses=Arrays.asList("quote.1","quote.2","quote.3");
+    final AtomicInteger received=new AtomicInteger();
+    for (String address : addresses) {
+      rx.<JsonObject>registerHandler(address).subscribe(new Action1<RxMessage<JsonObject>>() {
+        public void call(RxMessage<JsonObject> msg) {
+          assertEquals(body, msg.body());
+          if (received.incrementAndGet()==addresses.size()) {
+            assertEquals(1, encoded.get());
+            testComplete();
+          }
+        }
+      });
+    }
+
+    rx.publish(addresses, body);
+  }
 }
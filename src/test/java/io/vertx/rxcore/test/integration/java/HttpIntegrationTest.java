@@ -4,14 +4,18 @@ import java.util.*;
 
 import io.vertx.rxcore.RxSupport;
 import io.vertx.rxcore.java.http.*;
+import io.vertx.rxcore.java.impl.BodyTooLargeException;
+import io.vertx.rxcore.java.impl.JsonStreamWriter;
 import org.junit.Test;
 import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.http.HttpClientRequest;
+import org.vertx.java.core.json.JsonObject;
 import org.vertx.testtools.TestVerticle;
 import rx.Observable;
 import rx.functions.Action1;
 import rx.functions.Func1;
 import static io.vertx.rxcore.test.integration.java.RxAssert.*;
+import static org.vertx.testtools.VertxAssert.assertEquals;
 
 /** HttpIntegrationTest
  * @author <a href="http://github.com/petermd">Peter McDonnell</a>
@@ -85,6 +89,66 @@ public class HttpIntegrationTest extends TestVerticle {
     assertSequenceThenComplete(ob,new Buffer("pong:/ping/get"));
   }
 
+  @Test
+  public void testDownloadBody() {
+
+    createHttpPingServer();
+
+    RxHttpClient client=new RxHttpClient(vertx.createHttpClient().setHost("localhost").setPort(8080));
+
+    Observable<Buffer> ob=client
+      .getNow("/ping/body")
+      .flatMap(RxHttpSupport.downloadBody(1024));
+
+    assertSequenceThenComplete(ob,new Buffer("pong:/ping/body"));
+  }
+
+  @Test
+  public void testDownloadBodyTooLarge() {
+
+    createHttpPingServer();
+
+    RxHttpClient client=new RxHttpClient(vertx.createHttpClient().setHost("localhost").setPort(8080));
+
+    Observable<Buffer> ob=client
+      .getNow("/ping/body")
+      .flatMap(RxHttpSupport.downloadBody(4));
+
+    assertErrorThenComplete(ob,BodyTooLargeException.class,"Body exceeds maximum size (size=15,maxSize=4)");
+  }
+
+  @Test
+  public void testJsonStream() {
+
+    RxHttpServer server=new RxHttpServer(vertx.createHttpServer());
+
+    server
+      .http()
+        .subscribe(new Action1<RxHttpServerRequest>() {
+          public void call(RxHttpServerRequest req) {
+            JsonObject[] records=new JsonObject[1000];
+            for (int i=0;i<records.length;i++)
+              records[i]=new JsonObject().putNumber("id",i).putString("name","record-"+i);
+            RxHttpSupport.respondJsonStream(vertx.currentContext(),req.response(),Observable.from(records),JsonStreamWriter.Format.ARRAY).subscribe();
+          }
+        });
+
+    server.coreHttpServer().listen(8080,"localhost");
+
+    RxHttpClient client=new RxHttpClient(vertx.createHttpClient().setHost("localhost").setPort(8080));
+
+    Observable<JsonObject> ob=client
+      .getNow("/records")
+      .flatMap(new Func1<RxHttpClientResponse,Observable<JsonObject>>() {
+        public Observable<JsonObject> call(RxHttpClientResponse resp) {
+          assertEquals("application/json",resp.headers().get("Content-Type"));
+          return resp.asObservable().lift(RxSupport.decodeJsonStream());
+        }
+      });
+
+    assertCountThenComplete(ob,1000);
+  }
+
   /*
   * Verify that if underlying httpclient throws an exception, 
   * the observer is notified. 
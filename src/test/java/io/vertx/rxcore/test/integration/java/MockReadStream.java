@@ -0,0 +1,72 @@
+package io.vertx.rxcore.test.integration.java;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.streams.ReadStream;
+
+/** ReadStream that is driven directly by the test */
+public class MockReadStream implements ReadStream<MockReadStream> {
+
+  // Instance variables
+
+  /** Handlers */
+  protected Handler<Buffer> dataHandler;
+  protected Handler<Void> endHandler;
+  protected Handler<Throwable> exceptionHandler;
+
+  /** Paused */
+  public boolean paused;
+
+  /** Number of times paused */
+  public int pauseCount;
+
+  // Public methods
+
+  /** Push data (regardless of pause) */
+  public void push(String data) {
+    this.dataHandler.handle(new Buffer(data));
+  }
+
+  /** End the stream */
+  public void end() {
+    this.endHandler.handle(null);
+  }
+
+  /** Check a data handler is registered */
+  public boolean reading() {
+    return this.dataHandler!=null;
+  }
+
+  /** Fail the stream */
+  public void fail(Throwable t) {
+    this.exceptionHandler.handle(t);
+  }
+
+  // ReadStream implementation
+
+  public MockReadStream dataHandler(Handler<Buffer> handler) {
+    this.dataHandler=handler;
+    return this;
+  }
+
+  public MockReadStream pause() {
+    this.paused=true;
+    this.pauseCount++;
+    return this;
+  }
+
+  public MockReadStream resume() {
+    this.paused=false;
+    return this;
+  }
+
+  public MockReadStream endHandler(Handler<Void> handler) {
+    this.endHandler=handler;
+    return this;
+  }
+
+  public MockReadStream exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler=handler;
+    return this;
+  }
+}
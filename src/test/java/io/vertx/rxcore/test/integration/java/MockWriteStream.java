@@ -0,0 +1,79 @@
+package io.vertx.rxcore.test.integration.java;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.streams.WriteStream;
+
+/** WriteStream that is full once maxSize bytes are written, until drained by the test */
+public class MockWriteStream implements WriteStream<MockWriteStream> {
+
+  // Instance variables
+
+  /** Data written */
+  public final Buffer received=new Buffer();
+
+  /** Number of writes */
+  public int writes;
+
+  /** Bytes queued since the last drain */
+  protected int queued;
+
+  /** Max queue size */
+  protected int maxSize;
+
+  /** Handlers */
+  protected Handler<Void> drainHandler;
+  protected Handler<Throwable> exceptionHandler;
+
+  // Public methods
+
+  /** Create new MockWriteStream */
+  public MockWriteStream(int maxSize) {
+    this.maxSize=maxSize;
+  }
+
+  /** Empty the queue and notify */
+  public void drain() {
+    this.queued=0;
+    if (this.drainHandler!=null)
+      this.drainHandler.handle(null);
+  }
+
+  /** Check a drain or exception handler is registered */
+  public boolean hasHandlers() {
+    return (this.drainHandler!=null) || (this.exceptionHandler!=null);
+  }
+
+  /** Fail the stream */
+  public void fail(Throwable t) {
+    this.exceptionHandler.handle(t);
+  }
+
+  // WriteStream implementation
+
+  public MockWriteStream write(Buffer data) {
+    this.received.appendBuffer(data);
+    this.queued+=data.length();
+    this.writes++;
+    return this;
+  }
+
+  public MockWriteStream setWriteQueueMaxSize(int maxSize) {
+    this.maxSize=maxSize;
+    return this;
+  }
+
+  public boolean writeQueueFull() {
+    return this.queued>=this.maxSize;
+  }
+
+  public MockWriteStream drainHandler(Handler<Void> handler) {
+    this.drainHandler=handler;
+    return this;
+  }
+
+  public MockWriteStream exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler=handler;
+    return this;
+  }
+}
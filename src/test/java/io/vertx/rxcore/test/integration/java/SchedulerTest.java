@@ -1,18 +1,27 @@
 package io.vertx.rxcore.test.integration.java;
 
 import io.vertx.rxcore.java.RxVertx;
+import io.vertx.rxcore.java.impl.ContextScheduler;
+import io.vertx.rxcore.java.impl.TimerWheel;
 import org.junit.Test;
 import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
 import org.vertx.testtools.TestVerticle;
 import rx.Observable;
 import rx.Observer;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Func2;
 import rx.schedulers.Schedulers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.vertx.testtools.VertxAssert.*;
 
@@ -234,4 +243,209 @@ public class SchedulerTest extends TestVerticle {
         }
       });
   }
+
+  /** Test Batched ObserveOn */
+  @Test
+  public void testBatchedObserveOn() {
+
+    RxVertx rx=new RxVertx(vertx);
+
+    final Context initCtx=vertx.currentContext();
+
+    Observable
+      .range(0,10000)
+      .subscribeOn(Schedulers.newThread())
+      .observeOn(rx.batchedContextScheduler())
+      .subscribe(new Observer<Integer>() {
+
+        private int expected=0;
+
+        public void onCompleted() {
+          assertEquals(10000, expected);
+          testComplete();
+        }
+
+        public void onError(Throwable e) {
+          fail("unexpected failure");
+        }
+
+        public void onNext(Integer value) {
+          assertEquals(expected++, value.intValue());
+          assertEquals(initCtx, vertx.currentContext());
+        }
+      });
+  }
+
+  /** Test Batched Trampoline */
+  @Test
+  public void testBatchedTrampoline() {
+
+    final Scheduler.Worker worker=new ContextScheduler(vertx, vertx.currentContext(), 16).createWorker();
+    final List<String> events=new ArrayList<>();
+
+    worker.schedule(new Action0() {
+      public void call() {
+        events.add("a");
+        // Nested actions run after the current one, in order
+        worker.schedule(new Action0() {
+          public void call() {
+            events.add("c");
+          }
+        });
+        worker.schedule(new Action0() {
+          public void call() {
+            events.add("d");
+          }
+        });
+        events.add("b");
+      }
+    });
+
+    // Ran immediately on the owning context
+    assertEquals(Arrays.asList("a","b","c","d"), events);
+
+    // Actions that have run report unsubscribed
+    Subscription s=worker.schedule(new Action0() {
+      public void call() {
+        events.add("e");
+      }
+    });
+    assertTrue(s.isUnsubscribed());
+
+    worker.unsubscribe();
+    testComplete();
+  }
+
+  /** Test Batched Budget */
+  @Test
+  public void testBatchedBudget() {
+
+    final Context ctx=vertx.currentContext();
+    final Scheduler.Worker worker=new ContextScheduler(vertx, ctx, 10).createWorker();
+    final AtomicInteger count=new AtomicInteger();
+
+    final Action0 inc=new Action0() {
+      public void call() {
+        if (count.incrementAndGet()==50) {
+          worker.unsubscribe();
+          testComplete();
+        }
+      }
+    };
+
+    worker.schedule(new Action0() {
+      public void call() {
+        for (int i=0;i<50;i++)
+          worker.schedule(inc);
+        // Queued behind the first batch
+        ctx.runOnContext(new Handler<Void>() {
+          public void handle(Void event) {
+            assertEquals(9, count.get());
+          }
+        });
+      }
+    });
+  }
+
+  /** Test TimerWheel */
+  @Test
+  public void testTimerWheel() {
+
+    final Context initCtx=vertx.currentContext();
+    final TimerWheel wheel=new TimerWheel(vertx, initCtx, 5, 4);
+    final List<Integer> fired=new ArrayList<>();
+    final long startTime=System.currentTimeMillis();
+
+    // Longer than a full turn of the wheel (4 x 5ms)
+    for (final int delay : new int[] { 60, 10, 35 }) {
+      wheel.schedule(new Action0() {
+        public void call() {
+          long timeTaken=System.currentTimeMillis()-startTime;
+          assertTrue(timeTaken>=delay);
+          assertEquals(initCtx, vertx.currentContext());
+          fired.add(delay);
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    Subscription cancelled=wheel.schedule(new Action0() {
+      public void call() {
+        fail("cancelled timeout fired");
+      }
+    }, 20, TimeUnit.MILLISECONDS);
+    cancelled.unsubscribe();
+
+    final AtomicInteger ticks=new AtomicInteger();
+    final AtomicReference<Subscription> periodic=new AtomicReference<>();
+    periodic.set(wheel.schedulePeriodically(new Action0() {
+      public void call() {
+        if (ticks.incrementAndGet()==8) {
+          periodic.get().unsubscribe();
+          assertEquals(Arrays.asList(10,35,60), fired);
+          testComplete();
+        }
+      }
+    }, 10, 10, TimeUnit.MILLISECONDS));
+  }
+
+  /** Test unsubscribing a worker cancels its TimerWheel timeouts */
+  @Test
+  public void testTimerWheelWorkerUnsubscribe() {
+
+    final Context initCtx=vertx.currentContext();
+    final TimerWheel wheel=new TimerWheel(vertx, initCtx, 5, 4);
+    final Action0 never=new Action0() {
+      public void call() {
+        fail("timeout fired after worker unsubscribed");
+      }
+    };
+
+    for (int tickBudget : new int[] { ContextScheduler.UNBATCHED, ContextScheduler.DEFAULT_TICK_BUDGET }) {
+      Scheduler.Worker worker=new ContextScheduler(vertx, initCtx, tickBudget, wheel).createWorker();
+      Subscription delayed=worker.schedule(never, 20, TimeUnit.MILLISECONDS);
+      Subscription periodic=worker.schedulePeriodically(never, 20, 20, TimeUnit.MILLISECONDS);
+      worker.unsubscribe();
+      assertTrue(delayed.isUnsubscribed());
+      assertTrue(periodic.isUnsubscribed());
+    }
+
+    vertx.setTimer(100, new Handler<Long>() {
+      public void handle(Long id) {
+        testComplete();
+      }
+    });
+  }
+
+  /** Test Debounce using TimerWheel */
+  @Test
+  public void testTimerWheelDebounce() {
+
+    RxVertx rx=new RxVertx(vertx);
+
+    final Context initCtx=vertx.currentContext();
+    final Scheduler scheduler=rx.contextScheduler(ContextScheduler.DEFAULT_TICK_BUDGET, true);
+
+    Observable
+      .timer(1, 10, TimeUnit.MILLISECONDS, scheduler)
+      .take(100)
+      .debounce(50, TimeUnit.MILLISECONDS, scheduler)
+      .timeout(5, TimeUnit.SECONDS, scheduler)
+      .subscribe(new Observer<Long>() {
+        private long lastValue=-1;
+
+        public void onCompleted() {
+          assertEquals(99,lastValue);
+          testComplete();
+        }
+
+        public void onError(Throwable e) {
+          fail("unexpected failure");
+        }
+
+        public void onNext(Long value) {
+          lastValue=value;
+          assertEquals(initCtx, vertx.currentContext());
+        }
+      });
+  }
 }
@@ -1,6 +1,7 @@
 package integration_tests.groovy
 
 import io.vertx.rxcore.java.eventbus.RxEventBus
+import io.vertx.rxcore.groovy.eventbus.RxEventBus as GroovyRxEventBus
 
 import org.vertx.groovy.testtools.VertxTests
 
@@ -18,6 +19,29 @@ def testSimpleSubscribeReply() {
   
 }
 
+def testGroovyMapReply() {
+
+  GroovyRxEventBus rxEventBus = new GroovyRxEventBus(vertx.getEventBus())
+  rxEventBus.registerHandler("bar").subscribe({ message -> message.reply([reply: message.body().name]) })
+  rxEventBus.observeSend("bar", [name: "ping!"]).subscribe({ message ->
+    assertEquals("ping!", message.body().reply)
+    testComplete()
+  })
+
+}
+
+def testGroovyGStringReply() {
+
+  GroovyRxEventBus rxEventBus = new GroovyRxEventBus(vertx.getEventBus())
+  rxEventBus.registerHandler("baz").subscribe({ message -> message.reply([reply: "${message.body().name}!", tags: ["t${2}"]]) })
+  rxEventBus.observeSend("baz", [name: "x${1}"]).subscribe({ message ->
+    assertEquals("x1!", message.body().reply)
+    assertEquals(["t2"], message.body().tags)
+    testComplete()
+  })
+
+}
+
 VertxTests.initialize(this)
 VertxTests.startTests(this)
 